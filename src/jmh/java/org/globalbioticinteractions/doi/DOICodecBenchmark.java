@@ -0,0 +1,173 @@
+package org.globalbioticinteractions.doi;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of writing and reading batches of {@link DOICorpus#SIZE} DOIs using Java serialization with the default
+ * serialized form of earlier releases, Java serialization with the compact serialized form, and {@link DOICodec}.
+ * Writing benchmarks also report the number of bytes written per batch (the <code>bytes</code> counter).
+ * <p>
+ * Run with <code>mvn -Pbenchmark clean test-compile exec:exec -Djmh.args="DOICodecBenchmark"</code>.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DOICodecBenchmark {
+
+    @Param({"BARE", "SICI"})
+    public DOICorpus corpus;
+
+    private List<DOI> dois;
+    private List<DefaultSerializedDOI> defaultSerializedDOIs;
+    private DOICodec dictionaryCodec;
+    private byte[] defaultSerialized;
+    private byte[] serialized;
+    private byte[] written;
+    private ByteBuffer buffer;
+    private ByteBuffer encoded;
+
+    @Setup
+    public void setup() throws IOException, MalformedDOIException {
+        dois = new ArrayList<DOI>();
+        defaultSerializedDOIs = new ArrayList<DefaultSerializedDOI>();
+        List<String> registrantCodes = new ArrayList<String>();
+        for (String doiString : corpus.strings()) {
+            DOI doi = DOI.create(doiString);
+            dois.add(doi);
+            defaultSerializedDOIs.add(new DefaultSerializedDOI(doi.getRegistrantCode(), doi.getSuffix()));
+            if (!registrantCodes.contains(doi.getRegistrantCode())) {
+                registrantCodes.add(doi.getRegistrantCode());
+            }
+        }
+        dictionaryCodec = new DOICodec(registrantCodes);
+        defaultSerialized = defaultSerialization(new Size());
+        serialized = serialization(new Size());
+        written = writeTo(new Size());
+        buffer = ByteBuffer.allocate(written.length);
+        encoded = ByteBuffer.allocate(written.length);
+        new DOICodec().encodeAll(dois, 0, encoded);
+        encoded.flip();
+    }
+
+    @Benchmark
+    public byte[] defaultSerialization(Size size) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(defaultSerializedDOIs);
+        out.close();
+        size.bytes = bytes.size();
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public Object defaultDeserialization() throws IOException, ClassNotFoundException {
+        return new ObjectInputStream(new ByteArrayInputStream(defaultSerialized)).readObject();
+    }
+
+    @Benchmark
+    public byte[] serialization(Size size) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(dois);
+        out.close();
+        size.bytes = bytes.size();
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public Object deserialization() throws IOException, ClassNotFoundException {
+        return new ObjectInputStream(new ByteArrayInputStream(serialized)).readObject();
+    }
+
+    @Benchmark
+    public byte[] writeTo(Size size) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (DOI doi : dois) {
+            doi.writeTo(out);
+        }
+        out.close();
+        size.bytes = bytes.size();
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public DOI readFrom() throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(written));
+        DOI doi = null;
+        for (int i = 0; i < dois.size(); i++) {
+            doi = DOI.readFrom(in);
+        }
+        return doi;
+    }
+
+    @Benchmark
+    public ByteBuffer encodeAll(Size size) {
+        buffer.clear();
+        new DOICodec().encodeAll(dois, 0, buffer);
+        size.bytes = buffer.position();
+        return buffer;
+    }
+
+    @Benchmark
+    public ByteBuffer dictionaryEncode(Size size) {
+        buffer.clear();
+        dictionaryCodec.encodeAll(dois, 0, buffer);
+        size.bytes = buffer.position();
+        return buffer;
+    }
+
+    @Benchmark
+    public List<DOI> decodeAll() {
+        List<DOI> decoded = new ArrayList<DOI>(dois.size());
+        new DOICodec().decodeAll(encoded.duplicate(), decoded);
+        return decoded;
+    }
+
+    /**
+     * Number of bytes written per batch, reported by JMH next to the throughput of writing.
+     */
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Size {
+        public long bytes;
+    }
+
+    /**
+     * Same fields as {@link DOI}, serialized like {@link DOI} was by earlier releases.
+     */
+
+    private static final class DefaultSerializedDOI implements Serializable {
+        private final String registrantCode;
+        private final String suffix;
+
+        DefaultSerializedDOI(String registrantCode, String suffix) {
+            this.registrantCode = registrantCode;
+            this.suffix = suffix;
+        }
+    }
+
+}
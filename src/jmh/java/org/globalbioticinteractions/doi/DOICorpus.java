@@ -0,0 +1,116 @@
+package org.globalbioticinteractions.doi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic DOI string corpora used by the benchmarks, modelled after DOIs found in GloBI citation data.
+ */
+
+public enum DOICorpus {
+
+    BARE {
+        @Override
+        String render(String registrant, String suffix) {
+            return "10." + registrant + "/" + suffix;
+        }
+    },
+    PRINTABLE {
+        @Override
+        String render(String registrant, String suffix) {
+            return "doi:10." + registrant + "/" + suffix;
+        }
+    },
+    SECURE_URL {
+        @Override
+        String render(String registrant, String suffix) {
+            return "https://doi.org/10." + registrant + "/" + escape(suffix);
+        }
+    },
+    DX_URL {
+        @Override
+        String render(String registrant, String suffix) {
+            return "http://dx.doi.org/10." + registrant + "/" + escape(suffix);
+        }
+    },
+    SICI {
+        @Override
+        String render(String registrant, String suffix) {
+            return "10." + registrant + "/" + sici(registrant.length() + suffix.length());
+        }
+    },
+    MALFORMED {
+        @Override
+        String render(String registrant, String suffix) {
+            switch (suffix.length() % 5) {
+                case 0:
+                    return "9." + registrant + "/" + suffix;
+                case 1:
+                    return "10." + registrant + "." + suffix;
+                case 2:
+                    return "http://dx.doi.org/10." + registrant + "/" + sici(suffix.length());
+                case 3:
+                    return "10";
+                default:
+                    return suffix;
+            }
+        }
+    };
+
+    static final int SIZE = 1024;
+
+    private static final String[] REGISTRANTS = {
+            "1111", "1371", "1016", "1007", "1002", "1038", "1093", "1080", "2307", "1644", "1577", "1206", "1898", "5962", "3897"
+    };
+
+    private static final String[] SUFFIX_TEMPLATES = {
+            "j.%d-%d.2008.00%d.x",
+            "journal.pone.%07d",
+            "s%d-%d-%d-5",
+            "jmbi.%d.%d#%d",
+            "ABC.%d/%d-%d",
+            "issn.%d-%d",
+            "%d<%d:%d>"
+    };
+
+    abstract String render(String registrant, String suffix);
+
+    String[] strings() {
+        Random random = new Random(42);
+        List<String> values = new ArrayList<String>(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            String registrant = REGISTRANTS[random.nextInt(REGISTRANTS.length)];
+            String template = SUFFIX_TEMPLATES[random.nextInt(SUFFIX_TEMPLATES.length)];
+            String suffix = String.format(template, random.nextInt(100000), random.nextInt(10000), random.nextInt(100));
+            values.add(render(registrant, suffix));
+        }
+        return values.toArray(new String[values.size()]);
+    }
+
+    private static String sici(int seed) {
+        return "1545-1410(" + (1990 + seed % 30) + ")" + (100 + seed) + "<00" + (seed % 90 + 10) + ":sa>2.0.co;2";
+    }
+
+    private static String escape(String suffix) {
+        StringBuilder builder = new StringBuilder(suffix.length() + 8);
+        for (int i = 0; i < suffix.length(); i++) {
+            char c = suffix.charAt(i);
+            switch (c) {
+                case '#':
+                    builder.append("%23");
+                    break;
+                case '<':
+                    builder.append("%3C");
+                    break;
+                case '>':
+                    builder.append("%3E");
+                    break;
+                default:
+                    builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,102 @@
+package org.globalbioticinteractions.doi;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the {@link DOI#create(String)} family and {@link DOI#create(URI)} on realistic inputs.
+ * <p>
+ * Run with <code>mvn -Pbenchmark clean test-compile exec:exec -Djmh.args="DOICreateBenchmark"</code>.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DOICreateBenchmark {
+
+    @Param({"BARE", "PRINTABLE", "SECURE_URL", "DX_URL", "SICI", "MALFORMED"})
+    public DOICorpus corpus;
+
+    private String[] strings;
+    private char[][] chars;
+    private byte[][] bytes;
+    private URI[] uris;
+    private int index;
+
+    @Setup
+    public void setup() throws MalformedDOIException {
+        strings = corpus.strings();
+        chars = new char[strings.length][];
+        bytes = new byte[strings.length][];
+        uris = new URI[strings.length];
+        for (int i = 0; i < strings.length; i++) {
+            chars[i] = strings[i].toCharArray();
+            bytes[i] = strings[i].getBytes(StandardCharsets.UTF_8);
+            DOI doi = createOrNull(strings[i]);
+            uris[i] = doi == null ? URI.create("https://doi.org/") : doi.toURI();
+        }
+    }
+
+    @Benchmark
+    public DOI createFromString() {
+        return createOrNull(strings[next()]);
+    }
+
+    @Benchmark
+    public DOIParseResult parseFromString() {
+        return DOI.parse(strings[next()]);
+    }
+
+    @Benchmark
+    public DOI createFromChars() {
+        char[] doiChars = chars[next()];
+        try {
+            return DOI.create(doiChars, 0, doiChars.length);
+        } catch (MalformedDOIException e) {
+            return null;
+        }
+    }
+
+    @Benchmark
+    public DOI createFromBytes() {
+        byte[] doiBytes = bytes[next()];
+        try {
+            return DOI.create(doiBytes, 0, doiBytes.length);
+        } catch (MalformedDOIException e) {
+            return null;
+        }
+    }
+
+    @Benchmark
+    public DOI createFromURI() {
+        try {
+            return DOI.create(uris[next()]);
+        } catch (MalformedDOIException e) {
+            return null;
+        }
+    }
+
+    private int next() {
+        index = (index + 1) & (DOICorpus.SIZE - 1);
+        return index;
+    }
+
+    private static DOI createOrNull(String doiString) {
+        try {
+            return DOI.create(doiString);
+        } catch (MalformedDOIException e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package org.globalbioticinteractions.doi;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link DOIExtractor} on about 1MB of reference list text, so that ops/s roughly equals MB/s.
+ * <p>
+ * Run with <code>mvn -Pbenchmark clean test-compile exec:exec -Djmh.args="DOIExtractorBenchmark"</code>.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DOIExtractorBenchmark {
+
+    private String text;
+
+    @Setup
+    public void setup() {
+        StringBuilder builder = new StringBuilder();
+        String[] references = DOICorpus.BARE.strings();
+        String[] urls = DOICorpus.SECURE_URL.strings();
+        for (int i = 0; builder.length() < 1024 * 1024; i++) {
+            int j = i & (DOICorpus.SIZE - 1);
+            builder.append("Author, A. and Author, B. (").append(1990 + i % 30).append("). Some title of a paper on species interactions, volume ")
+                    .append(i % 100).append(", pages 1-10. ")
+                    .append(i % 2 == 0 ? "doi:" + references[j] : urls[j])
+                    .append(".\n");
+        }
+        text = builder.toString();
+    }
+
+    @Benchmark
+    public int extractFromCharSequence() throws IOException {
+        return count(new DOIExtractor(text));
+    }
+
+    @Benchmark
+    public int extractFromReader() throws IOException {
+        return count(new DOIExtractor(new StringReader(text)));
+    }
+
+    private static int count(DOIExtractor extractor) throws IOException {
+        int count = 0;
+        while (extractor.next() != null) {
+            count++;
+        }
+        return count;
+    }
+
+}
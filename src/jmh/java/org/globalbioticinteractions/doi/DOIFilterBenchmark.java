@@ -0,0 +1,56 @@
+package org.globalbioticinteractions.doi;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of checking raw DOI strings against a {@link DOIFilter}, directly and by creating a {@link DOI} first.
+ * <p>
+ * Run with <code>mvn -Pbenchmark clean test-compile exec:exec -Djmh.args="DOIFilterBenchmark"</code>.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DOIFilterBenchmark {
+
+    @Param({"BARE", "SECURE_URL"})
+    public DOICorpus corpus;
+
+    private String[] strings;
+    private DOIFilter filter;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        strings = corpus.strings();
+        filter = new DOIFilter(strings.length, 0.01);
+        for (int i = 0; i < strings.length; i += 2) {
+            filter.add(strings[i]);
+        }
+    }
+
+    @Benchmark
+    public boolean mightContainString() {
+        return filter.mightContain(strings[next()]);
+    }
+
+    @Benchmark
+    public boolean mightContainCreatedDOI() throws MalformedDOIException {
+        return filter.mightContain(DOI.create(strings[next()]));
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & (DOICorpus.SIZE - 1);
+        return cursor;
+    }
+
+}
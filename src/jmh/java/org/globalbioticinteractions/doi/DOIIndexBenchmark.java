@@ -0,0 +1,63 @@
+package org.globalbioticinteractions.doi;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of looking up and scanning DOIs in a {@link DOIIndex}.
+ * <p>
+ * Run with <code>mvn -Pbenchmark clean test-compile exec:exec -Djmh.args="DOIIndexBenchmark"</code>.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DOIIndexBenchmark {
+
+    @Param({"BARE", "SICI"})
+    public DOICorpus corpus;
+
+    private DOI[] dois;
+    private DOIIndex index;
+    private int cursor;
+
+    @Setup
+    public void setup() throws MalformedDOIException {
+        String[] strings = corpus.strings();
+        dois = new DOI[strings.length];
+        DOIIndex.Builder builder = new DOIIndex.Builder();
+        for (int i = 0; i < strings.length; i++) {
+            dois[i] = DOI.create(strings[i]);
+            builder.add(dois[i]);
+        }
+        index = builder.build();
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return index.contains(dois[next()]);
+    }
+
+    @Benchmark
+    public int scanRegistrant() {
+        int count = 0;
+        for (DOI doi : index.scan(dois[next()].getRegistrantCode())) {
+            count++;
+        }
+        return count;
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & (DOICorpus.SIZE - 1);
+        return cursor;
+    }
+
+}
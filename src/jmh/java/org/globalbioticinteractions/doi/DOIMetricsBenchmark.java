@@ -0,0 +1,70 @@
+package org.globalbioticinteractions.doi;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of parsing and rendering DOIs with and without {@link DOIMetrics} enabled.
+ * <p>
+ * Run with <code>mvn -Pbenchmark clean test-compile exec:exec -Djmh.args="DOIMetricsBenchmark"</code>.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DOIMetricsBenchmark {
+
+    @Param({"false", "true"})
+    public boolean enabled;
+
+    @Param({"BARE", "SECURE_URL"})
+    public DOICorpus corpus;
+
+    private String[] strings;
+    private DOI[] dois;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        strings = corpus.strings();
+        dois = new DOI[strings.length];
+        for (int i = 0; i < strings.length; i++) {
+            dois[i] = DOI.tryCreate(strings[i]);
+        }
+        if (enabled) {
+            DOIMetrics.enable();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        DOIMetrics.disable();
+    }
+
+    @Benchmark
+    public DOIParseResult parse() {
+        return DOI.parse(strings[next()]);
+    }
+
+    @Benchmark
+    public URI toURI() {
+        DOI doi = dois[next()];
+        return doi == null ? null : doi.toURI();
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & (DOICorpus.SIZE - 1);
+        return cursor;
+    }
+
+}
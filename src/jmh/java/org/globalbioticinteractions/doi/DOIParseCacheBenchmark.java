@@ -0,0 +1,63 @@
+package org.globalbioticinteractions.doi;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of parsing repeated DOI strings with and without a {@link DOIParseCache} that holds all of them,
+ * from four threads sharing the cache.
+ * <p>
+ * Run with <code>mvn -Pbenchmark clean test-compile exec:exec -Djmh.args="DOIParseCacheBenchmark"</code>.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+public class DOIParseCacheBenchmark {
+
+    @Param({"SECURE_URL", "MALFORMED"})
+    public DOICorpus corpus;
+
+    private String[] strings;
+    private DOIParseCache cache;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int position;
+
+        int next() {
+            position = (position + 1) & (DOICorpus.SIZE - 1);
+            return position;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        strings = corpus.strings();
+        cache = new DOIParseCache(2 * DOICorpus.SIZE);
+        for (String string : strings) {
+            cache.parse(string);
+        }
+    }
+
+    @Benchmark
+    public DOIParseResult parse(Cursor cursor) {
+        return DOI.parse(strings[cursor.next()]);
+    }
+
+    @Benchmark
+    public DOIParseResult parseCached(Cursor cursor) {
+        return cache.parse(strings[cursor.next()]);
+    }
+
+}
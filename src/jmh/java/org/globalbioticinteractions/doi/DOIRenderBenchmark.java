@@ -0,0 +1,121 @@
+package org.globalbioticinteractions.doi;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of rendering, hashing and comparing already parsed DOIs.
+ * <p>
+ * Run with <code>mvn -Pbenchmark clean test-compile exec:exec -Djmh.args="DOIRenderBenchmark"</code>.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DOIRenderBenchmark {
+
+    @Param({"BARE", "SICI"})
+    public DOICorpus corpus;
+
+    private DOI[] dois;
+    private DOI[] equivalents;
+    private Map<DOI, Integer> index;
+    private final URI resolver = URI.create("http://dx.doi.org/");
+    private final StringBuilder builder = new StringBuilder();
+    private int cursor;
+
+    @Setup
+    public void setup() throws MalformedDOIException {
+        List<DOI> parsed = new ArrayList<DOI>();
+        for (String doiString : corpus.strings()) {
+            parsed.add(DOI.create(doiString));
+        }
+        dois = parsed.toArray(new DOI[parsed.size()]);
+        equivalents = new DOI[dois.length];
+        for (int i = 0; i < dois.length; i++) {
+            equivalents[i] = new DOI(dois[i].getRegistrantCode().toUpperCase(), dois[i].getSuffix().toUpperCase());
+        }
+        index = new HashMap<DOI, Integer>();
+        for (int i = 0; i < dois.length; i++) {
+            index.put(dois[i], i);
+        }
+    }
+
+    @Benchmark
+    public String toStringBenchmark() {
+        return dois[next()].toString();
+    }
+
+    @Benchmark
+    public String toPrintableDOI() {
+        return dois[next()].toPrintableDOI();
+    }
+
+    @Benchmark
+    public StringBuilder appendTo() {
+        builder.setLength(0);
+        return dois[next()].appendTo(builder);
+    }
+
+    @Benchmark
+    public StringBuilder appendPrintableTo() {
+        builder.setLength(0);
+        return dois[next()].appendPrintableTo(builder);
+    }
+
+    @Benchmark
+    public URI toURI() {
+        return dois[next()].toURI();
+    }
+
+    @Benchmark
+    public URI toURIWithResolver() {
+        return dois[next()].toURI(resolver);
+    }
+
+    @Benchmark
+    public String toURIString() {
+        return dois[next()].toURIString();
+    }
+
+    @Benchmark
+    public StringBuilder appendURITo() {
+        builder.setLength(0);
+        return dois[next()].appendURITo(builder);
+    }
+
+    @Benchmark
+    public int hashCodeBenchmark() {
+        return dois[next()].hashCode();
+    }
+
+    @Benchmark
+    public boolean equalsBenchmark() {
+        int i = next();
+        return dois[i].equals(equivalents[i]);
+    }
+
+    @Benchmark
+    public Integer hashMapLookup() {
+        return index.get(equivalents[next()]);
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & (DOICorpus.SIZE - 1);
+        return cursor;
+    }
+
+}
@@ -0,0 +1,51 @@
+package org.globalbioticinteractions.doi;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of lenient parsing with {@link DOI#repair(CharSequence)}, compared to {@link DOI#parse(CharSequence)}.
+ * <p>
+ * Run with <code>mvn -Pbenchmark clean test-compile exec:exec -Djmh.args="DOIRepairBenchmark"</code>.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DOIRepairBenchmark {
+
+    @Param({"BARE", "SECURE_URL", "SICI", "MALFORMED"})
+    public DOICorpus corpus;
+
+    private String[] strings;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        strings = corpus.strings();
+    }
+
+    @Benchmark
+    public DOIRepairResult repair() {
+        return DOI.repair(strings[next()]);
+    }
+
+    @Benchmark
+    public DOIParseResult parse() {
+        return DOI.parse(strings[next()]);
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & (DOICorpus.SIZE - 1);
+        return cursor;
+    }
+
+}
@@ -0,0 +1,69 @@
+package org.globalbioticinteractions.doi;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of looking up DOIs, in different case than they were added, in a {@link DOISet} and a {@link HashSet}.
+ * <p>
+ * Run with <code>mvn -Pbenchmark clean test-compile exec:exec -Djmh.args="DOISetBenchmark"</code>.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DOISetBenchmark {
+
+    @Param({"BARE", "SICI"})
+    public DOICorpus corpus;
+
+    private DOI[] dois;
+    private DOISet doiSet;
+    private Set<DOI> hashSet;
+    private int cursor;
+
+    @Setup
+    public void setup() throws MalformedDOIException {
+        String[] strings = corpus.strings();
+        dois = new DOI[strings.length];
+        doiSet = new DOISet();
+        hashSet = new HashSet<DOI>();
+        for (int i = 0; i < strings.length; i++) {
+            DOI doi = DOI.create(strings[i]);
+            doiSet.add(doi);
+            hashSet.add(doi);
+            dois[i] = new DOI(doi.getRegistrantCode().toUpperCase(), doi.getSuffix().toUpperCase());
+        }
+    }
+
+    @Benchmark
+    public boolean doiSetContains() {
+        return doiSet.contains(dois[next()]);
+    }
+
+    @Benchmark
+    public boolean hashSetContains() {
+        return hashSet.contains(dois[next()]);
+    }
+
+    @Benchmark
+    public boolean doiSetAdd() {
+        return doiSet.add(dois[next()]);
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & (DOICorpus.SIZE - 1);
+        return cursor;
+    }
+
+}
@@ -0,0 +1,63 @@
+package org.globalbioticinteractions.doi;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to parse a large input of lines with {@link DOIStreams}, counting rejects, on one core and on all cores.
+ * <p>
+ * Run with <code>mvn -Pbenchmark clean test-compile exec:exec -Djmh.args="DOIStreamsBenchmark"</code>.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DOIStreamsBenchmark {
+
+    private static final int LINES = 1 << 20;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private String text;
+    private ByteBuffer utf8;
+
+    @Setup
+    public void setup() {
+        StringBuilder lines = new StringBuilder();
+        for (DOICorpus corpus : new DOICorpus[]{DOICorpus.BARE, DOICorpus.SECURE_URL, DOICorpus.MALFORMED}) {
+            for (String line : corpus.strings()) {
+                lines.append(line).append('\n');
+            }
+        }
+        String corpora = lines.toString();
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < LINES / (3 * DOICorpus.SIZE); i++) {
+            input.append(corpora);
+        }
+        text = input.toString();
+        utf8 = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public Map<MalformedDOIReason, Long> countRejectsInChars() {
+        return DOIStreams.parseLines(text, parallel).collect(DOIStreams.countingRejects());
+    }
+
+    @Benchmark
+    public Map<MalformedDOIReason, Long> countRejectsInBytes() {
+        return DOIStreams.parseLines(utf8, parallel).collect(DOIStreams.countingRejects());
+    }
+
+}
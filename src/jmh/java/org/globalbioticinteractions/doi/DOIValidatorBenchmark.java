@@ -0,0 +1,71 @@
+package org.globalbioticinteractions.doi;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of validating a column of UTF-8 encoded candidates with {@link DOIValidator}, compared to parsing them.
+ * <p>
+ * Run with <code>mvn -Pbenchmark clean test-compile exec:exec -Djmh.args="DOIValidatorBenchmark"</code>.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DOIValidatorBenchmark {
+
+    @Param({"BARE", "SECURE_URL", "MALFORMED"})
+    public DOICorpus corpus;
+
+    private byte[] column;
+    private int[] offsets;
+    private int[] lengths;
+    private final BitSet valid = new BitSet();
+
+    @Setup
+    public void setup() {
+        String[] strings = corpus.strings();
+        StringBuilder values = new StringBuilder();
+        offsets = new int[strings.length];
+        lengths = new int[strings.length];
+        for (int i = 0; i < strings.length; i++) {
+            offsets[i] = values.toString().getBytes(StandardCharsets.UTF_8).length;
+            lengths[i] = strings[i].getBytes(StandardCharsets.UTF_8).length;
+            values.append(strings[i]);
+        }
+        column = values.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DOICorpus.SIZE)
+    public int validate() {
+        return DOIValidator.validate(column, offsets, lengths, offsets.length, valid);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DOICorpus.SIZE)
+    public int parse() {
+        int validCount = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            try {
+                DOI.create(column, offsets[i], lengths[i]);
+                validCount++;
+            } catch (MalformedDOIException e) {
+                // not a DOI
+            }
+        }
+        return validCount;
+    }
+
+}
@@ -1,8 +1,15 @@
 package org.globalbioticinteractions.doi;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamException;
 import java.io.Serializable;
 import java.net.URI;
-import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -22,16 +29,28 @@ import java.util.List;
 
 public final class DOI implements Serializable {
 
-    private static final List<String> PRINTABLE_DOI_PREFIX = Collections.singletonList("doi:");
+    // same as the implicit serial version of earlier releases, which serialized registrant code and suffix as fields
+    private static final long serialVersionUID = -2345210885714202136L;
+
+    private static final List<String> PRINTABLE_DOI_PREFIX = Collections.singletonList(DOIParser.PRINTABLE_DOI_PREFIX);
     private final static String DIRECTORY_INDICATOR = "10";
-    private final static String DIRECTORY_INDICATOR_PREFIX = DIRECTORY_INDICATOR + ".";
-    private static final String UNSECURE_DEFAULT_RESOLVER = "http://dx.doi.org/";
-    private static final String SECURE_DEFAULT_RESOLVER = "https://doi.org/";
+    private final static String DIRECTORY_INDICATOR_PREFIX = DOIParser.DIRECTORY_INDICATOR_PREFIX;
+    private static final String UNSECURE_DEFAULT_RESOLVER = DOIParser.UNSECURE_DEFAULT_RESOLVER;
+    private static final String SECURE_DEFAULT_RESOLVER = DOIParser.SECURE_DEFAULT_RESOLVER;
     private static final List<String> DOI_URLS = Arrays.asList(SECURE_DEFAULT_RESOLVER, UNSECURE_DEFAULT_RESOLVER);
+    private static final URI DEFAULT_RESOLVER_URI = URI.create(SECURE_DEFAULT_RESOLVER);
+    private static final ResolverPrefix DEFAULT_RESOLVER = new ResolverPrefix(DEFAULT_RESOLVER_URI);
+    private static final String DEFAULT_RESOLVER_PREFIX = DEFAULT_RESOLVER.prefix;
+
+    private static volatile ResolverPrefix lastResolverPrefix = DEFAULT_RESOLVER;
 
     private final String registrantCode;
     private final String suffix;
 
+    // lazily computed canonical string and case-insensitive hash, see toString() and hashCode()
+    private transient String doiString;
+    private transient int hash;
+
     /**
      * @param registrantCode DOI registrant code as defined in <a href="https://www.doi.org/doi_handbook/2_Numbering.html#2.2.2">2.2.2 DOI prefix</a>. May not be null or empty.
      * @param suffix         DOI suffix as defined in <a href="https://www.doi.org/doi_handbook/2_Numbering.html#2.2.3">2.2.3 DOI suffix</a> . May not be null or empty.
@@ -47,7 +66,7 @@ public final class DOI implements Serializable {
         this.suffix = suffix;
     }
 
-    private void validate(String value, String subject) {
+    private static void validate(String value, String subject) {
         if (value == null) {
             throw new NullPointerException("DOI " + subject + " may not be null");
         }
@@ -57,42 +76,41 @@ public final class DOI implements Serializable {
         }
     }
 
-    private static URI URIForDoi(DOI doi) {
-        return URIForDoi(doi, URI.create(SECURE_DEFAULT_RESOLVER));
-    }
-
-    private static URI URIForDoi(DOI doi, URI resolverURI) {
-        URI uri = null;
-        URI resolv = resolverURI == null ? URI.create(SECURE_DEFAULT_RESOLVER) : resolverURI;
-        try {
-            uri = new URI(resolv.getScheme(), resolv.getHost(), "/" + doi.toString(), null);
-        } catch (URISyntaxException e) {
-            // ignore
+    private static String resolverPrefix(URI resolver) {
+        if (resolver == null || resolver == DEFAULT_RESOLVER_URI) {
+            return DEFAULT_RESOLVER_PREFIX;
         }
-        return uri;
+        ResolverPrefix cached = lastResolverPrefix;
+        if (cached.resolver != resolver && !cached.resolver.equals(resolver)) {
+            cached = new ResolverPrefix(resolver);
+            lastResolverPrefix = cached;
+        }
+        return cached.prefix;
     }
 
-    private static String stripDOIPrefix(String doi) throws MalformedDOIException {
-        for (String prefix : PRINTABLE_DOI_PREFIX) {
-            if (doi.toLowerCase().startsWith(prefix)) {
-                return doi.length() > prefix.length() ? doi.substring(prefix.length()) : doi;
-            }
-        }
+    /**
+     * Resolver scheme, host and port as they precede the DOI path, e.g., "https://doi.org" for https://doi.org/ .
+     * The most recently used custom resolver is kept, so that it is only taken apart once when used repeatedly.
+     */
 
-        for (String prefix : DOI_URLS) {
-            if (doi.length() > prefix.length() && doi.toLowerCase().startsWith(prefix)) {
-                try {
-                    String doiStripped = doi.substring(prefix.length());
-                    URI uri = URI.create("some://host/path?" + doiStripped);
-                    return uri.getQuery();
-                } catch (IllegalArgumentException e) {
-                    // some invalid characters in stripped doi - probably due to invalid url escaping
-                    // from historic doi url generator.
-                    throw new MalformedDOIException("found unescaped doi in uri [" + doi + "]", e);
+    private static final class ResolverPrefix {
+        private final URI resolver;
+        private final String prefix;
+
+        ResolverPrefix(URI resolver) {
+            this.resolver = resolver;
+            StringBuilder prefix = new StringBuilder();
+            if (resolver.getScheme() != null) {
+                prefix.append(resolver.getScheme()).append(':');
+            }
+            if (resolver.getHost() != null) {
+                prefix.append("//").append(resolver.getHost());
+                if (resolver.getPort() != -1) {
+                    prefix.append(':').append(resolver.getPort());
                 }
             }
+            this.prefix = prefix.toString();
         }
-        return doi;
     }
 
     /**
@@ -170,14 +188,37 @@ public final class DOI implements Serializable {
      */
 
     public String toPrintableDOI() {
-        return String.format("doi:%s", this.toString());
+        return DOIParser.PRINTABLE_DOI_PREFIX + toString();
+    }
+
+    /**
+     * Appends the printable DOI (see {@link #toPrintableDOI()}) to the provided appendable without creating intermediate strings.
+     *
+     * @param appendable appendable (e.g., a {@link java.io.Writer}) to append to
+     * @return the provided appendable
+     * @throws IOException on failure to append
+     */
+
+    public Appendable appendPrintableTo(Appendable appendable) throws IOException {
+        return appendTo(appendable.append(DOIParser.PRINTABLE_DOI_PREFIX));
+    }
+
+    /**
+     * Same as {@link #appendPrintableTo(Appendable)}, without checked exceptions.
+     *
+     * @param builder builder to append to
+     * @return the provided builder
+     */
+
+    public StringBuilder appendPrintableTo(StringBuilder builder) {
+        return appendTo(builder.append(DOIParser.PRINTABLE_DOI_PREFIX));
     }
 
     /**
      * @return URI presentation as described in <a href="http://www.doi.org/doi_handbook/2_Numbering.html#2.6.2">http://www.doi.org/doi_handbook/2_Numbering.html#2.6.2</a> using default resolver https://doi.org/
      */
     public URI toURI() {
-        return URIForDoi(this);
+        return toURI(DEFAULT_RESOLVER_URI);
     }
 
     /**
@@ -186,7 +227,114 @@ public final class DOI implements Serializable {
      */
 
     public URI toURI(URI resolver) {
-        return URIForDoi(this, resolver);
+        DOIMetricsListener listener = DOIMetrics.getListener();
+        if (listener != null && DOIMetrics.isSampled()) {
+            long startTime = System.nanoTime();
+            URI uri = createURI(resolver);
+            listener.timed(DOIMetrics.Operation.TO_URI, System.nanoTime() - startTime);
+            return uri;
+        }
+        return createURI(resolver);
+    }
+
+    private URI createURI(URI resolver) {
+        try {
+            return URI.create(toURIString(resolver));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Same as {@link #toURI()}, but without creating a {@link URI}, for callers that only need the text (e.g., https://doi.org/10.1000/456%23789).
+     *
+     * @return URI presentation using default resolver https://doi.org/
+     */
+
+    public String toURIString() {
+        return toURIString(DEFAULT_RESOLVER_URI);
+    }
+
+    /**
+     * Same as {@link #toURI(URI)}, but without creating a {@link URI}.
+     *
+     * @param resolver resolver (e.g., https://doi.org , http://dx.doi.org) to be used
+     * @return URI presentation using specified resolver
+     */
+
+    public String toURIString(URI resolver) {
+        String prefix = resolverPrefix(resolver);
+        StringBuilder builder = new StringBuilder(prefix.length() + 16 + registrantCode.length() + suffix.length());
+        try {
+            appendURITo(builder, prefix);
+        } catch (IOException e) {
+            throw new IllegalStateException("failed to append to string builder", e);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Appends the URI presentation (see {@link #toURIString()}) to the provided appendable, percent-encoding the DOI
+     * in a single pass.
+     *
+     * @param appendable appendable (e.g., a {@link java.io.Writer}) to append to
+     * @return the provided appendable
+     * @throws IOException on failure to append
+     */
+
+    public Appendable appendURITo(Appendable appendable) throws IOException {
+        return appendURITo(appendable, DEFAULT_RESOLVER_URI);
+    }
+
+    /**
+     * Appends the URI presentation using the specified resolver (see {@link #toURIString(URI)}) to the provided appendable.
+     *
+     * @param appendable appendable (e.g., a {@link java.io.Writer}) to append to
+     * @param resolver   resolver (e.g., https://doi.org , http://dx.doi.org) to be used
+     * @return the provided appendable
+     * @throws IOException on failure to append
+     */
+
+    public Appendable appendURITo(Appendable appendable, URI resolver) throws IOException {
+        return appendURITo(appendable, resolverPrefix(resolver));
+    }
+
+    private Appendable appendURITo(Appendable appendable, String resolverPrefix) throws IOException {
+        appendable.append(resolverPrefix)
+                .append('/')
+                .append(DIRECTORY_INDICATOR_PREFIX);
+        PercentEncoder.appendEncodedPath(registrantCode, appendable);
+        appendable.append('/');
+        PercentEncoder.appendEncodedPath(suffix, appendable);
+        return appendable;
+    }
+
+    /**
+     * Same as {@link #appendURITo(Appendable)}, without checked exceptions.
+     *
+     * @param builder builder to append to
+     * @return the provided builder
+     */
+
+    public StringBuilder appendURITo(StringBuilder builder) {
+        return appendURITo(builder, DEFAULT_RESOLVER_URI);
+    }
+
+    /**
+     * Same as {@link #appendURITo(Appendable, URI)}, without checked exceptions.
+     *
+     * @param builder  builder to append to
+     * @param resolver resolver (e.g., https://doi.org , http://dx.doi.org) to be used
+     * @return the provided builder
+     */
+
+    public StringBuilder appendURITo(StringBuilder builder, URI resolver) {
+        try {
+            appendURITo((Appendable) builder, resolver);
+        } catch (IOException e) {
+            throw new IllegalStateException("failed to append to string builder", e);
+        }
+        return builder;
     }
 
     /**
@@ -202,8 +350,99 @@ public final class DOI implements Serializable {
      * @throws MalformedDOIException on malformed DOI (e.g., 9.123/2432)
      */
     public static DOI create(String doiString) throws MalformedDOIException {
-        String s = stripDOIPrefix(doiString);
-        return getDOI(s);
+        return DOIParser.create(doiString, 0, doiString.length());
+    }
+
+    /**
+     * Creates a DOI from commonly used DOI presentations (see {@link #create(String)}) without copying the input:
+     * only the registrant code and suffix of a well-formed DOI are copied.
+     *
+     * @param doiChars characters containing a doi (e.g., a {@link StringBuilder} or a field of a larger buffer).
+     * @return a well-formed DOI
+     * @throws MalformedDOIException on malformed DOI (e.g., 9.123/2432)
+     */
+    public static DOI create(CharSequence doiChars) throws MalformedDOIException {
+        return DOIParser.create(doiChars, 0, doiChars.length());
+    }
+
+    /**
+     * Creates a DOI from commonly used DOI presentations (see {@link #create(String)}) contained in a slice of a character array.
+     *
+     * @param buffer character array
+     * @param offset index of the first character of the doi
+     * @param length number of characters of the doi
+     * @return a well-formed DOI
+     * @throws MalformedDOIException     on malformed DOI (e.g., 9.123/2432)
+     * @throws IndexOutOfBoundsException if offset and length do not describe a slice of the buffer
+     */
+    public static DOI create(char[] buffer, int offset, int length) throws MalformedDOIException {
+        if (offset < 0 || length < 0 || offset > buffer.length - length) {
+            throw new IndexOutOfBoundsException("slice [" + offset + "," + (offset + length) + ") out of bounds [0," + buffer.length + ")");
+        }
+        return DOIParser.create(CharBuffer.wrap(buffer), offset, offset + length);
+    }
+
+    /**
+     * Creates a DOI from commonly used DOI presentations (see {@link #create(String)}) contained in a slice of a UTF-8 encoded byte array.
+     *
+     * @param utf8   UTF-8 encoded bytes
+     * @param offset index of the first byte of the doi
+     * @param length number of bytes of the doi
+     * @return a well-formed DOI
+     * @throws MalformedDOIException     on malformed DOI (e.g., 9.123/2432)
+     * @throws IndexOutOfBoundsException if offset and length do not describe a slice of the byte array
+     */
+    public static DOI create(byte[] utf8, int offset, int length) throws MalformedDOIException {
+        return create(ByteBuffer.wrap(utf8, offset, length));
+    }
+
+    /**
+     * Creates a DOI from commonly used DOI presentations (see {@link #create(String)}) contained in the remaining bytes
+     * of a UTF-8 encoded buffer. The position of the buffer is not changed.
+     *
+     * @param utf8 UTF-8 encoded bytes, heap or direct
+     * @return a well-formed DOI
+     * @throws MalformedDOIException on malformed DOI (e.g., 9.123/2432)
+     */
+    public static DOI create(ByteBuffer utf8) throws MalformedDOIException {
+        return DOIParser.createUTF8(utf8);
+    }
+
+    /**
+     * Same as {@link #create(CharSequence)}, but returns null instead of throwing an exception on malformed input.
+     *
+     * @param doiChars characters containing a doi
+     * @return a well-formed DOI, or null if none was found
+     */
+    public static DOI tryCreate(CharSequence doiChars) {
+        return doiChars == null ? null : parse(doiChars).getDOI();
+    }
+
+    /**
+     * Parses commonly used DOI presentations (see {@link #create(String)}) without throwing exceptions, for instance to
+     * validate large numbers of candidates of which many are expected to be malformed.
+     *
+     * @param doiChars characters containing a doi
+     * @return result with either a well-formed DOI, or the reason why the characters do not contain a well-formed DOI
+     */
+    public static DOIParseResult parse(CharSequence doiChars) {
+        return DOIParser.parse(doiChars, 0, doiChars.length());
+    }
+
+    /**
+     * Parses "almost DOIs" (see {@link DOIRepair}) leniently, like messy input from reference lists, spreadsheets or
+     * older DOI URLs often contains, repairing them where {@link #parse(CharSequence)} would reject them (e.g.,
+     * DOI 10.123/456, doi.org/10.123/456 or http://dx.doi.org/10.123/&lt;456&gt;), and reporting the repairs applied.
+     * <p>
+     * Some repairs change DOIs that {@link #parse(CharSequence)} accepts (e.g., trailing periods are removed from
+     * 10.123/456.), so use this for input known to be messy only.
+     *
+     * @param doiChars characters containing an (almost) DOI
+     * @return result with either a well-formed DOI, or the reason why the repaired characters do not contain a
+     * well-formed DOI, and the repairs applied
+     */
+    public static DOIRepairResult repair(CharSequence doiChars) {
+        return DOIRepairer.repair(doiChars);
     }
 
     /**
@@ -216,34 +455,89 @@ public final class DOI implements Serializable {
      * @throws MalformedDOIException on malformed DOI (e.g., 9.123/2432)
      */
     public static DOI create(URI doiURI) throws MalformedDOIException {
-        String path = doiURI == null ? "" : doiURI.getPath();
-        int i = path.indexOf('/');
-        if (i != 0) {
-            throw new MalformedDOIException("path [" + path + "] does not start with [/]");
+        String path = doiURI == null || doiURI.getPath() == null ? "" : doiURI.getPath();
+        DOIParseResult result = DOIParser.parseURIPath(path);
+        if (result.getReason() == MalformedDOIReason.MALFORMED_URI_PATH) {
+            throw new MalformedDOIException(MalformedDOIReason.MALFORMED_URI_PATH, path);
         }
-        return getDOI(path.substring(1));
+        return DOIParser.valueOf(result, path, 1, path.length());
     }
 
-    private static DOI getDOI(String doiCandidate) throws MalformedDOIException {
-        if (!doiCandidate.startsWith(DIRECTORY_INDICATOR_PREFIX)) {
-            throw new MalformedDOIException("expected directory indicator [10.] in [" + doiCandidate + "]");
+    @Override
+    public String toString() {
+        String s = doiString;
+        if (s == null) {
+            s = DIRECTORY_INDICATOR_PREFIX + registrantCode + "/" + suffix;
+            doiString = s;
         }
+        return s;
+    }
 
-        int s = doiCandidate.indexOf('/');
-        if (s < DIRECTORY_INDICATOR_PREFIX.length()) {
-            throw new MalformedDOIException("missing registrant code in [" + doiCandidate + "]");
-        }
-        if (s < DIRECTORY_INDICATOR_PREFIX.length() + 1) {
-            throw new MalformedDOIException("missing suffix in [" + doiCandidate + "]");
-        }
-        String registrantCode = doiCandidate.substring(DIRECTORY_INDICATOR_PREFIX.length(), s);
-        String suffix = doiCandidate.substring(s + 1);
-        return new DOI(registrantCode, suffix);
+    /**
+     * Appends the "pure" DOI (see {@link #toString()}) to the provided appendable without creating intermediate strings.
+     *
+     * @param appendable appendable (e.g., a {@link java.io.Writer}) to append to
+     * @return the provided appendable
+     * @throws IOException on failure to append
+     */
+
+    public Appendable appendTo(Appendable appendable) throws IOException {
+        String s = doiString;
+        return s == null
+                ? appendable.append(DIRECTORY_INDICATOR_PREFIX).append(registrantCode).append('/').append(suffix)
+                : appendable.append(s);
     }
 
-    @Override
-    public String toString() {
-        return String.format("%s.%s/%s", DIRECTORY_INDICATOR, registrantCode, suffix);
+    /**
+     * Same as {@link #appendTo(Appendable)}, without checked exceptions.
+     *
+     * @param builder builder to append to
+     * @return the provided builder
+     */
+
+    public StringBuilder appendTo(StringBuilder builder) {
+        String s = doiString;
+        return s == null
+                ? builder.append(DIRECTORY_INDICATOR_PREFIX).append(registrantCode).append('/').append(suffix)
+                : builder.append(s);
+    }
+
+    /**
+     * Writes the DOI in the compact binary encoding of {@link DOICodec}.
+     *
+     * @param output output to write to
+     * @throws IOException on failure to write
+     */
+
+    public void writeTo(DataOutput output) throws IOException {
+        DOICodec.getDefault().write(this, output);
+    }
+
+    /**
+     * Reads a DOI written by {@link #writeTo(DataOutput)}.
+     *
+     * @param input input to read from
+     * @return DOI read
+     * @throws IOException on failure to read, or on input that does not contain a DOI
+     */
+
+    public static DOI readFrom(DataInput input) throws IOException {
+        return DOICodec.getDefault().read(input);
+    }
+
+    private Object writeReplace() throws ObjectStreamException {
+        return new DOICodec.SerializedDOI(this);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        // DOIs serialized by earlier releases
+        in.defaultReadObject();
+        try {
+            validate(registrantCode, "registrant code");
+            validate(suffix, "suffix");
+        } catch (RuntimeException e) {
+            throw new InvalidObjectException(e.getMessage());
+        }
     }
 
     /**
@@ -258,15 +552,62 @@ public final class DOI implements Serializable {
         return PRINTABLE_DOI_PREFIX.contains(prefixLower) || DOI_URLS.contains(prefixLower);
     }
 
+    /**
+     * DOI names are case-insensitive, so two DOIs are equal if their registrant codes and suffixes are equal ignoring case.
+     */
+
     @Override
     public boolean equals(Object other) {
-        return (other instanceof DOI)
-                && (hashCode() - other.hashCode() == 0);
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof DOI)) {
+            return false;
+        }
+        DOI that = (DOI) other;
+        return registrantCode.equalsIgnoreCase(that.registrantCode)
+                && suffix.equalsIgnoreCase(that.suffix);
     }
 
+    /**
+     * @return case-insensitive hash of the DOI, computed once without creating intermediate strings.
+     */
+
     @Override
     public int hashCode() {
-        return toString().toLowerCase().hashCode();
+        int h = hash;
+        if (h == 0) {
+            h = foldedHash(DIRECTORY_INDICATOR_PREFIX, 0);
+            h = foldedHash(registrantCode, h);
+            h = 31 * h + '/';
+            h = foldedHash(suffix, h);
+            hash = h;
+        }
+        return h;
+    }
+
+    private static int foldedHash(String value, int h) {
+        for (int i = 0; i < value.length(); ) {
+            int codePoint = value.codePointAt(i);
+            int folded = foldCase(codePoint);
+            if (Character.isBmpCodePoint(folded)) {
+                h = 31 * h + folded;
+            } else {
+                h = 31 * h + Character.highSurrogate(folded);
+                h = 31 * h + Character.lowSurrogate(folded);
+            }
+            i += Character.charCount(codePoint);
+        }
+        return h;
+    }
+
+    /**
+     * Folds a code point so that two code points fold to the same value if, and only if,
+     * they are considered equal by {@link String#equalsIgnoreCase(String)}.
+     */
+
+    static int foldCase(int codePoint) {
+        return Character.toLowerCase(Character.toUpperCase(codePoint));
     }
 
 }
@@ -0,0 +1,419 @@
+package org.globalbioticinteractions.doi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Normalizes large files of DOI strings, one per line, using multiple threads.
+ * <p>
+ * Lines are read in large chunks from a channel, parsed in batches by an {@link ExecutorService} using the same rules
+ * as {@link DOI#create(String)}, and written in input order: well-formed DOIs to the output in the requested
+ * {@link Format}, malformed lines as-is to the rejects. Output is identical to parsing the lines one by one.
+ * <p>
+ * Also available from the command line, see {@link #main(String[])}.
+ */
+
+public final class DOIBatchNormalizer {
+
+    public enum Format {
+        /**
+         * e.g., 10.123/456
+         */
+        DOI,
+        /**
+         * e.g., doi:10.123/456
+         */
+        PRINTABLE,
+        /**
+         * e.g., https://doi.org/10.123/456
+         */
+        URI
+    }
+
+    static final int DEFAULT_BATCH_SIZE = 1024 * 1024;
+
+    private static final byte NEWLINE = '\n';
+
+    private final ExecutorService executor;
+    private final Format format;
+    private final int batchSize;
+    private final int maxBatchesInFlight;
+
+    /**
+     * @param executor executor to parse batches of lines with, not shut down by the normalizer
+     * @param format   format of normalized DOIs
+     */
+
+    public DOIBatchNormalizer(ExecutorService executor, Format format) {
+        this(executor, format, DEFAULT_BATCH_SIZE, 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param executor           executor to parse batches of lines with, not shut down by the normalizer
+     * @param format             format of normalized DOIs
+     * @param batchSize          approximate number of bytes per batch
+     * @param maxBatchesInFlight maximum number of batches read but not yet written, limits memory use
+     */
+
+    public DOIBatchNormalizer(ExecutorService executor, Format format, int batchSize, int maxBatchesInFlight) {
+        if (batchSize < 1 || maxBatchesInFlight < 1) {
+            throw new IllegalArgumentException("batch size and batches in flight must be positive");
+        }
+        this.executor = executor;
+        this.format = format;
+        this.batchSize = batchSize;
+        this.maxBatchesInFlight = maxBatchesInFlight;
+    }
+
+    /**
+     * @param input   file with one DOI string per line, UTF-8 encoded
+     * @param output  file to write normalized DOIs to, one per line
+     * @param rejects file to write malformed lines to
+     * @return summary of the normalization
+     * @throws IOException on failure to read or write
+     */
+
+    public Summary normalize(File input, File output, File rejects) throws IOException {
+        FileInputStream in = new FileInputStream(input);
+        try {
+            FileOutputStream out = new FileOutputStream(output);
+            try {
+                FileOutputStream rejected = new FileOutputStream(rejects);
+                try {
+                    return normalize(in.getChannel(), out.getChannel(), rejected.getChannel());
+                } finally {
+                    rejected.close();
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @param input   channel with one DOI string per line, UTF-8 encoded
+     * @param output  channel to write normalized DOIs to, one per line
+     * @param rejects channel to write malformed lines to
+     * @return summary of the normalization
+     * @throws IOException on failure to read or write
+     */
+
+    public Summary normalize(ReadableByteChannel input, WritableByteChannel output, WritableByteChannel rejects) throws IOException {
+        long start = System.nanoTime();
+        Summary summary = new Summary();
+        Queue<Future<Batch>> inFlight = new ArrayDeque<Future<Batch>>();
+        ByteBuffer buffer = ByteBuffer.allocate(batchSize);
+        boolean eof = false;
+        while (!eof) {
+            eof = input.read(buffer) < 0;
+            if (!eof && buffer.hasRemaining()) {
+                continue;
+            }
+            int end = eof ? buffer.position() : lastIndexOf(buffer, NEWLINE) + 1;
+            if (end == 0) {
+                // line longer than buffer
+                buffer = grow(buffer);
+                continue;
+            }
+            byte[] chunk = Arrays.copyOf(buffer.array(), end);
+            buffer = carryOver(buffer, end);
+            if (chunk.length > 0) {
+                if (inFlight.size() >= maxBatchesInFlight) {
+                    write(inFlight.remove(), output, rejects, summary);
+                }
+                inFlight.add(executor.submit(new BatchTask(chunk, format)));
+            }
+        }
+        while (!inFlight.isEmpty()) {
+            write(inFlight.remove(), output, rejects, summary);
+        }
+        summary.elapsedNanos = System.nanoTime() - start;
+        return summary;
+    }
+
+    private static ByteBuffer carryOver(ByteBuffer buffer, int end) {
+        ByteBuffer next = ByteBuffer.allocate(buffer.capacity());
+        next.put(buffer.array(), end, buffer.position() - end);
+        return next;
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer) {
+        ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+
+    private static int lastIndexOf(ByteBuffer buffer, byte b) {
+        byte[] bytes = buffer.array();
+        for (int i = buffer.position() - 1; i >= 0; i--) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void write(Future<Batch> future, WritableByteChannel output, WritableByteChannel rejects, Summary summary) throws IOException {
+        Batch batch;
+        try {
+            batch = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while normalizing dois", e);
+        } catch (ExecutionException e) {
+            throw new IOException("failed to normalize dois", e.getCause());
+        }
+        writeFully(output, batch.output);
+        writeFully(rejects, batch.rejects);
+        summary.add(batch);
+    }
+
+    private static void writeFully(WritableByteChannel channel, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static final class Batch {
+        private final byte[] output;
+        private final byte[] rejects;
+        private final long[] rejectedByReason;
+        private final long lines;
+
+        Batch(byte[] output, byte[] rejects, long[] rejectedByReason, long lines) {
+            this.output = output;
+            this.rejects = rejects;
+            this.rejectedByReason = rejectedByReason;
+            this.lines = lines;
+        }
+    }
+
+    private static final class BatchTask implements Callable<Batch> {
+        private final byte[] chunk;
+        private final Format format;
+
+        BatchTask(byte[] chunk, Format format) {
+            this.chunk = chunk;
+            this.format = format;
+        }
+
+        @Override
+        public Batch call() {
+            String text = new String(chunk, StandardCharsets.UTF_8);
+            StringBuilder output = new StringBuilder(text.length() + text.length() / 4);
+            ByteArrayOutputStream rejects = new ByteArrayOutputStream();
+            long[] rejectedByReason = new long[MalformedDOIReason.values().length];
+            long lines = 0;
+            int lineStart = 0;
+            // line breaks are ASCII, so lines of the decoded text and of the chunk correspond one to one
+            int byteLineStart = 0;
+            while (lineStart < text.length()) {
+                int newline = text.indexOf('\n', lineStart);
+                int next = newline < 0 ? text.length() : newline + 1;
+                int lineEnd = newline < 0 ? text.length() : newline;
+                if (lineEnd > lineStart && text.charAt(lineEnd - 1) == '\r') {
+                    lineEnd--;
+                }
+                int byteNewline = indexOf(chunk, NEWLINE, byteLineStart);
+                int byteNext = byteNewline < 0 ? chunk.length : byteNewline + 1;
+                DOIParseResult result = DOIParser.parse(text, lineStart, lineEnd);
+                if (result.isValid()) {
+                    append(output, result.getDOI(), format).append('\n');
+                } else {
+                    rejectedByReason[result.getReason().ordinal()]++;
+                    // copied from the chunk, so that lines that are not valid UTF-8 are rejected as-is
+                    int byteLineEnd = byteNewline < 0 ? chunk.length : byteNewline;
+                    if (byteLineEnd > byteLineStart && chunk[byteLineEnd - 1] == '\r') {
+                        byteLineEnd--;
+                    }
+                    rejects.write(chunk, byteLineStart, byteLineEnd - byteLineStart);
+                    rejects.write(NEWLINE);
+                }
+                lines++;
+                lineStart = next;
+                byteLineStart = byteNext;
+            }
+            return new Batch(output.toString().getBytes(StandardCharsets.UTF_8),
+                    rejects.toByteArray(),
+                    rejectedByReason,
+                    lines);
+        }
+
+        private static int indexOf(byte[] bytes, byte b, int start) {
+            for (int i = start; i < bytes.length; i++) {
+                if (bytes[i] == b) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static StringBuilder append(StringBuilder builder, DOI doi, Format format) {
+            switch (format) {
+                case PRINTABLE:
+                    return doi.appendPrintableTo(builder);
+                case URI:
+                    return doi.appendURITo(builder);
+                default:
+                    return doi.appendTo(builder);
+            }
+        }
+    }
+
+    /**
+     * Line and error counts of a normalization run.
+     */
+
+    public static final class Summary {
+        private long lines;
+        private final long[] rejectedByReason = new long[MalformedDOIReason.values().length];
+        private long elapsedNanos;
+
+        private void add(Batch batch) {
+            lines += batch.lines;
+            for (int i = 0; i < rejectedByReason.length; i++) {
+                rejectedByReason[i] += batch.rejectedByReason[i];
+            }
+        }
+
+        /**
+         * @return number of lines read
+         */
+
+        public long getLines() {
+            return lines;
+        }
+
+        /**
+         * @return number of lines with well-formed DOIs
+         */
+
+        public long getAccepted() {
+            return lines - getRejected();
+        }
+
+        /**
+         * @return number of malformed lines
+         */
+
+        public long getRejected() {
+            long rejected = 0;
+            for (long count : rejectedByReason) {
+                rejected += count;
+            }
+            return rejected;
+        }
+
+        /**
+         * @param reason reason for rejecting lines
+         * @return number of lines rejected for given reason
+         */
+
+        public long getRejected(MalformedDOIReason reason) {
+            return rejectedByReason[reason.ordinal()];
+        }
+
+        /**
+         * @return elapsed time in nanoseconds
+         */
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * @return lines processed per second
+         */
+
+        public double getLinesPerSecond() {
+            return elapsedNanos == 0 ? 0 : lines * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder summary = new StringBuilder();
+            summary.append(String.format(Locale.ROOT, "processed [%d] lines in [%.3f] s ([%.0f] lines/s): accepted [%d], rejected [%d]",
+                    lines, elapsedNanos / 1e9, getLinesPerSecond(), getAccepted(), getRejected()));
+            for (MalformedDOIReason reason : MalformedDOIReason.values()) {
+                if (getRejected(reason) > 0) {
+                    summary.append(", ").append(reason).append(" [").append(getRejected(reason)).append("]");
+                }
+            }
+            return summary.toString();
+        }
+    }
+
+    /**
+     * Normalizes a file of DOI strings from the command line, printing a summary to stderr.
+     * <p>
+     * Usage: <code>java -jar doi4j.jar [--format doi|printable|uri] [--threads n] input output rejects</code>
+     *
+     * @param args command line arguments
+     * @throws IOException on failure to read or write files
+     */
+
+    public static void main(String[] args) throws IOException {
+        int status = run(args, System.err);
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    static int run(String[] args, PrintStream err) throws IOException {
+        Format format = Format.DOI;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int i = 0;
+        try {
+            for (; i < args.length && args[i].startsWith("--"); i += 2) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("missing value for [" + args[i] + "]");
+                } else if ("--format".equals(args[i])) {
+                    format = Format.valueOf(args[i + 1].toUpperCase(Locale.ROOT));
+                } else if ("--threads".equals(args[i])) {
+                    threads = Integer.parseInt(args[i + 1]);
+                } else {
+                    throw new IllegalArgumentException("unknown option [" + args[i] + "]");
+                }
+            }
+            if (args.length - i != 3) {
+                throw new IllegalArgumentException("expected input, output and rejects files");
+            }
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println("usage: java -jar doi4j.jar [--format doi|printable|uri] [--threads n] input output rejects");
+            return 1;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            Summary summary = new DOIBatchNormalizer(executor, format)
+                    .normalize(new File(args[i]), new File(args[i + 1]), new File(args[i + 2]));
+            err.println(summary);
+            return 0;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
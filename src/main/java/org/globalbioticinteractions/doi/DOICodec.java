@@ -0,0 +1,421 @@
+package org.globalbioticinteractions.doi;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.ObjectStreamException;
+import java.io.StreamCorruptedException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of DOIs, for caches, shuffles and other places where many DOIs are written and read back.
+ * <p>
+ * A DOI is encoded as its registrant code followed by its suffix, each as a variable length integer byte count
+ * followed by UTF-8 bytes. Unpaired surrogates, which cannot be represented in UTF-8, are encoded like other
+ * characters of the basic multilingual plane, so that every DOI survives a round trip unchanged.
+ * <p>
+ * Optionally, a codec is created with a dictionary of frequently used registrant codes (e.g., 1371 for PLOS), which
+ * are then encoded by their position in the dictionary instead. Encoded DOIs can only be decoded using a codec with
+ * the same dictionary.
+ * <p>
+ * Codecs are immutable and thread-safe.
+ */
+
+public final class DOICodec {
+
+    private static final DOICodec DEFAULT = new DOICodec();
+
+    // maximum number of bytes of an encoded registrant code or suffix, to detect corrupt input early
+    static final int MAX_ENCODED_LENGTH = 1 << 20;
+
+    private final String[] registrantCodes;
+    private final Map<String, Integer> registrantCodeIds;
+
+    /**
+     * Creates a codec without a registrant code dictionary.
+     */
+
+    public DOICodec() {
+        this.registrantCodes = new String[0];
+        this.registrantCodeIds = new HashMap<String, Integer>();
+    }
+
+    /**
+     * @param registrantCodes dictionary of registrant codes to encode by their position, the same list is needed to decode
+     * @throws IllegalArgumentException on empty or duplicate registrant codes
+     */
+
+    public DOICodec(List<String> registrantCodes) {
+        this.registrantCodes = registrantCodes.toArray(new String[registrantCodes.size()]);
+        this.registrantCodeIds = new HashMap<String, Integer>(registrantCodes.size() * 2);
+        for (int i = 0; i < this.registrantCodes.length; i++) {
+            String registrantCode = this.registrantCodes[i];
+            if (registrantCode == null || registrantCode.trim().length() < 1) {
+                throw new IllegalArgumentException("expected non-empty registrant code at [" + i + "]");
+            }
+            if (registrantCodeIds.put(registrantCode, i) != null) {
+                throw new IllegalArgumentException("duplicate registrant code [" + registrantCode + "]");
+            }
+        }
+    }
+
+    static DOICodec getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @param doi DOI to encode
+     * @return number of bytes of the encoded DOI
+     */
+
+    public int encodedLength(DOI doi) {
+        int length = 0;
+        Integer registrantCodeId = registrantCodeIds.get(doi.getRegistrantCode());
+        if (registrantCodeId == null) {
+            int registrantCodeLength = utf8Length(doi.getRegistrantCode());
+            length += varIntLength(registrantCodeLength << 1) + registrantCodeLength;
+        } else {
+            length += varIntLength(registrantCodeId << 1 | 1);
+        }
+        int suffixLength = utf8Length(doi.getSuffix());
+        return length + varIntLength(suffixLength) + suffixLength;
+    }
+
+    /**
+     * @param doi    DOI to write
+     * @param output output to write the encoded DOI to
+     * @throws IOException on failure to write
+     */
+
+    public void write(DOI doi, DataOutput output) throws IOException {
+        byte[] encoded = new byte[encodedLength(doi)];
+        encode(doi, ByteBuffer.wrap(encoded));
+        output.write(encoded);
+    }
+
+    /**
+     * @param input input to read an encoded DOI from
+     * @return decoded DOI
+     * @throws java.io.EOFException      if the input ends before the DOI does
+     * @throws StreamCorruptedException on input that does not contain an encoded DOI
+     * @throws IOException               on failure to read
+     */
+
+    public DOI read(DataInput input) throws IOException {
+        try {
+            int header = readVarInt(input);
+            String registrantCode;
+            if ((header & 1) == 0) {
+                registrantCode = readString(input, header >>> 1);
+            } else {
+                registrantCode = registrantCode(header >>> 1);
+            }
+            String suffix = readString(input, readVarInt(input));
+            return new DOI(registrantCode, suffix);
+        } catch (IllegalArgumentException e) {
+            throw corrupted(e);
+        }
+    }
+
+    /**
+     * Writes an encoded DOI at the position of the buffer, advancing its position.
+     *
+     * @param doi    DOI to encode
+     * @param buffer buffer to write the encoded DOI to
+     * @return number of bytes written
+     * @throws BufferOverflowException if the remaining bytes of the buffer do not fit the encoded DOI,
+     *                                 in which case nothing is written
+     */
+
+    public int encode(DOI doi, ByteBuffer buffer) {
+        int length = encodedLength(doi);
+        if (buffer.remaining() < length) {
+            throw new BufferOverflowException();
+        }
+        put(doi, buffer);
+        return length;
+    }
+
+    private void put(DOI doi, ByteBuffer buffer) {
+        Integer registrantCodeId = registrantCodeIds.get(doi.getRegistrantCode());
+        if (registrantCodeId == null) {
+            putVarInt(buffer, utf8Length(doi.getRegistrantCode()) << 1);
+            putString(buffer, doi.getRegistrantCode());
+        } else {
+            putVarInt(buffer, registrantCodeId << 1 | 1);
+        }
+        putVarInt(buffer, utf8Length(doi.getSuffix()));
+        putString(buffer, doi.getSuffix());
+    }
+
+    /**
+     * Writes as many encoded DOIs as fit in the remaining bytes of the buffer, so that large collections of DOIs can be
+     * written in chunks: flush the buffer and continue from the returned index.
+     *
+     * @param dois   DOIs to encode
+     * @param from   index of the first DOI to encode
+     * @param buffer buffer to write encoded DOIs to
+     * @return index of the first DOI that was not encoded, equal to the number of DOIs if all were encoded
+     */
+
+    public int encodeAll(List<DOI> dois, int from, ByteBuffer buffer) {
+        int i = from;
+        for (; i < dois.size(); i++) {
+            DOI doi = dois.get(i);
+            if (buffer.remaining() < encodedLength(doi)) {
+                break;
+            }
+            put(doi, buffer);
+        }
+        return i;
+    }
+
+    /**
+     * Reads an encoded DOI at the position of the buffer, advancing its position.
+     *
+     * @param buffer buffer to read an encoded DOI from
+     * @return decoded DOI
+     * @throws BufferUnderflowException if the buffer ends before the DOI does, in which case the position is not changed
+     * @throws IllegalArgumentException on bytes that do not contain an encoded DOI
+     */
+
+    public DOI decode(ByteBuffer buffer) {
+        int start = buffer.position();
+        try {
+            int header = getVarInt(buffer);
+            String registrantCode;
+            if ((header & 1) == 0) {
+                registrantCode = getString(buffer, header >>> 1);
+            } else {
+                registrantCode = registrantCode(header >>> 1);
+            }
+            String suffix = getString(buffer, getVarInt(buffer));
+            return new DOI(registrantCode, suffix);
+        } catch (BufferUnderflowException e) {
+            buffer.position(start);
+            throw e;
+        }
+    }
+
+    /**
+     * Reads all complete encoded DOIs from the remaining bytes of the buffer. Bytes of a trailing, incomplete DOI are
+     * left in the buffer, so that a stream of DOIs can be read in chunks: compact the buffer, fill it and continue.
+     *
+     * @param buffer buffer to read encoded DOIs from
+     * @param dois   collection to add decoded DOIs to
+     * @return number of decoded DOIs
+     * @throws IllegalArgumentException on bytes that do not contain encoded DOIs
+     */
+
+    public int decodeAll(ByteBuffer buffer, Collection<? super DOI> dois) {
+        int count = 0;
+        while (buffer.hasRemaining()) {
+            try {
+                dois.add(decode(buffer));
+            } catch (BufferUnderflowException e) {
+                break;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    private String registrantCode(int id) {
+        if (id >= registrantCodes.length) {
+            throw new IllegalArgumentException("unknown registrant code id [" + id + "]");
+        }
+        return registrantCodes[id];
+    }
+
+    private static StreamCorruptedException corrupted(IllegalArgumentException e) {
+        StreamCorruptedException corrupted = new StreamCorruptedException(e.getMessage());
+        corrupted.initCause(e);
+        return corrupted;
+    }
+
+    private static int checkLength(int length) {
+        if (length < 0 || length > MAX_ENCODED_LENGTH) {
+            throw new IllegalArgumentException("invalid length [" + length + "]");
+        }
+        return length;
+    }
+
+    static int varIntLength(int value) {
+        int length = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    private static void putVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int getVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("invalid variable length integer");
+    }
+
+    private static int readVarInt(DataInput input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = input.readByte();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("invalid variable length integer");
+    }
+
+    private static String readString(DataInput input, int length) throws IOException {
+        byte[] bytes = new byte[checkLength(length)];
+        input.readFully(bytes);
+        return decodeString(bytes, 0, length);
+    }
+
+    private static String getString(ByteBuffer buffer, int length) {
+        checkLength(length);
+        if (buffer.remaining() < length) {
+            throw new BufferUnderflowException();
+        }
+        String value;
+        if (buffer.hasArray()) {
+            value = decodeString(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            value = decodeString(bytes, 0, length);
+        }
+        return value;
+    }
+
+    static int utf8Length(String value) {
+        int length = value.length();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    length += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    // four bytes for two chars
+                    length += 2;
+                    i++;
+                } else {
+                    length += 2;
+                }
+            }
+        }
+        return length;
+    }
+
+    static void putString(ByteBuffer buffer, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | c >> 6));
+                buffer.put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xF0 | codePoint >> 18));
+                buffer.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+                buffer.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | codePoint & 0x3F));
+            } else {
+                buffer.put((byte) (0xE0 | c >> 12));
+                buffer.put((byte) (0x80 | c >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    static String decodeString(byte[] bytes, int offset, int length) {
+        char[] chars = new char[length];
+        int count = 0;
+        int end = offset + length;
+        for (int i = offset; i < end; ) {
+            int b = bytes[i++];
+            if (b >= 0) {
+                chars[count++] = (char) b;
+            } else if ((b & 0xE0) == 0xC0 && i < end) {
+                chars[count++] = (char) ((b & 0x1F) << 6 | continuation(bytes[i++]));
+            } else if ((b & 0xF0) == 0xE0 && i + 1 < end) {
+                chars[count++] = (char) ((b & 0x0F) << 12 | continuation(bytes[i++]) << 6 | continuation(bytes[i++]));
+            } else if ((b & 0xF8) == 0xF0 && i + 2 < end) {
+                int codePoint = (b & 0x07) << 18 | continuation(bytes[i++]) << 12 | continuation(bytes[i++]) << 6 | continuation(bytes[i++]);
+                if (!Character.isSupplementaryCodePoint(codePoint) || !Character.isValidCodePoint(codePoint)) {
+                    throw new IllegalArgumentException("invalid code point [" + codePoint + "]");
+                }
+                chars[count++] = Character.highSurrogate(codePoint);
+                chars[count++] = Character.lowSurrogate(codePoint);
+            } else {
+                throw new IllegalArgumentException("invalid UTF-8 sequence");
+            }
+        }
+        return new String(chars, 0, count);
+    }
+
+    private static int continuation(byte b) {
+        if ((b & 0xC0) != 0x80) {
+            throw new IllegalArgumentException("invalid UTF-8 sequence");
+        }
+        return b & 0x3F;
+    }
+
+    /**
+     * Serialized form of {@link DOI}, written using the default codec instead of default Java serialization.
+     */
+
+    static final class SerializedDOI implements Externalizable {
+        private static final long serialVersionUID = 1L;
+
+        private DOI doi;
+
+        public SerializedDOI() {
+        }
+
+        SerializedDOI(DOI doi) {
+            this.doi = doi;
+        }
+
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException {
+            DEFAULT.write(doi, out);
+        }
+
+        @Override
+        public void readExternal(ObjectInput in) throws IOException {
+            doi = DEFAULT.read(in);
+        }
+
+        private Object readResolve() throws ObjectStreamException {
+            return doi;
+        }
+    }
+
+}
@@ -0,0 +1,266 @@
+package org.globalbioticinteractions.doi;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Extracts DOIs from free text like citation strings, abstracts or HTML/XML reference lists.
+ * <p>
+ * Finds bare DOIs (e.g., 10.123/456), printable DOIs (e.g., doi:10.123/456) and DOI URLs
+ * (e.g., https://doi.org/10.123/456%23789 or http://dx.doi.org/10.123/456) in a single forward scan without regular expressions.
+ * A candidate starts at a directory indicator "10." that is not preceded by a letter, digit or period, followed by a
+ * numeric registrant code (e.g., 1000 or 1000.10) and a "/". The suffix ends at whitespace, quotes, control characters or
+ * markup (e.g., &lt;/a&gt;), after which trailing punctuation and unbalanced closing brackets are trimmed. Candidates preceded by "doi.org/" are
+ * percent-decoded like {@link DOI#create(String)} does for DOI URLs.
+ * <p>
+ * Input is read in chunks, so arbitrarily large inputs can be processed with a small, fixed amount of memory.
+ * Instances are not thread-safe.
+ */
+
+public final class DOIExtractor {
+
+    private static final String URL_PREFIX = "doi.org/";
+    private static final int LOOKBEHIND = URL_PREFIX.length();
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    static final int MAX_DOI_LENGTH = 2048;
+    private static final int TOO_LONG = -1;
+
+    private final Reader reader;
+    private char[] buffer;
+    private CharSequence text;
+    private int pos;
+    private int limit;
+    private boolean eof;
+
+    /**
+     * @param reader text to extract DOIs from, read on demand. Closing the reader is up to the caller.
+     */
+
+    public DOIExtractor(Reader reader) {
+        this(reader, DEFAULT_BUFFER_SIZE);
+    }
+
+    DOIExtractor(Reader reader, int bufferSize) {
+        this.reader = reader;
+        this.buffer = new char[bufferSize];
+        this.text = CharBuffer.wrap(buffer);
+    }
+
+    /**
+     * @param text text to extract DOIs from
+     */
+
+    public DOIExtractor(CharSequence text) {
+        this.reader = null;
+        this.text = text;
+        this.limit = text.length();
+        this.eof = true;
+    }
+
+    /**
+     * @param text text to extract DOIs from
+     * @return DOIs in order of appearance, including duplicates
+     */
+
+    public static List<DOI> extractAll(CharSequence text) {
+        List<DOI> dois = new ArrayList<DOI>();
+        DOIExtractor extractor = new DOIExtractor(text);
+        try {
+            for (DOI doi = extractor.next(); doi != null; doi = extractor.next()) {
+                dois.add(doi);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("unexpected read failure on in-memory text", e);
+        }
+        return dois;
+    }
+
+    /**
+     * @return next DOI found in the text, or null if no more DOIs are found
+     * @throws IOException on failure to read text
+     */
+
+    public DOI next() throws IOException {
+        while (findDirectoryIndicator()) {
+            int length = candidateLength();
+            if (length > 0) {
+                DOIParseResult result = parseCandidate(length);
+                pos += length;
+                if (result.isValid()) {
+                    return result.getDOI();
+                }
+            } else if (length == TOO_LONG) {
+                skipCandidate();
+            } else {
+                pos += DOIParser.DIRECTORY_INDICATOR_PREFIX.length();
+            }
+        }
+        return null;
+    }
+
+    private DOIParseResult parseCandidate(int length) {
+        DOIParseResult result = null;
+        if (pos >= LOOKBEHIND && regionMatchesIgnoreCase(pos - LOOKBEHIND, URL_PREFIX)) {
+            result = DOIParser.parseEscapedDOI(text, pos, pos + length);
+        }
+        if (result == null || result.getReason() == MalformedDOIReason.BAD_ESCAPE) {
+            // also accept DOI URLs with unescaped characters, as often found in (older) reference lists
+            result = DOIParser.parseDOI(text, pos, pos + length);
+        }
+        return result;
+    }
+
+    private boolean findDirectoryIndicator() throws IOException {
+        while (ensure(2)) {
+            if (text.charAt(pos) == '1'
+                    && text.charAt(pos + 1) == '0'
+                    && text.charAt(pos + 2) == '.'
+                    && (pos == 0 || isBoundary(text.charAt(pos - 1)))) {
+                return true;
+            }
+            pos++;
+        }
+        pos = limit;
+        return false;
+    }
+
+    /**
+     * @return length of a DOI candidate starting at a directory indicator, 0 if no candidate was found, or
+     * {@link #TOO_LONG} if the candidate is longer than {@link #MAX_DOI_LENGTH}
+     */
+
+    private int candidateLength() throws IOException {
+        int i = DOIParser.DIRECTORY_INDICATOR_PREFIX.length();
+        int registrantStart = i;
+        while (ensure(i) && (isDigit(text.charAt(pos + i)) || (i > registrantStart && text.charAt(pos + i) == '.'))) {
+            i++;
+        }
+        if (i == registrantStart || !ensure(i) || text.charAt(pos + i) != '/') {
+            return 0;
+        }
+        int suffixStart = ++i;
+        while (i < MAX_DOI_LENGTH && ensure(i) && !isTerminator(i)) {
+            i++;
+        }
+        if (i == MAX_DOI_LENGTH && ensure(i) && !isTerminator(i)) {
+            return TOO_LONG;
+        }
+        int end = trimTrailingPunctuation(suffixStart, i);
+        return end > suffixStart ? end : 0;
+    }
+
+    /**
+     * Skips a candidate that is too long to be a DOI up to its end, instead of extracting a truncated DOI from it.
+     */
+
+    private void skipCandidate() throws IOException {
+        pos += MAX_DOI_LENGTH;
+        while (ensure(0) && !isTerminator(0)) {
+            pos++;
+        }
+    }
+
+    private boolean isTerminator(int i) throws IOException {
+        char c = text.charAt(pos + i);
+        switch (c) {
+            case '"':
+            case '\'':
+            case '`':
+            case '\\':
+            case '^':
+            case '|':
+            case '{':
+            case '}':
+                return true;
+            case '<':
+                // start of markup like </a> or <br>, as opposed to SICI style suffixes like 1545-1410(2001)683<0001:sa>2.0.co;2
+                return !ensure(i + 1) || text.charAt(pos + i + 1) == '/' || Character.isLetter(text.charAt(pos + i + 1));
+            default:
+                return Character.isWhitespace(c) || Character.isSpaceChar(c) || Character.isISOControl(c);
+        }
+    }
+
+    private int trimTrailingPunctuation(int suffixStart, int end) {
+        while (end > suffixStart) {
+            char last = text.charAt(pos + end - 1);
+            if (".,;:!?".indexOf(last) >= 0) {
+                end--;
+            } else if (last == ')' && isUnbalanced(suffixStart, end, '(', ')')
+                    || last == ']' && isUnbalanced(suffixStart, end, '[', ']')
+                    || last == '>' && isUnbalanced(suffixStart, end, '<', '>')) {
+                end--;
+            } else {
+                break;
+            }
+        }
+        return end;
+    }
+
+    private boolean isUnbalanced(int start, int end, char open, char close) {
+        int depth = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(pos + i);
+            if (c == open) {
+                depth++;
+            } else if (c == close) {
+                depth--;
+            }
+        }
+        return depth < 0;
+    }
+
+    private boolean regionMatchesIgnoreCase(int start, String lowerCasePrefix) {
+        return DOIParser.startsWithIgnoreCase(text, start, limit, lowerCasePrefix);
+    }
+
+    /**
+     * Makes sure that the character at the given offset from the current position is available, reading more text if needed.
+     * Characters before the current position, except for a few needed to detect DOI URLs, may be discarded.
+     *
+     * @return false if the text ends before the offset
+     */
+
+    private boolean ensure(int offset) throws IOException {
+        while (pos + offset >= limit) {
+            if (eof) {
+                return false;
+            }
+            fill();
+        }
+        return true;
+    }
+
+    private void fill() throws IOException {
+        if (limit == buffer.length) {
+            int discard = Math.max(0, pos - LOOKBEHIND);
+            if (discard > 0) {
+                System.arraycopy(buffer, discard, buffer, 0, limit - discard);
+                limit -= discard;
+                pos -= discard;
+            } else {
+                char[] larger = new char[buffer.length * 2];
+                System.arraycopy(buffer, 0, larger, 0, limit);
+                buffer = larger;
+                text = CharBuffer.wrap(buffer);
+            }
+        }
+        int read = reader.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    private static boolean isBoundary(char c) {
+        return !Character.isLetterOrDigit(c) && c != '.';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+}
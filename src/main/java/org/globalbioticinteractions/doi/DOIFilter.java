@@ -0,0 +1,224 @@
+package org.globalbioticinteractions.doi;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter of DOIs, answering "might this DOI have been added?" without false negatives and with a
+ * configurable rate of false positives, using about 1.44 * log2(1 / falsePositiveRate) bits per DOI (e.g. 1.2 bytes
+ * per DOI at 1% false positives).
+ * <p>
+ * Like {@link DOI#equals(Object)}, the filter ignores case. Raw strings in any of the presentations accepted by
+ * {@link DOI#create(CharSequence)} are checked without creating a {@link DOI}.
+ * <p>
+ * Filters can be written to and read from byte streams, for instance to ship them between nodes, and merged with
+ * {@link #addAll(DOIFilter)}.
+ */
+
+public final class DOIFilter {
+
+    private static final int MAGIC = 0x444F4946; // DOIF
+    private static final int VERSION = 1;
+    private static final int MAX_HASH_COUNT = 32;
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    private final ThreadLocal<DOIKey> keys = new ThreadLocal<DOIKey>() {
+        @Override
+        protected DOIKey initialValue() {
+            return new DOIKey();
+        }
+    };
+
+    /**
+     * @param expectedSize      number of DOIs expected to be added
+     * @param falsePositiveRate rate of false positives once the expected number of DOIs have been added, between 0 and 1
+     */
+
+    public DOIFilter(long expectedSize, double falsePositiveRate) {
+        if (expectedSize < 0 || !(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("expected non-negative size and false positive rate between 0 and 1");
+        }
+        double bitsPerDOI = -Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        long bits = Math.max(64, (long) Math.ceil(Math.max(1, expectedSize) * bitsPerDOI));
+        if (bits > 64L * Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("filter of [" + bits + "] bits is too large");
+        }
+        this.words = new AtomicLongArray((int) ((bits + 63) / 64));
+        this.bitCount = 64L * words.length();
+        this.hashCount = Math.max(1, Math.min(MAX_HASH_COUNT, (int) Math.round(bitsPerDOI * Math.log(2))));
+    }
+
+    private DOIFilter(AtomicLongArray words, int hashCount) {
+        this.words = words;
+        this.bitCount = 64L * words.length();
+        this.hashCount = hashCount;
+    }
+
+    /**
+     * @param doi DOI to add
+     */
+
+    public void add(DOI doi) {
+        add(keys.get().set(doi));
+    }
+
+    /**
+     * @param doiChars characters containing a doi in any of the presentations accepted by {@link DOI#create(CharSequence)}
+     * @return true if the characters contained a well-formed DOI, which was added
+     */
+
+    public boolean add(CharSequence doiChars) {
+        DOIKey key = keys.get();
+        if (DOIParser.parseKey(doiChars, 0, doiChars.length(), key) != null) {
+            return false;
+        }
+        add(key);
+        return true;
+    }
+
+    /**
+     * @param doi DOI to look for
+     * @return false if the DOI was definitely not added, true if it probably was
+     */
+
+    public boolean mightContain(DOI doi) {
+        return mightContain(keys.get().set(doi));
+    }
+
+    /**
+     * @param doiChars characters containing a doi in any of the presentations accepted by {@link DOI#create(CharSequence)}
+     * @return false if the characters do not contain a well-formed DOI or the DOI was definitely not added,
+     * true if it probably was
+     */
+
+    public boolean mightContain(CharSequence doiChars) {
+        DOIKey key = keys.get();
+        return DOIParser.parseKey(doiChars, 0, doiChars.length(), key) == null && mightContain(key);
+    }
+
+    /**
+     * Adds the DOIs of another filter, so that this filter might contain any DOI added to either filter.
+     *
+     * @param other filter created with the same size and false positive rate
+     * @throws IllegalArgumentException if the filters differ in number of bits or hash functions
+     */
+
+    public void addAll(DOIFilter other) {
+        if (other.bitCount != bitCount || other.hashCount != hashCount) {
+            throw new IllegalArgumentException("cannot merge filters of different size or hash count");
+        }
+        for (int i = 0; i < words.length(); i++) {
+            long bits = other.words.get(i);
+            if (bits != 0) {
+                setBits(i, bits);
+            }
+        }
+    }
+
+    /**
+     * @return expected rate of false positives, estimated from the fraction of bits set by the DOIs added so far
+     */
+
+    public double expectedFalsePositiveRate() {
+        long setBits = 0;
+        for (int i = 0; i < words.length(); i++) {
+            setBits += Long.bitCount(words.get(i));
+        }
+        return Math.pow((double) setBits / bitCount, hashCount);
+    }
+
+    /**
+     * @return number of bytes used for the bits of the filter
+     */
+
+    public long memoryUsage() {
+        return bitCount / 8;
+    }
+
+    /**
+     * @param output output to write the filter to
+     * @throws IOException on failure to write
+     */
+
+    public void writeTo(DataOutput output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+        output.writeByte(hashCount);
+        output.writeInt(words.length());
+        byte[] buffer = new byte[8 * 1024];
+        for (int i = 0; i < words.length(); ) {
+            int n = 0;
+            for (; n < buffer.length && i < words.length(); i++) {
+                long word = words.get(i);
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    buffer[n++] = (byte) (word >>> shift);
+                }
+            }
+            output.write(buffer, 0, n);
+        }
+    }
+
+    /**
+     * @param input input to read a filter written by {@link #writeTo(DataOutput)} from
+     * @return filter
+     * @throws IOException on failure to read, or if the input does not contain a filter
+     */
+
+    public static DOIFilter readFrom(DataInput input) throws IOException {
+        if (input.readInt() != MAGIC) {
+            throw new StreamCorruptedException("not a DOI filter");
+        }
+        int version = input.readUnsignedByte();
+        if (version != VERSION) {
+            throw new StreamCorruptedException("unsupported DOI filter version [" + version + "]");
+        }
+        int hashCount = input.readUnsignedByte();
+        int wordCount = input.readInt();
+        if (hashCount < 1 || hashCount > MAX_HASH_COUNT || wordCount < 1) {
+            throw new StreamCorruptedException("corrupt DOI filter header");
+        }
+        AtomicLongArray words = new AtomicLongArray(wordCount);
+        for (int i = 0; i < wordCount; i++) {
+            words.set(i, input.readLong());
+        }
+        return new DOIFilter(words, hashCount);
+    }
+
+    private void add(DOIKey key) {
+        // double hashing (Kirsch and Mitzenmacher), deriving all bit indexes from the 64-bit key hash
+        long hash = key.hash();
+        long delta = Long.rotateLeft(hash, 32) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = (hash & Long.MAX_VALUE) % bitCount;
+            setBits((int) (bit >>> 6), 1L << bit);
+            hash += delta;
+        }
+    }
+
+    private boolean mightContain(DOIKey key) {
+        long hash = key.hash();
+        long delta = Long.rotateLeft(hash, 32) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = (hash & Long.MAX_VALUE) % bitCount;
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+            hash += delta;
+        }
+        return true;
+    }
+
+    private void setBits(int index, long bits) {
+        long word = words.get(index);
+        while ((word & bits) != bits && !words.compareAndSet(index, word, word | bits)) {
+            word = words.get(index);
+        }
+    }
+
+}
@@ -0,0 +1,307 @@
+package org.globalbioticinteractions.doi;
+
+import java.io.IOException;
+
+/**
+ * Open addressing hash table of canonical DOI keys (see {@link DOIKey}), shared by {@link DOISet} and {@link DOIMap}.
+ * <p>
+ * Keys are copied into an arena of byte array pages, each entry taking its length as a variable length integer
+ * followed by the key bytes. Slots are longs holding the upper 24 bits of the 64-bit key hash and the arena address of
+ * the key, so that most probes for absent keys do not compare key bytes. Values, if any, are kept in a parallel array.
+ * <p>
+ * The table is split into independently locked segments, selected by the hash, so that threads inserting different
+ * DOIs rarely contend. Entries cannot be removed.
+ */
+
+final class DOIHashTable<V> {
+
+    private static final int MAX_SEGMENTS = 256;
+
+    private static final int MAX_PAGE_BITS = 20;
+    private static final int MAX_PAGE_SIZE = 1 << MAX_PAGE_BITS;
+    private static final int FIRST_PAGE_SIZE = 4096;
+
+    private static final int TAG_SHIFT = 40;
+    private static final long ADDRESS_MASK = (1L << TAG_SHIFT) - 1;
+
+    // maximum number of bytes of a key, so that an entry always fits in a page
+    static final int MAX_KEY_LENGTH = MAX_PAGE_SIZE - 3;
+
+    private final Segment<V>[] segments;
+
+    private final ThreadLocal<DOIKey> keys = new ThreadLocal<DOIKey>() {
+        @Override
+        protected DOIKey initialValue() {
+            return new DOIKey();
+        }
+    };
+
+    DOIHashTable(int expectedSize, int concurrencyLevel, boolean withValues) {
+        if (expectedSize < 0 || concurrencyLevel < 1) {
+            throw new IllegalArgumentException("expected non-negative size and positive concurrency level");
+        }
+        int segmentCount = Math.min(MAX_SEGMENTS, Integer.highestOneBit(concurrencyLevel * 2 - 1));
+        @SuppressWarnings("unchecked")
+        Segment<V>[] segments = (Segment<V>[]) new Segment<?>[segmentCount];
+        this.segments = segments;
+        int segmentCapacity = (int) Math.min(1 << 30, (long) expectedSize * 4 / 3 / segmentCount + 1);
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<V>(segmentCapacity, withValues);
+        }
+    }
+
+    DOIKey key(DOI doi) {
+        return keys.get().set(doi);
+    }
+
+    boolean contains(DOIKey key) {
+        return segmentFor(key).indexOf(key) >= 0;
+    }
+
+    V get(DOIKey key) {
+        return segmentFor(key).get(key);
+    }
+
+    /**
+     * @return previous value, or null if absent
+     */
+
+    V put(DOIKey key, V value, boolean onlyIfAbsent) {
+        checkLength(key);
+        return segmentFor(key).put(key, value, onlyIfAbsent);
+    }
+
+    /**
+     * @return true if the key was added, false if it was present
+     */
+
+    boolean add(DOIKey key) {
+        checkLength(key);
+        return segmentFor(key).add(key);
+    }
+
+    long size() {
+        long size = 0;
+        for (Segment<V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    long memoryUsage() {
+        long bytes = 0;
+        for (Segment<V> segment : segments) {
+            synchronized (segment) {
+                bytes += segment.memoryUsage();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Visits the keys of all entries, segment by segment, in order of insertion within a segment.
+     */
+
+    void visitKeys(KeyVisitor visitor) throws IOException {
+        for (Segment<V> segment : segments) {
+            synchronized (segment) {
+                segment.visitKeys(visitor);
+            }
+        }
+    }
+
+    interface KeyVisitor {
+        void visit(byte[] bytes, int offset, int length) throws IOException;
+    }
+
+    private static void checkLength(DOIKey key) {
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("DOI too long: [" + key.length() + "] bytes exceed maximum of [" + MAX_KEY_LENGTH + "] bytes");
+        }
+    }
+
+    private Segment<V> segmentFor(DOIKey key) {
+        // slots are selected by the low bits, tags use the high bits
+        return segments[(int) (key.hash() >>> 32) & (segments.length - 1)];
+    }
+
+    private static final class Segment<V> {
+        private long[] slots;
+        private Object[] values;
+        private int size;
+        private int threshold;
+
+        private byte[][] pages = new byte[4][];
+        private int pageCount;
+        private int pageOffset;
+        private long arenaBytes;
+
+        Segment(int expectedSize, boolean withValues) {
+            int capacity = Integer.highestOneBit(Math.max(16, expectedSize) * 2 - 1);
+            this.slots = new long[capacity];
+            this.values = withValues ? new Object[capacity] : null;
+            this.threshold = capacity / 4 * 3;
+        }
+
+        synchronized int indexOf(DOIKey key) {
+            int mask = slots.length - 1;
+            long tag = key.hash() >>> TAG_SHIFT;
+            for (int i = (int) key.hash() & mask; ; i = (i + 1) & mask) {
+                long slot = slots[i];
+                if (slot == 0) {
+                    return -(i + 1);
+                }
+                if (slot >>> TAG_SHIFT == tag && matches(key, (slot & ADDRESS_MASK) - 1)) {
+                    return i;
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        synchronized V get(DOIKey key) {
+            int index = indexOf(key);
+            return index < 0 ? null : (V) values[index];
+        }
+
+        synchronized boolean add(DOIKey key) {
+            int index = indexOf(key);
+            if (index >= 0) {
+                return false;
+            }
+            insert(key, -(index + 1), null);
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        synchronized V put(DOIKey key, V value, boolean onlyIfAbsent) {
+            int index = indexOf(key);
+            if (index >= 0) {
+                V previous = (V) values[index];
+                if (!onlyIfAbsent || previous == null) {
+                    values[index] = value;
+                }
+                return previous;
+            }
+            insert(key, -(index + 1), value);
+            return null;
+        }
+
+        long memoryUsage() {
+            return 8L * slots.length + (values == null ? 0 : 4L * values.length) + arenaBytes;
+        }
+
+        private void insert(DOIKey key, int index, Object value) {
+            long address = append(key);
+            slots[index] = (key.hash() >>> TAG_SHIFT) << TAG_SHIFT | (address + 1);
+            if (values != null) {
+                values[index] = value;
+            }
+            if (++size > threshold) {
+                resize();
+            }
+        }
+
+        private boolean matches(DOIKey key, long address) {
+            byte[] page = pages[(int) (address >>> MAX_PAGE_BITS)];
+            int offset = (int) address & (MAX_PAGE_SIZE - 1);
+            int length = keyLength(page, offset);
+            return key.matches(page, offset + DOICodec.varIntLength(length), length);
+        }
+
+        private long append(DOIKey key) {
+            int length = key.length();
+            int entryLength = DOICodec.varIntLength(length) + length;
+            if (pageCount == 0 || pageOffset + entryLength > pages[pageCount - 1].length) {
+                addPage(entryLength);
+            }
+            byte[] page = pages[pageCount - 1];
+            long address = (long) (pageCount - 1) << MAX_PAGE_BITS | pageOffset;
+            int offset = pageOffset;
+            int value = length;
+            while ((value & ~0x7F) != 0) {
+                page[offset++] = (byte) (value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            page[offset++] = (byte) value;
+            System.arraycopy(key.bytes(), 0, page, offset, length);
+            pageOffset = offset + length;
+            return address;
+        }
+
+        private void addPage(int minimumSize) {
+            if (pageCount == pages.length) {
+                byte[][] morePages = new byte[pages.length * 2][];
+                System.arraycopy(pages, 0, morePages, 0, pageCount);
+                pages = morePages;
+            }
+            // start small, so that small tables stay small, and double up to the maximum page size
+            int size = pageCount == 0 ? FIRST_PAGE_SIZE : Math.min(MAX_PAGE_SIZE, 2 * pages[pageCount - 1].length);
+            pages[pageCount++] = new byte[Math.max(size, minimumSize)];
+            arenaBytes += pages[pageCount - 1].length;
+            pageOffset = 0;
+        }
+
+        private void resize() {
+            if (slots.length == 1 << 30) {
+                throw new IllegalStateException("DOI table segment is full");
+            }
+            long[] oldSlots = slots;
+            Object[] oldValues = values;
+            slots = new long[oldSlots.length * 2];
+            values = oldValues == null ? null : new Object[slots.length];
+            threshold = slots.length / 4 * 3;
+            int mask = slots.length - 1;
+            for (int i = 0; i < oldSlots.length; i++) {
+                long slot = oldSlots[i];
+                if (slot != 0) {
+                    int j = (int) hashOf((slot & ADDRESS_MASK) - 1) & mask;
+                    while (slots[j] != 0) {
+                        j = (j + 1) & mask;
+                    }
+                    slots[j] = slot;
+                    if (values != null) {
+                        values[j] = oldValues[i];
+                    }
+                }
+            }
+        }
+
+        void visitKeys(KeyVisitor visitor) throws IOException {
+            for (int i = 0; i < pageCount; i++) {
+                byte[] page = pages[i];
+                int end = i == pageCount - 1 ? pageOffset : page.length;
+                for (int offset = 0; offset < end; ) {
+                    int length = keyLength(page, offset);
+                    if (length == 0) {
+                        // unused remainder of a page
+                        break;
+                    }
+                    offset += DOICodec.varIntLength(length);
+                    visitor.visit(page, offset, length);
+                    offset += length;
+                }
+            }
+        }
+
+        private long hashOf(long address) {
+            byte[] page = pages[(int) (address >>> MAX_PAGE_BITS)];
+            int offset = (int) address & (MAX_PAGE_SIZE - 1);
+            int length = keyLength(page, offset);
+            return DOIKey.hash(page, offset + DOICodec.varIntLength(length), length);
+        }
+
+        private static int keyLength(byte[] page, int offset) {
+            int length = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = page[offset++];
+                length |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return length;
+                }
+            }
+        }
+    }
+
+}
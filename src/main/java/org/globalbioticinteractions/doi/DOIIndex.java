@@ -0,0 +1,501 @@
+package org.globalbioticinteractions.doi;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable, compact index of DOIs grouped by registrant code, for instance to find all DOIs of a publisher (e.g.,
+ * 10.1371 for PLOS) without scanning all records.
+ * <p>
+ * Registrant codes are replaced by ids of a {@link RegistrantDictionary}. The case-folded suffixes of each registrant
+ * are sorted (by code point) and front-coded in blocks of {@value #BLOCK_SIZE}: the first suffix of a block is stored
+ * as-is, the others as the length of the prefix they share with the preceding suffix and the remaining bytes. As
+ * suffixes of the same registrant tend to share long prefixes (e.g., journal.pone.), this takes only a fraction of
+ * the memory of DOI objects. Lookups binary search the first suffixes of the blocks, and decode a single block.
+ * Suffixes that differ from their case-folded form (e.g., 10.1002/(SICI)1097-4695) are followed by their bytes as
+ * added, so that scans return them unchanged.
+ * <p>
+ * Like {@link DOI#equals(Object)}, the index ignores case. DOIs returned by scans have the suffix as first added in
+ * any case, and the registrant code as first added. Indexes are built using a {@link Builder} and are thread-safe.
+ */
+
+public final class DOIIndex {
+
+    static final int BLOCK_SIZE = 16;
+
+    private final RegistrantDictionary registrants;
+    private final byte[] data;
+    // offset of each block in data, followed by the length of data
+    private final int[] blockOffsets;
+    // first block of each registrant id, followed by the number of blocks
+    private final int[] firstBlocks;
+    private final int[] counts;
+    private final long size;
+    private final int maxSuffixLength;
+
+    private final ThreadLocal<Cursor> cursors = new ThreadLocal<Cursor>() {
+        @Override
+        protected Cursor initialValue() {
+            return new Cursor(-1);
+        }
+    };
+
+    private DOIIndex(RegistrantDictionary registrants, byte[] data, int[] blockOffsets, int[] firstBlocks, int[] counts, int maxSuffixLength) {
+        this.registrants = registrants;
+        this.data = data;
+        this.blockOffsets = blockOffsets;
+        this.firstBlocks = firstBlocks;
+        this.counts = counts;
+        this.maxSuffixLength = maxSuffixLength;
+        long total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        this.size = total;
+    }
+
+    /**
+     * @param doi DOI to look for
+     * @return true if the index contains the DOI
+     */
+
+    public boolean contains(DOI doi) {
+        int id = idOf(doi.getRegistrantCode());
+        if (id < 0) {
+            return false;
+        }
+        Cursor cursor = cursors.get().reset(id);
+        DOIKey key = cursor.key.setComponent(doi.getSuffix(), 0, doi.getSuffix().length());
+        return cursor.seek(key.bytes(), key.length()) && compare(cursor.current, cursor.length, key.bytes(), key.length()) == 0;
+    }
+
+    /**
+     * @param registrantCode registrant code (e.g., 1371)
+     * @return number of DOIs with the registrant code
+     */
+
+    public int count(String registrantCode) {
+        int id = idOf(registrantCode);
+        return id < 0 ? 0 : counts[id];
+    }
+
+    /**
+     * @param registrantCode registrant code (e.g., 1371 for all DOIs starting with 10.1371/)
+     * @return DOIs with the registrant code, ordered by suffix
+     */
+
+    public Iterable<DOI> scan(String registrantCode) {
+        return scan(registrantCode, null, null);
+    }
+
+    /**
+     * @param registrantCode registrant code (e.g., 1371)
+     * @param fromSuffix     lowest suffix to include, or null to start at the first suffix
+     * @param toSuffix       lowest suffix to exclude, or null to end at the last suffix
+     * @return DOIs with the registrant code and a suffix in the given range, ordered by suffix
+     */
+
+    public Iterable<DOI> scan(final String registrantCode, String fromSuffix, String toSuffix) {
+        final byte[] from = fromSuffix == null ? null : fold(fromSuffix);
+        final byte[] to = toSuffix == null ? null : fold(toSuffix);
+        return new Iterable<DOI>() {
+            @Override
+            public Iterator<DOI> iterator() {
+                return new ScanIterator(idOf(registrantCode), from, to, false);
+            }
+        };
+    }
+
+    /**
+     * @param registrantCode registrant code (e.g., 1371)
+     * @param suffixPrefix   prefix of suffixes to include (e.g., journal.pone.)
+     * @return DOIs with the registrant code and a suffix starting with the given prefix, ordered by suffix
+     */
+
+    public Iterable<DOI> scanPrefix(final String registrantCode, String suffixPrefix) {
+        final byte[] prefix = fold(suffixPrefix);
+        return new Iterable<DOI>() {
+            @Override
+            public Iterator<DOI> iterator() {
+                return new ScanIterator(idOf(registrantCode), prefix, prefix, true);
+            }
+        };
+    }
+
+    /**
+     * @return number of DOIs in the index
+     */
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return approximate number of bytes used by the index, excluding its registrant dictionary
+     */
+
+    public long memoryUsage() {
+        return data.length + 4L * (blockOffsets.length + firstBlocks.length + counts.length);
+    }
+
+    /**
+     * @return dictionary with the registrant codes of the index
+     */
+
+    public RegistrantDictionary getRegistrantDictionary() {
+        return registrants;
+    }
+
+    private int idOf(String registrantCode) {
+        int id = registrants.getId(registrantCode);
+        return id < counts.length ? id : -1;
+    }
+
+    private static byte[] fold(String value) {
+        DOIKey key = new DOIKey().setComponent(value, 0, value.length());
+        return Arrays.copyOf(key.bytes(), key.length());
+    }
+
+    static int compare(byte[] a, int aLength, byte[] b, int bLength) {
+        int n = Math.min(aLength, bLength);
+        for (int i = 0; i < n; i++) {
+            int diff = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return aLength - bLength;
+    }
+
+    private static boolean startsWith(byte[] value, int length, byte[] prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (value[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int readVarInt(byte[] bytes, int[] position) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = bytes[position[0]++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static int writeVarInt(byte[] bytes, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            bytes[position++] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        bytes[position++] = (byte) value;
+        return position;
+    }
+
+    /**
+     * Position in the suffixes of a registrant, decoding one suffix at a time.
+     */
+
+    private final class Cursor {
+        private final DOIKey key = new DOIKey();
+        private final int[] position = new int[1];
+        private final byte[] current = new byte[maxSuffixLength];
+        private int length;
+        // bytes of the suffix as added, or -1 if it was added in case-folded form
+        private int originalOffset;
+        private int originalLength;
+        private int block;
+        private int endBlock;
+
+        Cursor(int id) {
+            reset(id);
+        }
+
+        Cursor reset(int id) {
+            block = id < 0 ? 0 : firstBlocks[id];
+            endBlock = id < 0 ? 0 : firstBlocks[id + 1];
+            position[0] = blockOffsets[block];
+            length = 0;
+            return this;
+        }
+
+        /**
+         * Moves to the first suffix that is not less than the key.
+         *
+         * @return false if there is no such suffix
+         */
+
+        boolean seek(byte[] key, int keyLength) {
+            // binary search the last block starting with a suffix not greater than the key
+            int low = block;
+            int high = endBlock - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (compareHead(mid, key, keyLength) <= 0) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            block = low;
+            position[0] = blockOffsets[low];
+            while (next()) {
+                if (compare(current, length, key, keyLength) >= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean next() {
+            if (block >= endBlock) {
+                return false;
+            }
+            if (position[0] == blockOffsets[block + 1]) {
+                if (++block == endBlock) {
+                    return false;
+                }
+            }
+            if (position[0] == blockOffsets[block]) {
+                length = readVarInt(data, position);
+                System.arraycopy(data, position[0], current, 0, length);
+                position[0] += length;
+            } else {
+                int shared = readVarInt(data, position);
+                int rest = readVarInt(data, position);
+                System.arraycopy(data, position[0], current, shared, rest);
+                position[0] += rest;
+                length = shared + rest;
+            }
+            originalLength = readVarInt(data, position) - 1;
+            originalOffset = position[0];
+            if (originalLength > 0) {
+                position[0] += originalLength;
+            }
+            return true;
+        }
+
+        private int compareHead(int block, byte[] key, int keyLength) {
+            int offset = blockOffsets[block];
+            int headLength = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[offset++];
+                headLength |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            int n = Math.min(headLength, keyLength);
+            for (int i = 0; i < n; i++) {
+                int diff = (data[offset + i] & 0xFF) - (key[i] & 0xFF);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return headLength - keyLength;
+        }
+    }
+
+    private final class ScanIterator implements Iterator<DOI> {
+        private final String registrantCode;
+        private final Cursor cursor;
+        private final byte[] to;
+        private final boolean prefix;
+        private boolean hasNext;
+
+        ScanIterator(int id, byte[] from, byte[] to, boolean prefix) {
+            this.registrantCode = id < 0 ? null : registrants.getRegistrantCode(id);
+            this.cursor = new Cursor(id);
+            this.to = to;
+            this.prefix = prefix;
+            this.hasNext = from == null ? cursor.next() : cursor.seek(from, from.length);
+            checkEnd();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return hasNext;
+        }
+
+        @Override
+        public DOI next() {
+            if (!hasNext) {
+                throw new NoSuchElementException();
+            }
+            String suffix = cursor.originalLength < 0
+                    ? DOICodec.decodeString(cursor.current, 0, cursor.length)
+                    : DOICodec.decodeString(data, cursor.originalOffset, cursor.originalLength);
+            DOI doi = new DOI(registrantCode, suffix);
+            hasNext = cursor.next();
+            checkEnd();
+            return doi;
+        }
+
+        private void checkEnd() {
+            if (hasNext && to != null) {
+                hasNext = prefix
+                        ? startsWith(cursor.current, cursor.length, to)
+                        : compare(cursor.current, cursor.length, to, to.length) < 0;
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("index is immutable");
+        }
+    }
+
+    /**
+     * Collects DOIs for an index. Not thread-safe.
+     */
+
+    public static final class Builder {
+        // by case-folded suffix, keeping the suffix first added in any case first
+        private static final Comparator<Entry> UNSIGNED_ORDER = new Comparator<Entry>() {
+            @Override
+            public int compare(Entry a, Entry b) {
+                return DOIIndex.compare(a.folded, a.folded.length, b.folded, b.folded.length);
+            }
+        };
+
+        private final RegistrantDictionary registrants;
+        private final List<List<Entry>> suffixes = new ArrayList<List<Entry>>();
+        private final DOIKey key = new DOIKey();
+
+        public Builder() {
+            this(new RegistrantDictionary());
+        }
+
+        /**
+         * @param registrants dictionary to add the registrant codes of the index to, e.g., to share it with a {@link DOICodec}
+         */
+
+        public Builder(RegistrantDictionary registrants) {
+            this.registrants = registrants;
+        }
+
+        /**
+         * @param doi DOI to add
+         * @return this builder
+         */
+
+        public Builder add(DOI doi) {
+            int id = registrants.add(doi.getRegistrantCode());
+            while (suffixes.size() <= id) {
+                suffixes.add(new ArrayList<Entry>());
+            }
+            String suffix = doi.getSuffix();
+            key.setComponent(suffix, 0, suffix.length());
+            byte[] folded = Arrays.copyOf(key.bytes(), key.length());
+            byte[] original = null;
+            if (!DOICodec.decodeString(folded, 0, folded.length).equals(suffix)) {
+                original = new byte[DOICodec.utf8Length(suffix)];
+                DOICodec.putString(ByteBuffer.wrap(original), suffix);
+            }
+            suffixes.get(id).add(new Entry(folded, original));
+            return this;
+        }
+
+        /**
+         * @return index of the added DOIs, without duplicates
+         */
+
+        public DOIIndex build() {
+            int registrantCount = registrants.size();
+            int[] counts = new int[registrantCount];
+            int[] firstBlocks = new int[registrantCount + 1];
+            int[] blockOffsets = new int[16];
+            byte[] data = new byte[1024];
+            int position = 0;
+            int blockCount = 0;
+            int maxSuffixLength = 0;
+            for (int id = 0; id < registrantCount; id++) {
+                firstBlocks[id] = blockCount;
+                List<Entry> sorted = id < suffixes.size() ? suffixes.get(id) : Collections.<Entry>emptyList();
+                // stable, so that duplicates are preceded by the suffix as first added
+                Collections.sort(sorted, UNSIGNED_ORDER);
+                byte[] previous = null;
+                int count = 0;
+                for (Entry entry : sorted) {
+                    byte[] suffix = entry.folded;
+                    if (previous != null && Arrays.equals(previous, suffix)) {
+                        continue;
+                    }
+                    int originalLength = entry.original == null ? 0 : entry.original.length;
+                    if (data.length - position < suffix.length + originalLength + 15) {
+                        data = Arrays.copyOf(data, Math.max(2 * data.length, position + suffix.length + originalLength + 15));
+                    }
+                    if (count % BLOCK_SIZE == 0) {
+                        if (blockCount + 1 >= blockOffsets.length) {
+                            blockOffsets = Arrays.copyOf(blockOffsets, 2 * blockOffsets.length);
+                        }
+                        blockOffsets[blockCount++] = position;
+                        position = writeVarInt(data, position, suffix.length);
+                        System.arraycopy(suffix, 0, data, position, suffix.length);
+                        position += suffix.length;
+                    } else {
+                        int shared = sharedPrefixLength(previous, suffix);
+                        position = writeVarInt(data, position, shared);
+                        position = writeVarInt(data, position, suffix.length - shared);
+                        System.arraycopy(suffix, shared, data, position, suffix.length - shared);
+                        position += suffix.length - shared;
+                    }
+                    // 0 if the suffix was added in case-folded form, or else 1 plus the length of its bytes as added
+                    if (entry.original == null) {
+                        position = writeVarInt(data, position, 0);
+                    } else {
+                        position = writeVarInt(data, position, originalLength + 1);
+                        System.arraycopy(entry.original, 0, data, position, originalLength);
+                        position += originalLength;
+                    }
+                    maxSuffixLength = Math.max(maxSuffixLength, suffix.length);
+                    previous = suffix;
+                    count++;
+                }
+                counts[id] = count;
+            }
+            firstBlocks[registrantCount] = blockCount;
+            blockOffsets[blockCount] = position;
+            return new DOIIndex(registrants,
+                    Arrays.copyOf(data, position),
+                    Arrays.copyOf(blockOffsets, blockCount + 1),
+                    firstBlocks,
+                    counts,
+                    maxSuffixLength);
+        }
+
+        private static int sharedPrefixLength(byte[] a, byte[] b) {
+            int n = Math.min(a.length, b.length);
+            int i = 0;
+            while (i < n && a[i] == b[i]) {
+                i++;
+            }
+            return i;
+        }
+
+        private static final class Entry {
+            private final byte[] folded;
+            // bytes of the suffix as added, or null if it equals the case-folded suffix
+            private final byte[] original;
+
+            Entry(byte[] folded, byte[] original) {
+                this.folded = folded;
+                this.original = original;
+            }
+        }
+    }
+
+}
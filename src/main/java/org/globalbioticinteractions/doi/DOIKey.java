@@ -0,0 +1,152 @@
+package org.globalbioticinteractions.doi;
+
+/**
+ * Reusable, canonical byte key of a DOI: the case-folded registrant code and suffix (see {@link DOI#foldCase(int)}),
+ * encoded as UTF-8 and separated by a 0xFF byte, which does not occur in UTF-8. Two DOIs have the same key if, and only
+ * if, they are equal.
+ * <p>
+ * Unpaired surrogates are encoded like other characters of the basic multilingual plane. Keys are not thread-safe, but
+ * meant to be reused by a single thread to look up many DOIs without allocating.
+ */
+
+final class DOIKey {
+
+    static final byte SEPARATOR = (byte) 0xFF;
+
+    private static final long C1 = 0x87C37B91114253D5L;
+    private static final long C2 = 0x4CF5AD432745937FL;
+
+    private byte[] bytes = new byte[64];
+    private int length;
+    private long hash;
+
+    DOIKey set(DOI doi) {
+        String registrantCode = doi.getRegistrantCode();
+        String suffix = doi.getSuffix();
+        return set(registrantCode, 0, registrantCode.length(), suffix, 0, suffix.length());
+    }
+
+    DOIKey set(CharSequence registrantCode, int registrantCodeStart, int registrantCodeEnd,
+               CharSequence suffix, int suffixStart, int suffixEnd) {
+        length = 0;
+        ensureCapacity(4 * (registrantCodeEnd - registrantCodeStart + suffixEnd - suffixStart) + 1);
+        appendFolded(registrantCode, registrantCodeStart, registrantCodeEnd);
+        bytes[length++] = SEPARATOR;
+        appendFolded(suffix, suffixStart, suffixEnd);
+        hash = hash(bytes, 0, length);
+        return this;
+    }
+
+    /**
+     * Sets the key to the case-folded bytes of a single registrant code or suffix, without computing a hash.
+     */
+
+    DOIKey setComponent(CharSequence value, int start, int end) {
+        length = 0;
+        ensureCapacity(4 * (end - start));
+        appendFolded(value, start, end);
+        hash = 0;
+        return this;
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    int length() {
+        return length;
+    }
+
+    long hash() {
+        return hash;
+    }
+
+    boolean matches(byte[] other, int offset, int otherLength) {
+        if (otherLength != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] != other[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (bytes.length < capacity) {
+            bytes = new byte[Math.max(capacity, 2 * bytes.length)];
+        }
+    }
+
+    private void appendFolded(CharSequence value, int start, int end) {
+        byte[] b = bytes;
+        int n = length;
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            int codePoint = c;
+            if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(value.charAt(i + 1))) {
+                codePoint = Character.toCodePoint(c, value.charAt(++i));
+            }
+            int folded = codePoint < 0x80 ? foldAscii(codePoint) : DOI.foldCase(codePoint);
+            if (folded < 0x80) {
+                b[n++] = (byte) folded;
+            } else if (folded < 0x800) {
+                b[n++] = (byte) (0xC0 | folded >> 6);
+                b[n++] = (byte) (0x80 | folded & 0x3F);
+            } else if (folded < 0x10000) {
+                b[n++] = (byte) (0xE0 | folded >> 12);
+                b[n++] = (byte) (0x80 | folded >> 6 & 0x3F);
+                b[n++] = (byte) (0x80 | folded & 0x3F);
+            } else {
+                b[n++] = (byte) (0xF0 | folded >> 18);
+                b[n++] = (byte) (0x80 | folded >> 12 & 0x3F);
+                b[n++] = (byte) (0x80 | folded >> 6 & 0x3F);
+                b[n++] = (byte) (0x80 | folded & 0x3F);
+            }
+        }
+        length = n;
+    }
+
+    private static int foldAscii(int c) {
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+
+    /**
+     * 64-bit hash of a byte range, processing eight bytes at a time and finishing with the MurmurHash3 64-bit mix.
+     */
+
+    static long hash(byte[] bytes, int offset, int length) {
+        long h = length * C1;
+        int i = offset;
+        int end = offset + length;
+        for (; i + 8 <= end; i += 8) {
+            long k = (bytes[i] & 0xFFL)
+                    | (bytes[i + 1] & 0xFFL) << 8
+                    | (bytes[i + 2] & 0xFFL) << 16
+                    | (bytes[i + 3] & 0xFFL) << 24
+                    | (bytes[i + 4] & 0xFFL) << 32
+                    | (bytes[i + 5] & 0xFFL) << 40
+                    | (bytes[i + 6] & 0xFFL) << 48
+                    | (bytes[i + 7] & 0xFFL) << 56;
+            h ^= Long.rotateLeft(k * C1, 31) * C2;
+            h = Long.rotateLeft(h, 27) * 5 + 0x52DCE729;
+        }
+        long k = 0;
+        for (int shift = 0; i < end; i++, shift += 8) {
+            k |= (bytes[i] & 0xFFL) << shift;
+        }
+        h ^= Long.rotateLeft(k * C1, 31) * C2;
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+}
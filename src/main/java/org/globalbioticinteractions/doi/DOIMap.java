@@ -0,0 +1,100 @@
+package org.globalbioticinteractions.doi;
+
+/**
+ * Compact, thread-safe map with DOI keys, see {@link DOISet} for how DOIs are stored. Like {@link DOI#equals(Object)},
+ * the map ignores the case of DOIs. Values may not be null.
+ * <p>
+ * Entries cannot be removed from, or listed by, the map.
+ *
+ * @param <V> type of values
+ */
+
+public final class DOIMap<V> {
+
+    private final DOIHashTable<V> table;
+
+    public DOIMap() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize expected number of DOIs
+     */
+
+    public DOIMap(int expectedSize) {
+        this(expectedSize, 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param expectedSize     expected number of DOIs
+     * @param concurrencyLevel expected number of threads putting DOIs concurrently
+     */
+
+    public DOIMap(int expectedSize, int concurrencyLevel) {
+        this.table = new DOIHashTable<V>(expectedSize, concurrencyLevel, true);
+    }
+
+    /**
+     * @param doi   DOI key
+     * @param value value to associate with the DOI
+     * @return previous value associated with the DOI, or null if none
+     * @throws IllegalArgumentException if the DOI exceeds 1 MiB
+     */
+
+    public V put(DOI doi, V value) {
+        return table.put(table.key(doi), checkValue(value), false);
+    }
+
+    /**
+     * @param doi   DOI key
+     * @param value value to associate with the DOI, unless the DOI already has a value
+     * @return value associated with the DOI, or null if none was, in which case the provided value now is
+     * @throws IllegalArgumentException if the DOI exceeds 1 MiB
+     */
+
+    public V putIfAbsent(DOI doi, V value) {
+        return table.put(table.key(doi), checkValue(value), true);
+    }
+
+    /**
+     * @param doi DOI key
+     * @return value associated with the DOI, or null if none
+     */
+
+    public V get(DOI doi) {
+        return table.get(table.key(doi));
+    }
+
+    /**
+     * @param doi DOI key
+     * @return true if a value is associated with the DOI
+     */
+
+    public boolean containsKey(DOI doi) {
+        return table.contains(table.key(doi));
+    }
+
+    /**
+     * @return number of DOIs in the map
+     */
+
+    public long size() {
+        return table.size();
+    }
+
+    /**
+     * @return approximate number of bytes used by the map, excluding the values themselves
+     */
+
+    public long memoryUsage() {
+        return table.memoryUsage();
+    }
+
+    private static <V> V checkValue(V value) {
+        if (value == null) {
+            throw new NullPointerException("DOI map values may not be null");
+        }
+        return value;
+    }
+
+}
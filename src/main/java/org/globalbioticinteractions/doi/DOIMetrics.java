@@ -0,0 +1,245 @@
+package org.globalbioticinteractions.doi;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Optional instrumentation of parsing and rendering DOIs, for long running services that need to know how many DOIs
+ * are parsed, in which form, how many are malformed and why, and how long parsing and rendering take.
+ * <p>
+ * Instrumentation is disabled by default and costs a single read of a volatile field per operation while disabled.
+ * Once a {@link DOIMetricsListener} is installed with {@link #setListener(DOIMetricsListener)}, every parse is
+ * reported to it, and one in {@link #LATENCY_SAMPLE_INTERVAL} operations is timed. A {@link DOIMetrics}, installed by
+ * {@link #enable()}, is a listener that counts parses and collects latency histograms, to be polled by, e.g., a JMX
+ * bean or a Micrometer gauge; other listeners can bridge to monitoring systems directly, without the library
+ * depending on them.
+ * <p>
+ * Parses are reported for {@link DOI#create(String)}, {@link DOI#tryCreate(CharSequence)}, {@link DOI#parse(CharSequence)}
+ * and their variants for char and byte arrays and buffers, and for {@link DOI#create(java.net.URI)}.
+ */
+
+public final class DOIMetrics implements DOIMetricsListener {
+
+    /**
+     * One in this many operations is timed, on average.
+     */
+
+    public static final int LATENCY_SAMPLE_INTERVAL = 64;
+
+    private static final int LATENCY_BUCKETS = 64;
+
+    // read on every instrumented operation: null while instrumentation is disabled
+    private static volatile DOIMetricsListener listener;
+
+    /**
+     * Form of a parsed DOI presentation.
+     */
+
+    public enum InputForm {
+        /**
+         * "pure" DOI, e.g., 10.123/456, or any other input not in one of the forms below.
+         */
+        BARE,
+        /**
+         * printable DOI, e.g., doi:10.123/456
+         */
+        PRINTABLE,
+        /**
+         * DOI URL using the secure default resolver, e.g., https://doi.org/10.123/456
+         */
+        SECURE_URL,
+        /**
+         * DOI URL using the legacy resolver, e.g., http://dx.doi.org/10.123/456
+         */
+        DX_URL,
+        /**
+         * {@link java.net.URI} passed to {@link DOI#create(java.net.URI)}
+         */
+        URI
+    }
+
+    /**
+     * Timed operation.
+     */
+
+    public enum Operation {
+        /**
+         * parsing a DOI presentation, see {@link DOIMetrics}
+         */
+        PARSE,
+        /**
+         * rendering a DOI as {@link java.net.URI}, see {@link DOI#toURI(java.net.URI)}
+         */
+        TO_URI
+    }
+
+    private final StripedCounter[] parses = newCounters(InputForm.values().length);
+    private final StripedCounter[] malformed = newCounters(MalformedDOIReason.values().length);
+    // sampled, so contention is rare: bucket i counts durations of [2^(i-1), 2^i) nanoseconds
+    private final AtomicLongArray[] latencies = new AtomicLongArray[Operation.values().length];
+
+    public DOIMetrics() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new AtomicLongArray(LATENCY_BUCKETS);
+        }
+    }
+
+    /**
+     * Installs a new {@link DOIMetrics} as listener, replacing any other listener.
+     *
+     * @return installed metrics
+     */
+
+    public static DOIMetrics enable() {
+        DOIMetrics metrics = new DOIMetrics();
+        setListener(metrics);
+        return metrics;
+    }
+
+    /**
+     * Disables instrumentation, removing any listener.
+     */
+
+    public static void disable() {
+        setListener(null);
+    }
+
+    /**
+     * @param listener listener to receive instrumentation events, or null to disable instrumentation
+     */
+
+    public static void setListener(DOIMetricsListener listener) {
+        DOIMetrics.listener = listener;
+    }
+
+    /**
+     * @return installed listener, or null if instrumentation is disabled
+     */
+
+    public static DOIMetricsListener getListener() {
+        return listener;
+    }
+
+    static boolean isSampled() {
+        return ThreadLocalRandom.current().nextInt(LATENCY_SAMPLE_INTERVAL) == 0;
+    }
+
+    @Override
+    public void parsed(InputForm form, MalformedDOIReason reason) {
+        parses[form.ordinal()].increment();
+        if (reason != null) {
+            malformed[reason.ordinal()].increment();
+        }
+    }
+
+    @Override
+    public void timed(Operation operation, long nanos) {
+        int bucket = nanos <= 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(nanos);
+        latencies[operation.ordinal()].incrementAndGet(Math.min(bucket, LATENCY_BUCKETS - 1));
+    }
+
+    /**
+     * @return number of parsed presentations
+     */
+
+    public long getParseCount() {
+        return sum(parses);
+    }
+
+    /**
+     * @param form form of presentations
+     * @return number of parsed presentations of the given form
+     */
+
+    public long getParseCount(InputForm form) {
+        return parses[form.ordinal()].sum();
+    }
+
+    /**
+     * @return number of parsed presentations that did not contain a well-formed DOI
+     */
+
+    public long getMalformedCount() {
+        return sum(malformed);
+    }
+
+    /**
+     * @param reason reason for rejecting presentations
+     * @return number of parsed presentations rejected for the given reason
+     */
+
+    public long getMalformedCount(MalformedDOIReason reason) {
+        return malformed[reason.ordinal()].sum();
+    }
+
+    /**
+     * @param operation timed operation
+     * @return number of timed operations
+     */
+
+    public long getSampleCount(Operation operation) {
+        long count = 0;
+        for (long bucketCount : getLatencyHistogram(operation)) {
+            count += bucketCount;
+        }
+        return count;
+    }
+
+    /**
+     * @param operation timed operation
+     * @return number of timed operations by duration: element i counts durations from 2^(i-1) up to 2^i nanoseconds
+     */
+
+    public long[] getLatencyHistogram(Operation operation) {
+        AtomicLongArray buckets = latencies[operation.ordinal()];
+        long[] histogram = new long[buckets.length()];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = buckets.get(i);
+        }
+        return histogram;
+    }
+
+    /**
+     * @param operation timed operation
+     * @param quantile  quantile between 0 and 1 (e.g., 0.99 for the 99th percentile)
+     * @return upper bound in nanoseconds of the duration of the given quantile of timed operations, precise to a
+     * factor of two, or 0 if no operations were timed
+     */
+
+    public long getLatencyQuantile(Operation operation, double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("expected quantile between 0 and 1, but got [" + quantile + "]");
+        }
+        long[] histogram = getLatencyHistogram(operation);
+        long count = 0;
+        for (long bucketCount : histogram) {
+            count += bucketCount;
+        }
+        long rank = (long) Math.ceil(quantile * count);
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen > 0 && seen >= rank) {
+                return i == LATENCY_BUCKETS - 1 ? Long.MAX_VALUE : 1L << i;
+            }
+        }
+        return 0;
+    }
+
+    private static StripedCounter[] newCounters(int count) {
+        StripedCounter[] counters = new StripedCounter[count];
+        for (int i = 0; i < count; i++) {
+            counters[i] = new StripedCounter();
+        }
+        return counters;
+    }
+
+    private static long sum(StripedCounter[] counters) {
+        long sum = 0;
+        for (StripedCounter counter : counters) {
+            sum += counter.sum();
+        }
+        return sum;
+    }
+
+}
@@ -0,0 +1,31 @@
+package org.globalbioticinteractions.doi;
+
+/**
+ * Receives instrumentation events of parsing and rendering DOIs, once installed with
+ * {@link DOIMetrics#setListener(DOIMetricsListener)}, for instance to bridge to a monitoring system.
+ * <p>
+ * Listeners are called by the threads that parse and render DOIs, so they should be thread-safe and fast, and must not
+ * throw exceptions.
+ */
+
+public interface DOIMetricsListener {
+
+    /**
+     * Called after each parse.
+     *
+     * @param form   form of the parsed presentation
+     * @param reason reason the presentation is malformed, or null if it contains a well-formed DOI
+     */
+
+    void parsed(DOIMetrics.InputForm form, MalformedDOIReason reason);
+
+    /**
+     * Called after one in {@link DOIMetrics#LATENCY_SAMPLE_INTERVAL} operations, on average.
+     *
+     * @param operation timed operation
+     * @param nanos     duration of the operation in nanoseconds
+     */
+
+    void timed(DOIMetrics.Operation operation, long nanos);
+
+}
@@ -0,0 +1,195 @@
+package org.globalbioticinteractions.doi;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free cache of parse results by DOI string, for inputs that repeat the same DOI strings (e.g., the same
+ * https://doi.org/10.1111/... URL in many records). Both well-formed DOIs and malformed verdicts are cached, so that
+ * repeated inputs are parsed once; {@link #parse(String)} and {@link #tryCreate(String)} then skip parsing and
+ * exceptions entirely.
+ * <p>
+ * Strings are cached in a set-associative table: each string can only be kept in one of eight slots, selected by its
+ * hash code. When all eight are taken, the least recently used of the eight is evicted, an approximation of LRU that
+ * needs no shared list. Recency is measured by a clock that only advances on misses, so that lookups do not lock or
+ * write shared state, except to record the time of access and to count hits, which is spread over cells per thread.
+ * <p>
+ * Strings are matched exactly, including case, as different strings may have different verdicts.
+ */
+
+public final class DOIParseCache {
+
+    private static final int WAYS = 8;
+
+    // longer strings are parsed, but not cached, so that the cache stays bounded in memory
+    static final int MAX_CACHED_LENGTH = 1024;
+
+    private final AtomicReferenceArray<Entry> entries;
+    private final int mask;
+
+    // number of misses, written without synchronization: a lost update only makes eviction slightly less accurate
+    private int clock;
+
+    private final StripedCounter hits = new StripedCounter();
+    private final StripedCounter misses = new StripedCounter();
+    private final StripedCounter evictions = new StripedCounter();
+
+    /**
+     * @param maximumSize maximum number of cached strings, rounded up to a power of two
+     */
+
+    public DOIParseCache(int maximumSize) {
+        if (maximumSize < 1 || maximumSize > 1 << 30) {
+            throw new IllegalArgumentException("expected maximum size between 1 and 2^30");
+        }
+        int capacity = Math.max(WAYS, Integer.highestOneBit(maximumSize * 2 - 1));
+        this.entries = new AtomicReferenceArray<Entry>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Same as {@link DOI#create(CharSequence)}, using cached results.
+     *
+     * @param doiString string containing a doi
+     * @return a well-formed DOI
+     * @throws MalformedDOIException on malformed DOI (e.g., 9.123/2432)
+     */
+
+    public DOI create(String doiString) throws MalformedDOIException {
+        DOIParseResult result = parse(doiString);
+        if (!result.isValid()) {
+            throw new MalformedDOIException(result.getReason(), doiString);
+        }
+        return result.getDOI();
+    }
+
+    /**
+     * Same as {@link DOI#tryCreate(CharSequence)}, using cached results.
+     *
+     * @param doiString string containing a doi
+     * @return a well-formed DOI, or null if none was found
+     */
+
+    public DOI tryCreate(String doiString) {
+        return parse(doiString).getDOI();
+    }
+
+    /**
+     * Same as {@link DOI#parse(CharSequence)}, using cached results.
+     *
+     * @param doiString string containing a doi
+     * @return parse result
+     */
+
+    public DOIParseResult parse(String doiString) {
+        int hash = spread(doiString.hashCode());
+        int set = hash & mask & -WAYS;
+        for (int i = 0; i < WAYS; i++) {
+            Entry entry = entries.get(set + i);
+            if (entry != null && entry.hash == hash && entry.input.equals(doiString)) {
+                int now = clock;
+                if (entry.lastAccess != now) {
+                    entry.lastAccess = now;
+                }
+                hits.increment();
+                return entry.result;
+            }
+        }
+        misses.increment();
+        int now = ++clock;
+        DOIParseResult result = DOI.parse(doiString);
+        if (doiString.length() <= MAX_CACHED_LENGTH) {
+            insert(set, new Entry(hash, doiString, result, now));
+        }
+        return result;
+    }
+
+    private void insert(int set, Entry entry) {
+        int victim = -1;
+        Entry evicted = null;
+        for (int i = 0; i < WAYS; i++) {
+            Entry candidate = entries.get(set + i);
+            if (candidate == null) {
+                if (entries.compareAndSet(set + i, null, entry)) {
+                    return;
+                }
+            } else if (evicted == null || entry.lastAccess - candidate.lastAccess > entry.lastAccess - evicted.lastAccess) {
+                victim = set + i;
+                evicted = candidate;
+            }
+        }
+        // give up if another thread replaced the victim in the meantime
+        if (evicted != null && entries.compareAndSet(victim, evicted, entry)) {
+            evictions.increment();
+        }
+    }
+
+    private static int spread(int hash) {
+        // String.hashCode is cached, but its low bits are poorly distributed for strings sharing a prefix
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return number of lookups that found a cached result
+     */
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of lookups that parsed the string
+     */
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return fraction of lookups that found a cached result, or 0 if there were no lookups
+     */
+
+    public double getHitRate() {
+        long hitCount = getHitCount();
+        long lookups = hitCount + getMissCount();
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    /**
+     * @return number of cached results evicted to make room for others
+     */
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return number of cached strings
+     */
+
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < entries.length(); i++) {
+            if (entries.get(i) != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    private static final class Entry {
+        private final int hash;
+        private final String input;
+        private final DOIParseResult result;
+        // written without synchronization, like the clock
+        private int lastAccess;
+
+        Entry(int hash, String input, DOIParseResult result, int lastAccess) {
+            this.hash = hash;
+            this.input = input;
+            this.result = result;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+package org.globalbioticinteractions.doi;
+
+/**
+ * Outcome of parsing a DOI candidate without throwing exceptions: either a well-formed {@link DOI}
+ * or the {@link MalformedDOIReason} the candidate was rejected for.
+ * <p>
+ * Results for malformed candidates are shared instances, so rejecting junk input does not allocate.
+ *
+ * @see DOI#parse(CharSequence)
+ */
+
+public final class DOIParseResult {
+
+    private static final DOIParseResult[] MALFORMED = new DOIParseResult[MalformedDOIReason.values().length];
+
+    static {
+        for (MalformedDOIReason reason : MalformedDOIReason.values()) {
+            MALFORMED[reason.ordinal()] = new DOIParseResult(null, reason);
+        }
+    }
+
+    private final DOI doi;
+    private final MalformedDOIReason reason;
+
+    private DOIParseResult(DOI doi, MalformedDOIReason reason) {
+        this.doi = doi;
+        this.reason = reason;
+    }
+
+    static DOIParseResult valid(DOI doi) {
+        return new DOIParseResult(doi, null);
+    }
+
+    static DOIParseResult malformed(MalformedDOIReason reason) {
+        return MALFORMED[reason.ordinal()];
+    }
+
+    /**
+     * @return true if a well-formed DOI was found
+     */
+
+    public boolean isValid() {
+        return doi != null;
+    }
+
+    /**
+     * @return well-formed DOI, or null if the candidate was malformed
+     */
+
+    public DOI getDOI() {
+        return doi;
+    }
+
+    /**
+     * @return reason the candidate was rejected for, or null if it was well-formed
+     */
+
+    public MalformedDOIReason getReason() {
+        return reason;
+    }
+
+    @Override
+    public String toString() {
+        return isValid() ? doi.toString() : reason.getDescription();
+    }
+
+}
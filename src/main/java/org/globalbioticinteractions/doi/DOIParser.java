@@ -0,0 +1,358 @@
+package org.globalbioticinteractions.doi;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Single pass parser for the DOI presentations accepted by {@link DOI#create(String)}.
+ * <p>
+ * Prefixes are matched in place, percent escapes of DOI URLs are decoded while scanning and
+ * only the registrant code and suffix of a well-formed DOI are copied into new strings.
+ */
+
+final class DOIParser {
+
+    static final String PRINTABLE_DOI_PREFIX = "doi:";
+    static final String DIRECTORY_INDICATOR_PREFIX = "10.";
+    static final String SECURE_DEFAULT_RESOLVER = "https://doi.org/";
+    static final String UNSECURE_DEFAULT_RESOLVER = "http://dx.doi.org/";
+
+    // ASCII characters allowed in the query or fragment of a java.net.URI, excluding '%' and '#'
+    private static final long LEGAL_QUERY_CHARS_LOW = lowMask("!$&'()*+,-./0123456789:;=?");
+    private static final long LEGAL_QUERY_CHARS_HIGH = highMask("@ABCDEFGHIJKLMNOPQRSTUVWXYZ[]_abcdefghijklmnopqrstuvwxyz~");
+
+    // result of parsing into a key, which does not create a DOI
+    private static final DOIParseResult KEY_SET = DOIParseResult.valid(null);
+
+    private DOIParser() {
+    }
+
+    static DOI create(CharSequence doi, int start, int end) throws MalformedDOIException {
+        return valueOf(parse(doi, start, end), doi, start, end);
+    }
+
+    static DOI valueOf(DOIParseResult result, CharSequence doi, int start, int end) throws MalformedDOIException {
+        if (!result.isValid()) {
+            throw new MalformedDOIException(result.getReason(), doi.subSequence(start, end));
+        }
+        return result.getDOI();
+    }
+
+    static DOIParseResult parse(CharSequence doi, int start, int end) {
+        DOIMetricsListener listener = DOIMetrics.getListener();
+        return pooled(listener == null ? parse(doi, start, end, null) : parseInstrumented(doi, start, end, listener));
+    }
+
+    /**
+     * @return result with the DOI of the given result replaced by its pooled instance, if a default pool is installed
+     */
+
+    private static DOIParseResult pooled(DOIParseResult result) {
+        DOIPool pool = DOIPool.getDefault();
+        if (pool == null || !result.isValid()) {
+            return result;
+        }
+        DOI pooled = pool.intern(result.getDOI());
+        return pooled == result.getDOI() ? result : DOIParseResult.valid(pooled);
+    }
+
+    private static DOIParseResult parseInstrumented(CharSequence doi, int start, int end, DOIMetricsListener listener) {
+        boolean timed = DOIMetrics.isSampled();
+        long startTime = timed ? System.nanoTime() : 0;
+        DOIParseResult result = parse(doi, start, end, null);
+        if (timed) {
+            listener.timed(DOIMetrics.Operation.PARSE, System.nanoTime() - startTime);
+        }
+        listener.parsed(inputForm(doi, start, end), result.getReason());
+        return result;
+    }
+
+    private static DOIMetrics.InputForm inputForm(CharSequence doi, int start, int end) {
+        if (startsWithIgnoreCase(doi, start, end, PRINTABLE_DOI_PREFIX)) {
+            return DOIMetrics.InputForm.PRINTABLE;
+        }
+        int urlPrefixLength = urlPrefixLength(doi, start, end);
+        if (urlPrefixLength == SECURE_DEFAULT_RESOLVER.length()) {
+            return DOIMetrics.InputForm.SECURE_URL;
+        }
+        return urlPrefixLength == UNSECURE_DEFAULT_RESOLVER.length() ? DOIMetrics.InputForm.DX_URL : DOIMetrics.InputForm.BARE;
+    }
+
+    /**
+     * Parses the path of a DOI URI (e.g., /10.123/456 of https://doi.org/10.123/456).
+     */
+
+    static DOIParseResult parseURIPath(String path) {
+        DOIMetricsListener listener = DOIMetrics.getListener();
+        if (listener == null) {
+            return pooled(parseURIPathUninstrumented(path));
+        }
+        boolean timed = DOIMetrics.isSampled();
+        long startTime = timed ? System.nanoTime() : 0;
+        DOIParseResult result = parseURIPathUninstrumented(path);
+        if (timed) {
+            listener.timed(DOIMetrics.Operation.PARSE, System.nanoTime() - startTime);
+        }
+        listener.parsed(DOIMetrics.InputForm.URI, result.getReason());
+        return pooled(result);
+    }
+
+    private static DOIParseResult parseURIPathUninstrumented(String path) {
+        return path.startsWith("/")
+                ? parseDOI(path, 1, path.length())
+                : DOIParseResult.malformed(MalformedDOIReason.MALFORMED_URI_PATH);
+    }
+
+    /**
+     * Parses a DOI presentation like {@link #parse(CharSequence, int, int)}, but sets the key to the canonical form
+     * of a well-formed DOI instead of creating a {@link DOI}.
+     *
+     * @return null if the key was set, or the reason the candidate was rejected
+     */
+
+    static MalformedDOIReason parseKey(CharSequence doi, int start, int end, DOIKey key) {
+        return parse(doi, start, end, key).getReason();
+    }
+
+    private static DOIParseResult parse(CharSequence doi, int start, int end, DOIKey key) {
+        if (startsWithIgnoreCase(doi, start, end, PRINTABLE_DOI_PREFIX)) {
+            return parseDOI(doi, start + PRINTABLE_DOI_PREFIX.length(), end, key);
+        }
+        int urlPrefixLength = urlPrefixLength(doi, start, end);
+        if (urlPrefixLength > 0) {
+            return parseEscapedDOI(doi, start + urlPrefixLength, end, key);
+        }
+        return parseDOI(doi, start, end, key);
+    }
+
+    /**
+     * Parses the remaining bytes of a UTF-8 encoded DOI presentation without changing the position of the buffer.
+     * ASCII input, by far the most common, is parsed in place; other input is decoded first.
+     */
+
+    static DOI createUTF8(ByteBuffer utf8) throws MalformedDOIException {
+        CharSequence doi = utf8Chars(utf8);
+        return create(doi, 0, doi.length());
+    }
+
+    static DOIParseResult parseUTF8(ByteBuffer utf8) {
+        CharSequence doi = utf8Chars(utf8);
+        return parse(doi, 0, doi.length());
+    }
+
+    private static CharSequence utf8Chars(ByteBuffer utf8) {
+        int start = utf8.position();
+        int end = utf8.limit();
+        return AsciiCharSequence.isAscii(utf8, start, end)
+                ? new AsciiCharSequence(utf8, start, end - start)
+                : StandardCharsets.UTF_8.decode(utf8.duplicate());
+    }
+
+    static DOIParseResult parseDOI(CharSequence doi, int start, int end) {
+        return parseDOI(doi, start, end, null);
+    }
+
+    private static DOIParseResult parseDOI(CharSequence doi, int start, int end, DOIKey key) {
+        if (!startsWith(doi, start, end, DIRECTORY_INDICATOR_PREFIX)) {
+            return DOIParseResult.malformed(MalformedDOIReason.MISSING_DIRECTORY_INDICATOR);
+        }
+        int registrantStart = start + DIRECTORY_INDICATOR_PREFIX.length();
+        int slash = indexOf(doi, '/', registrantStart, end);
+        if (slash < 0 || isBlank(doi, registrantStart, slash)) {
+            return DOIParseResult.malformed(MalformedDOIReason.MISSING_REGISTRANT);
+        }
+        if (isBlank(doi, slash + 1, end)) {
+            return DOIParseResult.malformed(MalformedDOIReason.MISSING_SUFFIX);
+        }
+        if (key != null) {
+            key.set(doi, registrantStart, slash, doi, slash + 1, end);
+            return KEY_SET;
+        }
+        String registrantCode = doi.subSequence(registrantStart, slash).toString();
+        String suffix = doi.subSequence(slash + 1, end).toString();
+        return DOIParseResult.valid(new DOI(registrantCode, suffix));
+    }
+
+    /**
+     * Parses the DOI following a resolver URL prefix (e.g., https://doi.org/), applying the same rules
+     * as the query part of a {@link java.net.URI}: characters not allowed in URIs are rejected,
+     * percent escapes are decoded as UTF-8 and an unescaped '#' starts a fragment that is not part of the DOI.
+     */
+
+    static DOIParseResult parseEscapedDOI(CharSequence doi, int doiStart, int end) {
+        return parseEscapedDOI(doi, doiStart, end, null);
+    }
+
+    private static DOIParseResult parseEscapedDOI(CharSequence doi, int doiStart, int end, DOIKey key) {
+        int doiEnd = end;
+        boolean hasEscapes = false;
+        for (int i = doiStart; i < end; i++) {
+            char c = doi.charAt(i);
+            if (c == '%') {
+                if (i + 2 >= end || hexValue(doi.charAt(i + 1)) < 0 || hexValue(doi.charAt(i + 2)) < 0) {
+                    return DOIParseResult.malformed(MalformedDOIReason.BAD_ESCAPE);
+                }
+                if (doiEnd == end) {
+                    hasEscapes = true;
+                }
+                i += 2;
+            } else if (c == '#' && doiEnd == end) {
+                doiEnd = i;
+            } else if (!isLegalQueryChar(c)) {
+                // some invalid characters in stripped doi - probably due to invalid url escaping
+                // from historic doi url generator.
+                return DOIParseResult.malformed(MalformedDOIReason.BAD_ESCAPE);
+            }
+        }
+        if (hasEscapes) {
+            StringBuilder decoded = decode(doi, doiStart, doiEnd);
+            return parseDOI(decoded, 0, decoded.length(), key);
+        }
+        return parseDOI(doi, doiStart, doiEnd, key);
+    }
+
+    private static boolean isBlank(CharSequence value, int start, int end) {
+        // same as String.trim().isEmpty()
+        for (int i = start; i < end; i++) {
+            if (value.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes percent escapes, assuming that escapes have been validated.
+     * Sequences of escaped bytes are decoded as UTF-8, replacing malformed input like {@link java.net.URI} does.
+     */
+
+    static StringBuilder decode(CharSequence doi, int start, int end) {
+        StringBuilder decoded = new StringBuilder(end - start);
+        byte[] bytes = null;
+        int i = start;
+        while (i < end) {
+            char c = doi.charAt(i);
+            if (c != '%') {
+                decoded.append(c);
+                i++;
+            } else {
+                int length = 0;
+                while (i < end && doi.charAt(i) == '%') {
+                    int b = (hexValue(doi.charAt(i + 1)) << 4) | hexValue(doi.charAt(i + 2));
+                    if (bytes == null) {
+                        bytes = new byte[(end - i) / 3];
+                    }
+                    bytes[length++] = (byte) b;
+                    i += 3;
+                }
+                appendUTF8(decoded, bytes, length);
+            }
+        }
+        return decoded;
+    }
+
+    private static void appendUTF8(StringBuilder decoded, byte[] bytes, int length) {
+        boolean ascii = true;
+        for (int j = 0; j < length && ascii; j++) {
+            ascii = bytes[j] >= 0;
+        }
+        if (ascii) {
+            for (int j = 0; j < length; j++) {
+                decoded.append((char) bytes[j]);
+            }
+        } else {
+            decoded.append(new String(bytes, 0, length, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static int urlPrefixLength(CharSequence doi, int start, int end) {
+        if (end - start > SECURE_DEFAULT_RESOLVER.length()
+                && startsWithIgnoreCase(doi, start, end, SECURE_DEFAULT_RESOLVER)) {
+            return SECURE_DEFAULT_RESOLVER.length();
+        }
+        if (end - start > UNSECURE_DEFAULT_RESOLVER.length()
+                && startsWithIgnoreCase(doi, start, end, UNSECURE_DEFAULT_RESOLVER)) {
+            return UNSECURE_DEFAULT_RESOLVER.length();
+        }
+        return 0;
+    }
+
+    static boolean isLegalQueryChar(char c) {
+        if (c < 64) {
+            return ((1L << c) & LEGAL_QUERY_CHARS_LOW) != 0;
+        } else if (c < 128) {
+            return ((1L << (c - 64)) & LEGAL_QUERY_CHARS_HIGH) != 0;
+        } else {
+            return !Character.isSpaceChar(c) && !Character.isISOControl(c);
+        }
+    }
+
+    static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    static int indexOf(CharSequence value, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (value.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static boolean startsWith(CharSequence value, int start, int end, String prefix) {
+        if (end - start < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (value.charAt(start + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param lowerCasePrefix prefix consisting of lower case ASCII characters
+     * @return true if value starts with the prefix, ignoring the case of ASCII letters only
+     */
+
+    static boolean startsWithIgnoreCase(CharSequence value, int start, int end, String lowerCasePrefix) {
+        if (end - start < lowerCasePrefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < lowerCasePrefix.length(); i++) {
+            char c = value.charAt(start + i);
+            char p = lowerCasePrefix.charAt(i);
+            if (c != p && !(c >= 'A' && c <= 'Z' && c + ('a' - 'A') == p)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static long lowMask(String chars) {
+        long mask = 0;
+        for (int i = 0; i < chars.length(); i++) {
+            mask |= 1L << chars.charAt(i);
+        }
+        return mask;
+    }
+
+    static long highMask(String chars) {
+        long mask = 0;
+        for (int i = 0; i < chars.length(); i++) {
+            mask |= 1L << (chars.charAt(i) - 64);
+        }
+        return mask;
+    }
+
+}
@@ -0,0 +1,244 @@
+package org.globalbioticinteractions.doi;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Bounded, thread-safe canonicalizing pool for DOIs, so that identical DOIs parsed from many records share a single instance.
+ * <p>
+ * DOIs are kept in least-recently-used order in independently locked segments. Registrant codes, of which there are
+ * relatively few (e.g., 1371 for PLOS), are interned separately so that distinct DOIs of the same registrant share
+ * their registrant code.
+ * <p>
+ * Only DOIs that are identical, including case, are shared: a DOI that is equal to a pooled DOI, but differs in case,
+ * is returned as-is, so that pooling never changes how a DOI is printed.
+ * <p>
+ * To share DOIs without changing existing code, install a pool as default using {@link #setDefault(DOIPool)}, which
+ * {@link DOI#create(String)}, {@link DOI#parse(CharSequence)} and their variants then consult. No pool is installed
+ * by default.
+ */
+
+public final class DOIPool {
+
+    static final int DEFAULT_MAXIMUM_REGISTRANT_CODES = 100000;
+
+    private static volatile DOIPool defaultPool;
+
+    private final Segment[] segments;
+    private final int maximumRegistrantCodes;
+    private final ConcurrentMap<String, String> registrantCodes;
+
+    /**
+     * @param maximumSize maximum number of pooled DOIs
+     */
+
+    public DOIPool(int maximumSize) {
+        this(maximumSize, DEFAULT_MAXIMUM_REGISTRANT_CODES, 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param maximumSize            maximum number of pooled DOIs
+     * @param maximumRegistrantCodes maximum number of interned registrant codes
+     * @param concurrencyLevel       expected number of threads using the pool concurrently
+     */
+
+    public DOIPool(int maximumSize, int maximumRegistrantCodes, int concurrencyLevel) {
+        if (maximumSize < 1 || maximumRegistrantCodes < 0 || concurrencyLevel < 1) {
+            throw new IllegalArgumentException("expected positive maximum size and concurrency level");
+        }
+        int segmentCount = Integer.highestOneBit(Math.min(concurrencyLevel, maximumSize) * 2 - 1);
+        this.segments = new Segment[segmentCount];
+        int segmentSize = (maximumSize + segmentCount - 1) / segmentCount;
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+        this.maximumRegistrantCodes = maximumRegistrantCodes;
+        this.registrantCodes = new ConcurrentHashMap<String, String>(Math.min(maximumRegistrantCodes, 1024), 0.75f, concurrencyLevel);
+    }
+
+    /**
+     * @param pool pool for {@link DOI#create(String)}, {@link DOI#parse(CharSequence)} and their variants to return
+     *             pooled instances from, or null to stop pooling
+     */
+
+    public static void setDefault(DOIPool pool) {
+        defaultPool = pool;
+    }
+
+    /**
+     * @return installed default pool, or null if none is installed
+     */
+
+    public static DOIPool getDefault() {
+        return defaultPool;
+    }
+
+    /**
+     * Same as {@link DOI#create(CharSequence)}, returning a pooled instance.
+     *
+     * @param doiChars characters containing a doi
+     * @return a well-formed, pooled DOI
+     * @throws MalformedDOIException on malformed DOI (e.g., 9.123/2432)
+     */
+
+    public DOI create(CharSequence doiChars) throws MalformedDOIException {
+        return intern(DOI.create(doiChars));
+    }
+
+    /**
+     * Same as {@link DOI#tryCreate(CharSequence)}, returning a pooled instance.
+     *
+     * @param doiChars characters containing a doi
+     * @return a well-formed, pooled DOI, or null if none was found
+     */
+
+    public DOI tryCreate(CharSequence doiChars) {
+        DOI doi = DOI.tryCreate(doiChars);
+        return doi == null ? null : intern(doi);
+    }
+
+    /**
+     * @param doi DOI to pool
+     * @return pooled DOI identical to the provided DOI
+     */
+
+    public DOI intern(DOI doi) {
+        return segmentFor(doi).intern(doi, this);
+    }
+
+    /**
+     * @param registrantCode registrant code to intern
+     * @return shared instance of the registrant code, or the provided instance if the maximum number of registrant codes is reached
+     */
+
+    public String internRegistrantCode(String registrantCode) {
+        String interned = registrantCodes.get(registrantCode);
+        if (interned == null) {
+            if (registrantCodes.size() >= maximumRegistrantCodes) {
+                return registrantCode;
+            }
+            interned = registrantCodes.putIfAbsent(registrantCode, registrantCode);
+            if (interned == null) {
+                interned = registrantCode;
+            }
+        }
+        return interned;
+    }
+
+    /**
+     * @return number of lookups that returned a pooled instance
+     */
+
+    public long getHitCount() {
+        long hits = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                hits += segment.hits;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * @return number of lookups that did not find a pooled instance
+     */
+
+    public long getMissCount() {
+        long misses = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                misses += segment.misses;
+            }
+        }
+        return misses;
+    }
+
+    /**
+     * @return number of DOIs evicted to stay within the maximum size
+     */
+
+    public long getEvictionCount() {
+        long evictions = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                evictions += segment.evictions;
+            }
+        }
+        return evictions;
+    }
+
+    /**
+     * @return number of pooled DOIs
+     */
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.dois.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return number of interned registrant codes
+     */
+
+    public int registrantCodeCount() {
+        return registrantCodes.size();
+    }
+
+    private Segment segmentFor(DOI doi) {
+        // select segments using the high bits of a scrambled hash, as the maps within segments use the low bits
+        int h = doi.hashCode() * 0x9E3779B9;
+        return segments[(h >>> 16) & (segments.length - 1)];
+    }
+
+    private static boolean isIdentical(DOI a, DOI b) {
+        return a.getRegistrantCode().equals(b.getRegistrantCode())
+                && a.getSuffix().equals(b.getSuffix());
+    }
+
+    private static final class Segment {
+        private final LinkedHashMap<DOI, DOI> dois;
+        private long hits;
+        private long misses;
+        private long evictions;
+
+        Segment(final int maximumSize) {
+            this.dois = new LinkedHashMap<DOI, DOI>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<DOI, DOI> eldest) {
+                    boolean evict = size() > maximumSize;
+                    if (evict) {
+                        evictions++;
+                    }
+                    return evict;
+                }
+            };
+        }
+
+        synchronized DOI intern(DOI doi, DOIPool pool) {
+            DOI pooled = dois.get(doi);
+            if (pooled != null && isIdentical(doi, pooled)) {
+                hits++;
+                return pooled;
+            }
+            misses++;
+            if (pooled != null) {
+                // same DOI in different case, keep the pooled one
+                return doi;
+            }
+            String registrantCode = pool.internRegistrantCode(doi.getRegistrantCode());
+            DOI canonical = registrantCode == doi.getRegistrantCode()
+                    ? doi
+                    : new DOI(registrantCode, doi.getSuffix());
+            dois.put(canonical, canonical);
+            return canonical;
+        }
+    }
+
+}
@@ -0,0 +1,54 @@
+package org.globalbioticinteractions.doi;
+
+/**
+ * Repairs of "almost DOIs" applied by {@link DOI#repair(CharSequence)}, see {@link DOIRepairResult#getRepairs()}.
+ */
+
+public enum DOIRepair {
+
+    /**
+     * Leading or trailing whitespace, including Unicode spaces (e.g., no-break space) and zero width spaces, removed.
+     */
+    TRIMMED_WHITESPACE,
+
+    /**
+     * Leading opening brackets or quotes, or trailing punctuation, quotes or unbalanced closing brackets removed
+     * (e.g., (doi:10.123/456). or "10.123/456",).
+     */
+    STRIPPED_PUNCTUATION,
+
+    /**
+     * Printable DOI prefix with whitespace, or without colon, repaired (e.g., DOI 10.123/456 or doi: 10.123/456).
+     */
+    SPACED_PREFIX,
+
+    /**
+     * Repeated prefix removed, like a printable DOI prefix followed by another one or by a resolver URL
+     * (e.g., doi:doi:10.123/456 or doi:https://doi.org/10.123/456).
+     */
+    DOUBLED_PREFIX,
+
+    /**
+     * DOI URL using a resolver URL other than https://doi.org/ or http://dx.doi.org/ (e.g., doi.org/10.123/456
+     * without scheme, http://doi.org/10.123/456 or https://www.doi.org/10.123/456).
+     */
+    NONSTANDARD_RESOLVER,
+
+    /**
+     * Doubly percent encoded DOI URL decoded twice (e.g., https://doi.org/10.123%252F456).
+     */
+    DOUBLE_ENCODED,
+
+    /**
+     * DOI URL with characters that should have been escaped, like '&lt;', '&gt;' or a '#' that is part of the DOI,
+     * or a malformed percent escape, taken literally (e.g., http://dx.doi.org/10.1002/(SICI)1097-4695(199708)33:2&lt;175::AID-NEU6&gt;3.0.CO;2-#).
+     * Such characters in the fragment are ignored along with the fragment (e.g., https://doi.org/10.123/456#a&lt;b&gt;).
+     */
+    UNESCAPED_URL_CHARACTERS,
+
+    /**
+     * Unicode dashes (e.g., en dash, em dash or minus sign) replaced by hyphen-minus '-'.
+     */
+    NORMALIZED_DASHES
+
+}
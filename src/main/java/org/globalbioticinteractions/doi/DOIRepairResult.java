@@ -0,0 +1,74 @@
+package org.globalbioticinteractions.doi;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Outcome of parsing a DOI candidate in lenient mode, see {@link DOI#repair(CharSequence)}: the parse result of the
+ * repaired candidate, and the repairs that were applied.
+ */
+
+public final class DOIRepairResult {
+
+    private final DOIParseResult result;
+    // bit mask of applied repairs, by ordinal
+    private final int repairs;
+
+    DOIRepairResult(DOIParseResult result, int repairs) {
+        this.result = result;
+        this.repairs = repairs;
+    }
+
+    /**
+     * @return true if a well-formed DOI was found, with or without repairs
+     */
+
+    public boolean isValid() {
+        return result.isValid();
+    }
+
+    /**
+     * @return well-formed DOI, or null if the candidate could not be repaired
+     */
+
+    public DOI getDOI() {
+        return result.getDOI();
+    }
+
+    /**
+     * @return reason the repaired candidate was rejected for, or null if it was well-formed
+     */
+
+    public MalformedDOIReason getReason() {
+        return result.getReason();
+    }
+
+    /**
+     * @return repairs applied to the candidate, empty if none were needed
+     */
+
+    public Set<DOIRepair> getRepairs() {
+        Set<DOIRepair> applied = EnumSet.noneOf(DOIRepair.class);
+        for (DOIRepair repair : DOIRepair.values()) {
+            if ((repairs & 1 << repair.ordinal()) != 0) {
+                applied.add(repair);
+            }
+        }
+        return Collections.unmodifiableSet(applied);
+    }
+
+    /**
+     * @return true if any repairs were applied
+     */
+
+    public boolean isRepaired() {
+        return repairs != 0;
+    }
+
+    @Override
+    public String toString() {
+        return isRepaired() ? result + " " + getRepairs() : result.toString();
+    }
+
+}
@@ -0,0 +1,334 @@
+package org.globalbioticinteractions.doi;
+
+/**
+ * Lenient parsing of "almost DOIs", see {@link DOI#repair(CharSequence)}.
+ * <p>
+ * Candidates are trimmed from both ends, then the prefix is matched and the rest is decoded and parsed like
+ * {@link DOIParser} does, each step in a single forward pass without regular expressions, so that the time taken is
+ * linear in the length of the candidate. Candidates are only copied when decoded, and repairs are tracked in a bit
+ * mask, so that well-formed DOIs take little more than parsing them.
+ */
+
+final class DOIRepairer {
+
+    private static final String PRINTABLE_DOI_PREFIX = "doi";
+    private static final String SECURE_SCHEME = "https://";
+    private static final String UNSECURE_SCHEME = "http://";
+    private static final String RESOLVER_HOST = "doi.org/";
+
+    private static final String OPENING_PUNCTUATION = "([<\"'\u201C\u2018\u00AB";
+    private static final String TRAILING_PUNCTUATION = ".,;:!?\"'\u201D\u2019\u00BB";
+    private static final String CLOSING_BRACKETS = ")]>";
+    private static final String OPENING_BRACKETS = "([<";
+
+    private final CharSequence candidate;
+    private int start;
+    private int end;
+    // bit mask of applied repairs, by ordinal
+    private int repairs;
+
+    private DOIRepairer(CharSequence candidate) {
+        this.candidate = candidate;
+        this.end = candidate.length();
+    }
+
+    static DOIRepairResult repair(CharSequence candidate) {
+        return new DOIRepairer(candidate).repair();
+    }
+
+    private DOIRepairResult repair() {
+        trimLeading();
+        trimTrailing();
+        int prefixes = 0;
+        for (int printableDOIStart = printableDOIStart(); printableDOIStart >= 0; printableDOIStart = printableDOIStart()) {
+            start = printableDOIStart;
+            prefixes++;
+        }
+        // also after a printable DOI prefix, as in DOI: https://doi.org/10.123/456
+        int doiStart = resolverURLStart();
+        if (prefixes > 1 || prefixes > 0 && doiStart >= 0) {
+            add(DOIRepair.DOUBLED_PREFIX);
+        }
+        DOIParseResult result = doiStart >= 0
+                ? parseEscapedDOI(doiStart)
+                : parseDOI(candidate, start, end);
+        return new DOIRepairResult(result, repairs);
+    }
+
+    private void add(DOIRepair repair) {
+        repairs |= 1 << repair.ordinal();
+    }
+
+    /**
+     * Removes leading whitespace, opening brackets and quotes.
+     */
+
+    private void trimLeading() {
+        start = skipSpaces(start);
+        if (start > 0) {
+            add(DOIRepair.TRIMMED_WHITESPACE);
+        }
+        while (start < end && OPENING_PUNCTUATION.indexOf(candidate.charAt(start)) >= 0) {
+            add(DOIRepair.STRIPPED_PUNCTUATION);
+            start = skipSpaces(start + 1);
+        }
+    }
+
+    /**
+     * Removes trailing whitespace, punctuation and closing brackets without opening bracket, like
+     * {@link DOIExtractor} does. Brackets are counted once, and only if the candidate ends with one.
+     */
+
+    private void trimTrailing() {
+        int[] unbalanced = null;
+        while (end > start) {
+            char last = candidate.charAt(end - 1);
+            int bracket = CLOSING_BRACKETS.indexOf(last);
+            if (isSpace(last)) {
+                add(DOIRepair.TRIMMED_WHITESPACE);
+            } else if (TRAILING_PUNCTUATION.indexOf(last) >= 0) {
+                add(DOIRepair.STRIPPED_PUNCTUATION);
+            } else if (bracket >= 0) {
+                if (unbalanced == null) {
+                    unbalanced = countUnbalancedClosingBrackets();
+                }
+                if (unbalanced[bracket] == 0) {
+                    break;
+                }
+                unbalanced[bracket]--;
+                add(DOIRepair.STRIPPED_PUNCTUATION);
+            } else {
+                break;
+            }
+            end--;
+        }
+    }
+
+    /**
+     * @return number of closing parentheses, square brackets and angle brackets without opening bracket
+     */
+
+    private int[] countUnbalancedClosingBrackets() {
+        int[] balance = new int[CLOSING_BRACKETS.length()];
+        for (int i = start; i < end; i++) {
+            char c = candidate.charAt(i);
+            int opening = OPENING_BRACKETS.indexOf(c);
+            if (opening >= 0) {
+                balance[opening]++;
+            } else {
+                int closing = CLOSING_BRACKETS.indexOf(c);
+                if (closing >= 0) {
+                    balance[closing]--;
+                }
+            }
+        }
+        for (int i = 0; i < balance.length; i++) {
+            balance[i] = Math.max(0, -balance[i]);
+        }
+        return balance;
+    }
+
+    /**
+     * @return start of the DOI after a printable DOI prefix (e.g., doi:, DOI or doi: ), or -1 if not found
+     */
+
+    private int printableDOIStart() {
+        int separatorStart = start + PRINTABLE_DOI_PREFIX.length();
+        if (separatorStart >= end || !DOIParser.startsWithIgnoreCase(candidate, start, end, PRINTABLE_DOI_PREFIX)) {
+            return -1;
+        }
+        int doiStart = separatorStart;
+        while (doiStart < end && (candidate.charAt(doiStart) == ':' || isSpace(candidate.charAt(doiStart)))) {
+            doiStart++;
+        }
+        if (doiStart == separatorStart) {
+            return -1;
+        }
+        if (doiStart != separatorStart + 1 || candidate.charAt(separatorStart) != ':') {
+            add(DOIRepair.SPACED_PREFIX);
+        }
+        return doiStart;
+    }
+
+    /**
+     * @return start of the DOI after a resolver URL (e.g., https://doi.org/ or doi.org/), or -1 if not found
+     */
+
+    private int resolverURLStart() {
+        int i = start;
+        String scheme = "";
+        if (DOIParser.startsWithIgnoreCase(candidate, i, end, SECURE_SCHEME)) {
+            scheme = SECURE_SCHEME;
+        } else if (DOIParser.startsWithIgnoreCase(candidate, i, end, UNSECURE_SCHEME)) {
+            scheme = UNSECURE_SCHEME;
+        }
+        i += scheme.length();
+        String subdomain = "";
+        if (DOIParser.startsWithIgnoreCase(candidate, i, end, "dx.")) {
+            subdomain = "dx.";
+        } else if (DOIParser.startsWithIgnoreCase(candidate, i, end, "www.")) {
+            subdomain = "www.";
+        }
+        i += subdomain.length();
+        if (!DOIParser.startsWithIgnoreCase(candidate, i, end, RESOLVER_HOST)) {
+            return -1;
+        }
+        // https://doi.org/ or http://dx.doi.org/, see DOIParser.SECURE_DEFAULT_RESOLVER and UNSECURE_DEFAULT_RESOLVER
+        boolean isDefaultResolver = SECURE_SCHEME.equals(scheme) && subdomain.isEmpty()
+                || UNSECURE_SCHEME.equals(scheme) && "dx.".equals(subdomain);
+        if (!isDefaultResolver) {
+            add(DOIRepair.NONSTANDARD_RESOLVER);
+        }
+        return i + RESOLVER_HOST.length();
+    }
+
+    /**
+     * Same as {@link DOIParser#parseEscapedDOI(CharSequence, int, int)}, but decodes doubly encoded escapes twice,
+     * and takes DOIs with characters that are not allowed in URIs, or malformed escapes, literally. Such characters
+     * after the first '#' are dropped with the fragment, while a '#' without fragment (e.g., as in ...;2-#) is taken
+     * as part of the DOI. Only literal dashes are normalized, not dashes decoded from escapes.
+     */
+
+    private DOIParseResult parseEscapedDOI(int doiStart) {
+        int doiEnd = end;
+        boolean hasEscapes = false;
+        boolean hasDoubleEscapes = false;
+        boolean hasDashes = false;
+        for (int i = doiStart; i < end; i++) {
+            char c = candidate.charAt(i);
+            if (c == '#' && doiEnd == end) {
+                if (i + 1 < end) {
+                    doiEnd = i;
+                } else {
+                    add(DOIRepair.UNESCAPED_URL_CHARACTERS);
+                }
+            } else if (c == '%' ? !isEscape(candidate, i, end) : !DOIParser.isLegalQueryChar(c)) {
+                add(DOIRepair.UNESCAPED_URL_CHARACTERS);
+                if (doiEnd == end) {
+                    return parseDOI(candidate, doiStart, end);
+                }
+                // in the fragment, which is not part of the DOI either way
+                break;
+            } else if (c == '%') {
+                if (doiEnd == end) {
+                    hasEscapes = true;
+                    hasDoubleEscapes |= isDoubleEscape(candidate, i, doiEnd);
+                }
+                i += 2;
+            } else if (doiEnd == end && isDash(c)) {
+                hasDashes = true;
+            }
+        }
+        if (!hasEscapes) {
+            return parseDOI(candidate, doiStart, doiEnd);
+        }
+        if (hasDoubleEscapes) {
+            add(DOIRepair.DOUBLE_ENCODED);
+        }
+        StringBuilder decoded;
+        if (hasDoubleEscapes || hasDashes) {
+            StringBuilder escaped = normalizeEscaped(candidate, doiStart, doiEnd);
+            decoded = DOIParser.decode(escaped, 0, escaped.length());
+        } else {
+            decoded = DOIParser.decode(candidate, doiStart, doiEnd);
+        }
+        DOIParseResult result = DOIParser.parseDOI(decoded, 0, decoded.length());
+        if (hasDashes && result.isValid()) {
+            add(DOIRepair.NORMALIZED_DASHES);
+        }
+        return result;
+    }
+
+    /**
+     * @return escapes like %252F replaced by %2F, dashes replaced by '-', other characters copied as is
+     */
+
+    private static StringBuilder normalizeEscaped(CharSequence candidate, int start, int end) {
+        StringBuilder escaped = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = candidate.charAt(i);
+            escaped.append(isDash(c) ? '-' : c);
+            if (c == '%' && isDoubleEscape(candidate, i, end)) {
+                // skip the encoded '%', keeping the escaped hex digits that follow
+                i += 2;
+            }
+        }
+        return escaped;
+    }
+
+    private static boolean isEscape(CharSequence candidate, int i, int end) {
+        return candidate.charAt(i) == '%'
+                && i + 2 < end
+                && DOIParser.hexValue(candidate.charAt(i + 1)) >= 0
+                && DOIParser.hexValue(candidate.charAt(i + 2)) >= 0;
+    }
+
+    /**
+     * @return true if an escape starting at i is an escaped '%' followed by two hex digits, e.g., %252F
+     */
+
+    private static boolean isDoubleEscape(CharSequence candidate, int i, int end) {
+        return i + 4 < end
+                && candidate.charAt(i + 1) == '2'
+                && candidate.charAt(i + 2) == '5'
+                && DOIParser.hexValue(candidate.charAt(i + 3)) >= 0
+                && DOIParser.hexValue(candidate.charAt(i + 4)) >= 0;
+    }
+
+    /**
+     * Parses like {@link DOIParser#parseDOI(CharSequence, int, int)}, then replaces dashes in the registrant code and
+     * suffix of well-formed DOIs by '-', as dashes do not make a DOI well-formed or malformed.
+     */
+
+    private DOIParseResult parseDOI(CharSequence doi, int start, int end) {
+        DOIParseResult result = DOIParser.parseDOI(doi, start, end);
+        if (!result.isValid()) {
+            return result;
+        }
+        String registrantCode = result.getDOI().getRegistrantCode();
+        String suffix = result.getDOI().getSuffix();
+        String normalizedRegistrantCode = normalizeDashes(registrantCode);
+        String normalizedSuffix = normalizeDashes(suffix);
+        if (normalizedRegistrantCode == registrantCode && normalizedSuffix == suffix) {
+            return result;
+        }
+        add(DOIRepair.NORMALIZED_DASHES);
+        return DOIParseResult.valid(new DOI(normalizedRegistrantCode, normalizedSuffix));
+    }
+
+    /**
+     * @return value with dashes replaced by '-', or the value itself if it has none
+     */
+
+    private static String normalizeDashes(String value) {
+        char[] chars = null;
+        for (int i = 0; i < value.length(); i++) {
+            if (isDash(value.charAt(i))) {
+                if (chars == null) {
+                    chars = value.toCharArray();
+                }
+                chars[i] = '-';
+            }
+        }
+        return chars == null ? value : new String(chars);
+    }
+
+    private int skipSpaces(int from) {
+        while (from < end && isSpace(candidate.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    private static boolean isSpace(char c) {
+        return c <= ' '
+                || c >= '\u0080' && (Character.isWhitespace(c) || Character.isSpaceChar(c) || Character.isISOControl(c)
+                || c == '\u200B' || c == '\uFEFF');
+    }
+
+    private static boolean isDash(char c) {
+        // hyphen, non-breaking hyphen, figure dash, en dash, em dash, horizontal bar, minus sign and their small and full width forms
+        return c >= '\u2010' && (c <= '\u2015' || c == '\u2212' || c == '\uFE58' || c == '\uFE63' || c == '\uFF0D');
+    }
+
+}
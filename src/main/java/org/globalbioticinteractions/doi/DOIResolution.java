@@ -0,0 +1,92 @@
+package org.globalbioticinteractions.doi;
+
+import java.net.URI;
+
+/**
+ * Outcome of resolving a {@link DOI} through a DOI resolver, see {@link DOIResolver}.
+ * <p>
+ * Depending on how the resolver was configured, a resolution holds either the landing page the DOI redirects to
+ * (see {@link #getLocation()}) or the content, such as citation metadata, found by following redirects
+ * (see {@link #getBody()}).
+ */
+
+public final class DOIResolution {
+
+    private final DOI doi;
+    private final URI uri;
+    private final int statusCode;
+    private final URI location;
+    private final String contentType;
+    private final String body;
+
+    DOIResolution(DOI doi, URI uri, int statusCode, URI location, String contentType, String body) {
+        this.doi = doi;
+        this.uri = uri;
+        this.statusCode = statusCode;
+        this.location = location;
+        this.contentType = contentType;
+        this.body = body;
+    }
+
+    /**
+     * @return resolved DOI
+     */
+
+    public DOI getDOI() {
+        return doi;
+    }
+
+    /**
+     * @return URI of the last request made, e.g., https://doi.org/10.123/456 if no redirects were followed
+     */
+
+    public URI getURI() {
+        return uri;
+    }
+
+    /**
+     * @return HTTP status code of the last response (e.g., 302 for a DOI redirecting to its landing page, 404 for an unknown DOI)
+     */
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return true if the DOI was found, that is, the last response was successful or a redirect
+     */
+
+    public boolean isFound() {
+        return statusCode >= 200 && statusCode < 400;
+    }
+
+    /**
+     * @return URI the last response redirected to (e.g., the landing page of the DOI), or null if it did not redirect
+     */
+
+    public URI getLocation() {
+        return location;
+    }
+
+    /**
+     * @return content type of the last response, or null if unknown
+     */
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return content of the last response, or null if no content was requested
+     */
+
+    public String getBody() {
+        return body;
+    }
+
+    @Override
+    public String toString() {
+        return statusCode + " " + uri + (location == null ? "" : " -> " + location);
+    }
+
+}
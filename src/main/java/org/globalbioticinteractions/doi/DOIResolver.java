@@ -0,0 +1,530 @@
+package org.globalbioticinteractions.doi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves DOIs through a DOI resolver (https://doi.org/ by default) using the URIs of {@link DOI#toURI(URI)}.
+ * <p>
+ * Requests run concurrently on an {@link ExecutorService}, limited per host in number of concurrent requests and
+ * requests per second. Concurrent requests for the same DOI share a single request, and resolutions are cached for a
+ * limited time, so that resolving the same DOIs repeatedly does not hit the resolver again. Failed requests (I/O errors,
+ * server errors and 429 Too Many Requests) are not cached.
+ * <p>
+ * By default, a DOI is resolved to its landing page using a HEAD request without following redirects, see
+ * {@link DOIResolution#getLocation()}. With {@link Builder#accept(String)}, resolvers that support content
+ * negotiation return metadata instead (e.g., "application/vnd.citationstyles.csl+json"), following redirects to
+ * the metadata provider, see {@link DOIResolution#getBody()}.
+ * <p>
+ * HTTP requests are made by a {@link Transport}, by default using {@link HttpURLConnection}.
+ */
+
+public final class DOIResolver {
+
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private final URI resolver;
+    private final ExecutorService executor;
+    private final Transport transport;
+    private final String accept;
+    private final int maxRedirects;
+    private final int maxConcurrentRequestsPerHost;
+    private final long requestIntervalNanos;
+    private final long timeToLiveNanos;
+    private final int cacheSize;
+
+    private final ConcurrentMap<String, HostLimiter> hosts = new ConcurrentHashMap<String, HostLimiter>();
+    private final ConcurrentMap<DOI, Future<DOIResolution>> inFlight = new ConcurrentHashMap<DOI, Future<DOIResolution>>();
+    private final Map<DOI, CachedResolution> cache;
+
+    private DOIResolver(Builder builder) {
+        this.resolver = builder.resolver;
+        this.executor = builder.executor;
+        this.transport = builder.transport == null ? new URLConnectionTransport(builder.timeoutMillis) : builder.transport;
+        this.accept = builder.accept;
+        this.maxRedirects = builder.maxRedirects;
+        this.maxConcurrentRequestsPerHost = builder.maxConcurrentRequestsPerHost;
+        this.requestIntervalNanos = builder.requestIntervalNanos;
+        this.timeToLiveNanos = builder.timeToLiveNanos;
+        this.cacheSize = builder.cacheSize;
+        this.cache = new LinkedHashMap<DOI, CachedResolution>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<DOI, CachedResolution> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * @param doi DOI to resolve
+     * @return future resolution, failing with an {@link IOException} if the resolver could not be reached
+     */
+
+    public Future<DOIResolution> resolve(final DOI doi) {
+        DOIResolution cached = cached(doi);
+        if (cached != null) {
+            return new CompletedFuture(cached);
+        }
+        Future<DOIResolution> future = inFlight.get(doi);
+        if (future == null) {
+            FutureTask<DOIResolution> task = new FutureTask<DOIResolution>(new Callable<DOIResolution>() {
+                @Override
+                public DOIResolution call() throws IOException, InterruptedException {
+                    try {
+                        return fetchAndCache(doi);
+                    } finally {
+                        inFlight.remove(doi);
+                    }
+                }
+            });
+            future = inFlight.putIfAbsent(doi, task);
+            if (future == null) {
+                future = task;
+                try {
+                    executor.execute(task);
+                } catch (RuntimeException e) {
+                    inFlight.remove(doi, task);
+                    throw e;
+                }
+            }
+        }
+        return future;
+    }
+
+    /**
+     * Resolves a batch of DOIs, sharing requests for DOIs that occur more than once.
+     *
+     * @param dois DOIs to resolve
+     * @return future resolutions by DOI, in order of first occurrence
+     */
+
+    public Map<DOI, Future<DOIResolution>> resolveAll(Collection<DOI> dois) {
+        Map<DOI, Future<DOIResolution>> futures = new LinkedHashMap<DOI, Future<DOIResolution>>();
+        for (DOI doi : dois) {
+            if (!futures.containsKey(doi)) {
+                futures.put(doi, resolve(doi));
+            }
+        }
+        return futures;
+    }
+
+    private DOIResolution fetchAndCache(DOI doi) throws IOException, InterruptedException {
+        DOIResolution resolution = fetch(doi);
+        int statusCode = resolution.getStatusCode();
+        if (timeToLiveNanos > 0 && statusCode < 500 && statusCode != TOO_MANY_REQUESTS) {
+            synchronized (cache) {
+                cache.put(doi, new CachedResolution(resolution, System.nanoTime() + timeToLiveNanos));
+            }
+        }
+        return resolution;
+    }
+
+    private DOIResolution cached(DOI doi) {
+        synchronized (cache) {
+            CachedResolution cached = cache.get(doi);
+            if (cached == null) {
+                return null;
+            }
+            if (System.nanoTime() - cached.expiresAt >= 0) {
+                cache.remove(doi);
+                return null;
+            }
+            return cached.resolution;
+        }
+    }
+
+    private DOIResolution fetch(DOI doi) throws IOException, InterruptedException {
+        URI uri = doi.toURI(resolver);
+        if (uri == null) {
+            throw new IOException("cannot create URI for [" + doi + "] with resolver [" + resolver + "]");
+        }
+        // landing pages are the redirect of the resolver itself, content may be redirected to elsewhere
+        String method = accept == null ? "HEAD" : "GET";
+        int redirectsToFollow = accept == null ? 0 : maxRedirects;
+        for (int redirects = 0; ; redirects++) {
+            Response response = request(method, uri);
+            URI location = locationOf(uri, response);
+            int statusCode = response.getStatusCode();
+            boolean redirect = statusCode >= 300 && statusCode < 400 && location != null;
+            if (!redirect || redirects >= redirectsToFollow) {
+                return new DOIResolution(doi, uri, statusCode, redirect ? location : null, response.getContentType(), response.getBody());
+            }
+            uri = location;
+        }
+    }
+
+    private static URI locationOf(URI uri, Response response) throws IOException {
+        if (response.getLocation() == null) {
+            return null;
+        }
+        try {
+            return uri.resolve(response.getLocation());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("malformed redirect location [" + response.getLocation() + "] for [" + uri + "]", e);
+        }
+    }
+
+    private Response request(String method, URI uri) throws IOException, InterruptedException {
+        HostLimiter limiter = limiterFor(uri);
+        limiter.acquire();
+        try {
+            return transport.execute(method, uri, accept);
+        } finally {
+            limiter.release();
+        }
+    }
+
+    private HostLimiter limiterFor(URI uri) {
+        String host = uri.getHost() == null ? "" : uri.getHost().toLowerCase(Locale.ROOT);
+        HostLimiter limiter = hosts.get(host);
+        if (limiter == null) {
+            HostLimiter newLimiter = new HostLimiter(maxConcurrentRequestsPerHost, requestIntervalNanos);
+            limiter = hosts.putIfAbsent(host, newLimiter);
+            if (limiter == null) {
+                limiter = newLimiter;
+            }
+        }
+        return limiter;
+    }
+
+    /**
+     * Makes single HTTP requests, without following redirects.
+     */
+
+    public interface Transport {
+
+        /**
+         * @param method HTTP method, GET or HEAD
+         * @param uri    URI to request
+         * @param accept media type for the Accept header, or null
+         * @return response
+         * @throws IOException on failure to make the request
+         */
+
+        Response execute(String method, URI uri, String accept) throws IOException;
+
+    }
+
+    /**
+     * Response to a single HTTP request, see {@link Transport}.
+     */
+
+    public static final class Response {
+        private final int statusCode;
+        private final String location;
+        private final String contentType;
+        private final String body;
+
+        /**
+         * @param statusCode  HTTP status code
+         * @param location    value of the Location header, or null
+         * @param contentType value of the Content-Type header, or null
+         * @param body        content of the response, or null
+         */
+
+        public Response(int statusCode, String location, String contentType, String body) {
+            this.statusCode = statusCode;
+            this.location = location;
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public String getLocation() {
+            return location;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getBody() {
+            return body;
+        }
+    }
+
+    public static final class Builder {
+        private final ExecutorService executor;
+        private URI resolver = URI.create(DOIParser.SECURE_DEFAULT_RESOLVER);
+        private Transport transport;
+        private String accept;
+        private int maxRedirects = 5;
+        private int maxConcurrentRequestsPerHost = 8;
+        private long requestIntervalNanos = TimeUnit.SECONDS.toNanos(1) / 50;
+        private long timeToLiveNanos = TimeUnit.HOURS.toNanos(1);
+        private int cacheSize = 10000;
+        private int timeoutMillis = 30000;
+
+        /**
+         * @param executor executor to make requests with, not shut down by the resolver. As requests wait for
+         *                 responses and rate limits, an executor with at least as many threads as concurrent
+         *                 requests is recommended.
+         */
+
+        public Builder(ExecutorService executor) {
+            this.executor = executor;
+        }
+
+        /**
+         * @param resolver resolver to use (e.g., https://doi.org/ , the default, or a local stand-in like http://localhost:8080/)
+         * @return this builder
+         */
+
+        public Builder resolver(URI resolver) {
+            this.resolver = resolver;
+            return this;
+        }
+
+        /**
+         * @param transport transport to make HTTP requests with, instead of {@link HttpURLConnection}
+         * @return this builder
+         */
+
+        public Builder transport(Transport transport) {
+            this.transport = transport;
+            return this;
+        }
+
+        /**
+         * @param mediaType media type to request (e.g., application/vnd.citationstyles.csl+json), following redirects
+         *                  to the content, or null to resolve landing pages only
+         * @return this builder
+         */
+
+        public Builder accept(String mediaType) {
+            this.accept = mediaType;
+            return this;
+        }
+
+        /**
+         * @param maxRedirects maximum number of redirects to follow when requesting content, see {@link #accept(String)}
+         * @return this builder
+         */
+
+        public Builder maxRedirects(int maxRedirects) {
+            if (maxRedirects < 0) {
+                throw new IllegalArgumentException("maximum number of redirects must not be negative");
+            }
+            this.maxRedirects = maxRedirects;
+            return this;
+        }
+
+        /**
+         * @param maxConcurrentRequests maximum number of concurrent requests to a single host
+         * @return this builder
+         */
+
+        public Builder maxConcurrentRequestsPerHost(int maxConcurrentRequests) {
+            if (maxConcurrentRequests < 1) {
+                throw new IllegalArgumentException("maximum number of concurrent requests must be positive");
+            }
+            this.maxConcurrentRequestsPerHost = maxConcurrentRequests;
+            return this;
+        }
+
+        /**
+         * @param requestsPerSecond maximum number of requests per second to a single host
+         * @return this builder
+         */
+
+        public Builder maxRequestsPerSecondPerHost(double requestsPerSecond) {
+            if (!(requestsPerSecond > 0)) {
+                throw new IllegalArgumentException("maximum number of requests per second must be positive");
+            }
+            this.requestIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+            return this;
+        }
+
+        /**
+         * @param timeToLive time to cache resolutions for, or 0 to disable caching
+         * @param unit       unit of time to live
+         * @param maxSize    maximum number of cached resolutions, evicting the least recently used
+         * @return this builder
+         */
+
+        public Builder cache(long timeToLive, TimeUnit unit, int maxSize) {
+            if (timeToLive < 0 || maxSize < 0) {
+                throw new IllegalArgumentException("time to live and cache size must not be negative");
+            }
+            this.timeToLiveNanos = unit.toNanos(timeToLive);
+            this.cacheSize = maxSize;
+            return this;
+        }
+
+        /**
+         * @param timeout connect and read timeout of the default transport
+         * @param unit    unit of timeout
+         * @return this builder
+         */
+
+        public Builder timeout(long timeout, TimeUnit unit) {
+            this.timeoutMillis = (int) Math.min(Integer.MAX_VALUE, unit.toMillis(timeout));
+            return this;
+        }
+
+        public DOIResolver build() {
+            return new DOIResolver(this);
+        }
+    }
+
+    /**
+     * Limits the number of concurrent requests to a host and spaces out their start by a minimum interval.
+     */
+
+    private static final class HostLimiter {
+        private final Semaphore permits;
+        private final long intervalNanos;
+        private long nextStart = System.nanoTime();
+
+        HostLimiter(int maxConcurrentRequests, long intervalNanos) {
+            this.permits = new Semaphore(maxConcurrentRequests, true);
+            this.intervalNanos = intervalNanos;
+        }
+
+        void acquire() throws InterruptedException {
+            permits.acquire();
+            long waitNanos;
+            synchronized (this) {
+                long now = System.nanoTime();
+                long start = nextStart - now > 0 ? nextStart : now;
+                nextStart = start + intervalNanos;
+                waitNanos = start - now;
+            }
+            if (waitNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                } catch (InterruptedException e) {
+                    permits.release();
+                    throw e;
+                }
+            }
+        }
+
+        void release() {
+            permits.release();
+        }
+    }
+
+    private static final class CachedResolution {
+        private final DOIResolution resolution;
+        private final long expiresAt;
+
+        CachedResolution(DOIResolution resolution, long expiresAt) {
+            this.resolution = resolution;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class CompletedFuture implements Future<DOIResolution> {
+        private final DOIResolution resolution;
+
+        CompletedFuture(DOIResolution resolution) {
+            this.resolution = resolution;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public boolean isDone() {
+            return true;
+        }
+
+        @Override
+        public DOIResolution get() {
+            return resolution;
+        }
+
+        @Override
+        public DOIResolution get(long timeout, TimeUnit unit) {
+            return resolution;
+        }
+    }
+
+    private static final class URLConnectionTransport implements Transport {
+        private final int timeoutMillis;
+
+        URLConnectionTransport(int timeoutMillis) {
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        @Override
+        public Response execute(String method, URI uri, String accept) throws IOException {
+            HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+            connection.setInstanceFollowRedirects(false);
+            connection.setRequestMethod(method);
+            connection.setConnectTimeout(timeoutMillis);
+            connection.setReadTimeout(timeoutMillis);
+            if (accept != null) {
+                connection.setRequestProperty("Accept", accept);
+            }
+            int statusCode = connection.getResponseCode();
+            String contentType = connection.getContentType();
+            InputStream in = statusCode < 400 ? connection.getInputStream() : connection.getErrorStream();
+            String body = null;
+            if (in != null) {
+                try {
+                    // read to the end, also for HEAD, so that the connection can be reused
+                    byte[] content = readFully(in);
+                    body = "HEAD".equals(method) ? null : new String(content, charsetOf(contentType));
+                } finally {
+                    in.close();
+                }
+            }
+            return new Response(statusCode, connection.getHeaderField("Location"), contentType, body);
+        }
+
+        private static byte[] readFully(InputStream in) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int n = in.read(buffer); n != -1; n = in.read(buffer)) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+
+        private static Charset charsetOf(String contentType) {
+            if (contentType != null) {
+                for (String parameter : contentType.split(";")) {
+                    String[] nameAndValue = parameter.trim().split("=", 2);
+                    if (nameAndValue.length == 2 && "charset".equalsIgnoreCase(nameAndValue[0])) {
+                        try {
+                            return Charset.forName(nameAndValue[1].replace("\"", "").trim());
+                        } catch (IllegalArgumentException e) {
+                            // fall back to default
+                        }
+                    }
+                }
+            }
+            return StandardCharsets.UTF_8;
+        }
+    }
+
+}
@@ -0,0 +1,316 @@
+package org.globalbioticinteractions.doi;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+/**
+ * Immutable, memory-mapped file of DOIs, for sets of DOIs too large to load into the heap of every process using them.
+ * <p>
+ * Opening a table only maps the file, so it takes milliseconds regardless of its size, and processes on the same host
+ * share the mapped pages through the page cache. Like {@link DOI#equals(Object)}, lookups ignore case.
+ * <p>
+ * A table file consists of:
+ * <ul>
+ * <li>a 64 byte header: magic "DOI4JTAB", format version, number of DOIs, number of slots, number of key bytes,
+ * a CRC32 checksum of the slots followed by the keys, and a CRC32 checksum of the header itself</li>
+ * <li>an open addressing hash table of 8 byte slots, each holding the upper 24 bits of the 64-bit hash of a DOI key
+ * and the offset of the key plus one, or zero for empty slots</li>
+ * <li>the keys: the case-folded UTF-8 bytes of each DOI (see {@link DOIKey}), preceded by their length</li>
+ * </ul>
+ * All numbers are big endian. Tables are built using a {@link Builder} and are thread-safe.
+ */
+
+public final class DOITable {
+
+    static final long MAGIC = 0x444F49344A544142L; // DOI4JTAB
+    static final int VERSION = 1;
+    static final int HEADER_LENGTH = 64;
+
+    private static final int TAG_SHIFT = 40;
+    private static final long ADDRESS_MASK = (1L << TAG_SHIFT) - 1;
+
+    private final MappedBytes slots;
+    private final MappedBytes keys;
+    private final long slotMask;
+    private final long size;
+    private final long dataChecksum;
+
+    private final ThreadLocal<DOIKey> doiKeys = new ThreadLocal<DOIKey>() {
+        @Override
+        protected DOIKey initialValue() {
+            return new DOIKey();
+        }
+    };
+
+    private DOITable(MappedBytes slots, MappedBytes keys, long size, long dataChecksum) {
+        this.slots = slots;
+        this.keys = keys;
+        this.slotMask = slots.length() / 8 - 1;
+        this.size = size;
+        this.dataChecksum = dataChecksum;
+    }
+
+    /**
+     * Maps a table file into memory, checking its header but not its content, see {@link #verify()}.
+     *
+     * @param file table file created by {@link Builder#build(File)}
+     * @return table
+     * @throws IOException on failure to read the file, or if the file is not a valid table file
+     */
+
+    public static DOITable open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+            }
+            if (header.hasRemaining() || header.getLong(0) != MAGIC) {
+                throw new IOException("not a DOI table file [" + file + "]");
+            }
+            if (header.getInt(8) != VERSION) {
+                throw new IOException("unsupported DOI table version [" + header.getInt(8) + "] in [" + file + "]");
+            }
+            if (header.getLong(56) != headerChecksum(header)) {
+                throw new IOException("corrupt DOI table header in [" + file + "]");
+            }
+            long size = header.getLong(16);
+            long slotCount = header.getLong(24);
+            long keyLength = header.getLong(32);
+            if (Long.bitCount(slotCount) != 1 || channel.size() != HEADER_LENGTH + 8 * slotCount + keyLength) {
+                throw new IOException("truncated or corrupt DOI table file [" + file + "]");
+            }
+            // mappings remain valid after the channel is closed
+            MappedBytes slots = new MappedBytes(channel, FileChannel.MapMode.READ_ONLY, HEADER_LENGTH, 8 * slotCount);
+            MappedBytes keys = new MappedBytes(channel, FileChannel.MapMode.READ_ONLY, HEADER_LENGTH + 8 * slotCount, keyLength);
+            return new DOITable(slots, keys, size, header.getLong(40));
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * @param doi DOI to look for
+     * @return true if the table contains the DOI
+     */
+
+    public boolean contains(DOI doi) {
+        return contains(doiKeys.get().set(doi));
+    }
+
+    /**
+     * @param doiChars characters containing a doi in any of the presentations accepted by {@link DOI#create(CharSequence)}
+     * @return true if the characters contain a well-formed DOI that is in the table
+     */
+
+    public boolean contains(CharSequence doiChars) {
+        DOIKey key = doiKeys.get();
+        return DOIParser.parseKey(doiChars, 0, doiChars.length(), key) == null && contains(key);
+    }
+
+    private boolean contains(DOIKey key) {
+        long tag = key.hash() >>> TAG_SHIFT;
+        for (long i = key.hash() & slotMask; ; i = (i + 1) & slotMask) {
+            long slot = slots.getLong(8 * i);
+            if (slot == 0) {
+                return false;
+            }
+            if (slot >>> TAG_SHIFT == tag && matches(key, (slot & ADDRESS_MASK) - 1)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean matches(DOIKey key, long address) {
+        long position = address;
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = keys.get(position++);
+            length |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                break;
+            }
+        }
+        return length == key.length() && keys.matches(position, key.bytes(), length);
+    }
+
+    /**
+     * @return number of DOIs in the table
+     */
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Reads the entire table to check its content against the checksum in its header.
+     *
+     * @throws IOException if the content does not match the checksum
+     */
+
+    public void verify() throws IOException {
+        if (checksum(slots, keys) != dataChecksum) {
+            throw new IOException("DOI table content does not match its checksum");
+        }
+    }
+
+    private static long checksum(MappedBytes slots, MappedBytes keys) {
+        CRC32 crc = new CRC32();
+        slots.update(crc);
+        keys.update(crc);
+        return crc.getValue();
+    }
+
+    private static long headerChecksum(ByteBuffer header) {
+        CRC32 crc = new CRC32();
+        crc.update(header.array(), 0, 56);
+        return crc.getValue();
+    }
+
+    /**
+     * Collects DOIs for a table file, removing duplicates in memory (see {@link DOISet}). Not thread-safe.
+     */
+
+    public static final class Builder {
+        private final DOIHashTable<Void> dois = new DOIHashTable<Void>(1024, 1, false);
+        private long rejected;
+
+        /**
+         * @param doi DOI to add
+         * @return this builder
+         */
+
+        public Builder add(DOI doi) {
+            dois.add(dois.key(doi));
+            return this;
+        }
+
+        /**
+         * @param doiChars characters containing a doi in any of the presentations accepted by {@link DOI#create(CharSequence)}
+         * @return true if the characters contained a well-formed DOI, which was added
+         */
+
+        public boolean add(CharSequence doiChars) {
+            DOIParseResult result = DOI.parse(doiChars);
+            if (result.isValid()) {
+                add(result.getDOI());
+            } else {
+                rejected++;
+            }
+            return result.isValid();
+        }
+
+        /**
+         * Adds DOIs read from lines of text, one per line, skipping malformed lines.
+         *
+         * @param lines reader of lines with a DOI each
+         * @return this builder
+         * @throws IOException on failure to read
+         */
+
+        public Builder addLines(Reader lines) throws IOException {
+            BufferedReader reader = lines instanceof BufferedReader ? (BufferedReader) lines : new BufferedReader(lines);
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                add(line);
+            }
+            return this;
+        }
+
+        /**
+         * @return number of malformed DOI strings that were skipped
+         */
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        /**
+         * Writes the table to a temporary file in the same directory first, then moves it into place, so that tables
+         * already open on the file keep their mapping, and the file is never left partially written.
+         *
+         * @param file file to write the table to, replacing any existing file
+         * @throws IOException on failure to write
+         */
+
+        public void build(File file) throws IOException {
+            File directory = file.getAbsoluteFile().getParentFile();
+            File tmp = File.createTempFile(file.getName(), ".tmp", directory);
+            boolean moved = false;
+            try {
+                write(tmp);
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                moved = true;
+            } finally {
+                if (!moved) {
+                    tmp.delete();
+                }
+            }
+        }
+
+        private void write(File file) throws IOException {
+            final long size = dois.size();
+            final long slotCount = Long.highestOneBit(Math.max(2, size * 3 / 2) * 2 - 1);
+            final long[] keyLength = {0};
+            dois.visitKeys(new DOIHashTable.KeyVisitor() {
+                @Override
+                public void visit(byte[] bytes, int offset, int length) {
+                    keyLength[0] += DOICodec.varIntLength(length) + length;
+                }
+            });
+
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                raf.setLength(HEADER_LENGTH + 8 * slotCount + keyLength[0]);
+                FileChannel channel = raf.getChannel();
+                final MappedBytes slots = new MappedBytes(channel, FileChannel.MapMode.READ_WRITE, HEADER_LENGTH, 8 * slotCount);
+                final MappedBytes keys = new MappedBytes(channel, FileChannel.MapMode.READ_WRITE, HEADER_LENGTH + 8 * slotCount, keyLength[0]);
+                final long mask = slotCount - 1;
+                dois.visitKeys(new DOIHashTable.KeyVisitor() {
+                    private long position = 0;
+
+                    @Override
+                    public void visit(byte[] bytes, int offset, int length) {
+                        long hash = DOIKey.hash(bytes, offset, length);
+                        long i = hash & mask;
+                        while (slots.getLong(8 * i) != 0) {
+                            i = (i + 1) & mask;
+                        }
+                        slots.putLong(8 * i, (hash >>> TAG_SHIFT) << TAG_SHIFT | (position + 1));
+                        int value = length;
+                        while ((value & ~0x7F) != 0) {
+                            keys.put(position++, (byte) (value & 0x7F | 0x80));
+                            value >>>= 7;
+                        }
+                        keys.put(position++, (byte) value);
+                        keys.put(position, bytes, offset, length);
+                        position += length;
+                    }
+                });
+                slots.force();
+                keys.force();
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+                header.putLong(0, MAGIC);
+                header.putInt(8, VERSION);
+                header.putLong(16, size);
+                header.putLong(24, slotCount);
+                header.putLong(32, keyLength[0]);
+                header.putLong(40, checksum(slots, keys));
+                header.putLong(56, headerChecksum(header));
+                channel.write(header, 0);
+                channel.force(true);
+            } finally {
+                raf.close();
+            }
+        }
+    }
+
+}
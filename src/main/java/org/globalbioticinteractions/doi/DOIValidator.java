@@ -0,0 +1,311 @@
+package org.globalbioticinteractions.doi;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.BitSet;
+
+/**
+ * Checks whether UTF-8 encoded candidates are DOIs, without creating them, for filtering large batches of values
+ * (e.g., columns of a table) of which only some are DOIs.
+ * <p>
+ * A candidate is valid if, and only if, {@link DOI#create(byte[], int, int)} accepts it. Prefixes, the directory
+ * indicator, the '/' between registrant code and suffix and blank components are found eight bytes at a time using
+ * SWAR ("SIMD within a register") operations on longs. Rare candidates that need full Unicode rules (DOI URLs
+ * containing unescaped non-ASCII characters) are checked by the parser itself.
+ */
+
+public final class DOIValidator {
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private static final long DIRECTORY_INDICATOR = prefixWords(DOIParser.DIRECTORY_INDICATOR_PREFIX)[0];
+    private static final long DIRECTORY_INDICATOR_MASK = 0xFFFFFFL;
+    private static final Prefix PRINTABLE_DOI_PREFIX = new Prefix(DOIParser.PRINTABLE_DOI_PREFIX);
+    private static final Prefix SECURE_DEFAULT_RESOLVER = new Prefix(DOIParser.SECURE_DEFAULT_RESOLVER);
+    private static final Prefix UNSECURE_DEFAULT_RESOLVER = new Prefix(DOIParser.UNSECURE_DEFAULT_RESOLVER);
+
+    private DOIValidator() {
+    }
+
+    /**
+     * @param utf8   UTF-8 encoded bytes
+     * @param offset index of the first byte of the candidate
+     * @param length number of bytes of the candidate
+     * @return true if {@link DOI#create(byte[], int, int)} would accept the candidate
+     */
+
+    public static boolean isValid(byte[] utf8, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > utf8.length) {
+            throw new IndexOutOfBoundsException("range [" + offset + "," + (offset + length) + ") out of bounds [0," + utf8.length + ")");
+        }
+        return isValid(view(ByteBuffer.wrap(utf8)), offset, offset + length);
+    }
+
+    /**
+     * @param utf8 UTF-8 encoded bytes, heap or direct, of which the remaining bytes are the candidate
+     * @return true if {@link DOI#create(ByteBuffer)} would accept the candidate
+     */
+
+    public static boolean isValid(ByteBuffer utf8) {
+        return isValid(view(utf8), utf8.position(), utf8.limit());
+    }
+
+    /**
+     * Validates a batch of candidates stored in a single byte array, like the values of a column.
+     *
+     * @param utf8    UTF-8 encoded bytes
+     * @param offsets index of the first byte of each candidate
+     * @param lengths number of bytes of each candidate
+     * @param count   number of candidates
+     * @param valid   bit set in which the indexes of valid candidates are set, and others cleared
+     * @return number of valid candidates
+     */
+
+    public static int validate(byte[] utf8, int[] offsets, int[] lengths, int count, BitSet valid) {
+        ByteBuffer bytes = view(ByteBuffer.wrap(utf8));
+        int validCount = 0;
+        for (int i = 0; i < count; i++) {
+            int offset = offsets[i];
+            int length = lengths[i];
+            if (offset < 0 || length < 0 || offset + length > utf8.length) {
+                throw new IndexOutOfBoundsException("candidate [" + i + "] out of bounds");
+            }
+            boolean isValid = isValid(bytes, offset, offset + length);
+            valid.set(i, isValid);
+            if (isValid) {
+                validCount++;
+            }
+        }
+        return validCount;
+    }
+
+    /**
+     * Validates lines of candidates, separated by '\n' or "\r\n", like {@link DOIBatchNormalizer} reads them.
+     *
+     * @param utf8  UTF-8 encoded lines, of which the remaining bytes are validated, without changing the position
+     * @param valid bit set in which the line numbers (starting at 0) of valid lines are set, and others cleared
+     * @return number of lines
+     */
+
+    public static int validateLines(ByteBuffer utf8, BitSet valid) {
+        ByteBuffer bytes = view(utf8);
+        int end = utf8.limit();
+        int lines = 0;
+        int lineStart = utf8.position();
+        while (lineStart < end) {
+            int newline = indexOf(bytes, '\n', lineStart, end);
+            int next = newline < 0 ? end : newline + 1;
+            int lineEnd = newline < 0 ? end : newline;
+            if (lineEnd > lineStart && bytes.get(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+            valid.set(lines++, isValid(bytes, lineStart, lineEnd));
+            lineStart = next;
+        }
+        return lines;
+    }
+
+    private static ByteBuffer view(ByteBuffer utf8) {
+        // words are read little endian, so that the first byte is the lowest
+        return utf8.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    static boolean isValid(ByteBuffer bytes, int start, int end) {
+        if (PRINTABLE_DOI_PREFIX.isPrefixOf(bytes, start, end)) {
+            return isValidDOI(bytes, start + PRINTABLE_DOI_PREFIX.length, end);
+        }
+        if (end - start > SECURE_DEFAULT_RESOLVER.length && SECURE_DEFAULT_RESOLVER.isPrefixOf(bytes, start, end)) {
+            return isValidEscapedDOI(bytes, start, start + SECURE_DEFAULT_RESOLVER.length, end);
+        }
+        if (end - start > UNSECURE_DEFAULT_RESOLVER.length && UNSECURE_DEFAULT_RESOLVER.isPrefixOf(bytes, start, end)) {
+            return isValidEscapedDOI(bytes, start, start + UNSECURE_DEFAULT_RESOLVER.length, end);
+        }
+        return isValidDOI(bytes, start, end);
+    }
+
+    /**
+     * Same as {@link DOIParser#parseDOI(CharSequence, int, int)}. Non-ASCII bytes need not be decoded: they decode
+     * into characters that are neither blank nor '/', while ASCII bytes decode into themselves, even in malformed UTF-8.
+     */
+
+    private static boolean isValidDOI(ByteBuffer bytes, int start, int end) {
+        if (end - start < DOIParser.DIRECTORY_INDICATOR_PREFIX.length()
+                || (word(bytes, start, end) & DIRECTORY_INDICATOR_MASK) != DIRECTORY_INDICATOR) {
+            return false;
+        }
+        int registrantStart = start + DOIParser.DIRECTORY_INDICATOR_PREFIX.length();
+        int slash = indexOf(bytes, '/', registrantStart, end);
+        return slash >= 0 && !isBlank(bytes, registrantStart, slash) && !isBlank(bytes, slash + 1, end);
+    }
+
+    /**
+     * Same as {@link DOIParser#parseEscapedDOI(CharSequence, int, int)}.
+     */
+
+    private static boolean isValidEscapedDOI(ByteBuffer bytes, int start, int doiStart, int end) {
+        int doiEnd = end;
+        boolean hasEscapes = false;
+        for (int i = doiStart; i < end; i++) {
+            int c = bytes.get(i);
+            if (c < 0) {
+                // non-ASCII characters are legal unless they are spaces or controls, which takes decoding
+                return DOIParser.parseUTF8(sliceOf(bytes, start, end)).isValid();
+            } else if (c == '%') {
+                if (i + 2 >= end || DOIParser.hexValue((char) bytes.get(i + 1)) < 0 || DOIParser.hexValue((char) bytes.get(i + 2)) < 0) {
+                    return false;
+                }
+                if (doiEnd == end) {
+                    hasEscapes = true;
+                }
+                i += 2;
+            } else if (c == '#' && doiEnd == end) {
+                doiEnd = i;
+            } else if (!DOIParser.isLegalQueryChar((char) c)) {
+                return false;
+            }
+        }
+        return hasEscapes ? isValidDecodedDOI(bytes, doiStart, doiEnd) : isValidDOI(bytes, doiStart, doiEnd);
+    }
+
+    /**
+     * Same as {@link #isValidDOI(ByteBuffer, int, int)} on the percent decoded bytes, assuming that escapes are valid.
+     */
+
+    private static boolean isValidDecodedDOI(ByteBuffer bytes, int start, int end) {
+        String directoryIndicator = DOIParser.DIRECTORY_INDICATOR_PREFIX;
+        int matched = 0;
+        boolean inSuffix = false;
+        boolean hasRegistrantCode = false;
+        for (int i = start; i < end; i++) {
+            int c = bytes.get(i) & 0xFF;
+            if (c == '%') {
+                c = DOIParser.hexValue((char) bytes.get(i + 1)) << 4 | DOIParser.hexValue((char) bytes.get(i + 2));
+                i += 2;
+            }
+            if (matched < directoryIndicator.length()) {
+                if (c != directoryIndicator.charAt(matched++)) {
+                    return false;
+                }
+            } else if (inSuffix) {
+                if (c > ' ') {
+                    return hasRegistrantCode;
+                }
+            } else if (c == '/') {
+                inSuffix = true;
+            } else if (c > ' ') {
+                hasRegistrantCode = true;
+            }
+        }
+        return false;
+    }
+
+    private static ByteBuffer sliceOf(ByteBuffer bytes, int start, int end) {
+        ByteBuffer slice = bytes.duplicate();
+        slice.limit(end).position(start);
+        return slice;
+    }
+
+    /**
+     * @return up to eight bytes starting at index, little endian, padded with zero bytes beyond the end
+     */
+
+    static long word(ByteBuffer bytes, int index, int end) {
+        if (end - index >= 8) {
+            return bytes.getLong(index);
+        }
+        long word = 0;
+        for (int i = end - 1; i >= index; i--) {
+            word = word << 8 | (bytes.get(i) & 0xFF);
+        }
+        return word;
+    }
+
+    /**
+     * @return index of the first occurrence of an ASCII character in range, or -1 if not found
+     */
+
+    static int indexOf(ByteBuffer bytes, char c, int start, int end) {
+        long pattern = ONES * c;
+        for (int i = start; i < end; i += 8) {
+            long match = zeroBytes(word(bytes, i, end) ^ pattern);
+            if (match != 0) {
+                // zero padding never matches, as c is not zero
+                return i + (Long.numberOfTrailingZeros(match) >>> 3);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return true if no byte in range is above ' ', like String.trim().isEmpty() for decoded characters
+     */
+
+    static boolean isBlank(ByteBuffer bytes, int start, int end) {
+        for (int i = start; i < end; i += 8) {
+            long word = word(bytes, i, end);
+            // high bit of a byte is set if its low seven bits are above ' ', or it is not ASCII; no carries between bytes
+            if (((((word & ~HIGH_BITS) + ONES * (0x80 - 0x21)) | word) & HIGH_BITS) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return word with the high bit set of the first zero byte, and possibly of later bytes, or 0 if none is zero
+     */
+
+    private static long zeroBytes(long word) {
+        return (word - ONES) & ~word & HIGH_BITS;
+    }
+
+    private static long[] prefixWords(String prefix) {
+        long[] words = new long[(prefix.length() + 7) / 8];
+        for (int i = 0; i < prefix.length(); i++) {
+            words[i / 8] |= (long) prefix.charAt(i) << (8 * (i % 8));
+        }
+        return words;
+    }
+
+    /**
+     * Lower case ASCII prefix, matched ignoring the case of ASCII letters only, like
+     * {@link DOIParser#startsWithIgnoreCase(CharSequence, int, int, String)}: setting bit 0x20 lower cases 'A' to 'Z'
+     * only, so it is only set for bytes matched against letters.
+     */
+
+    private static final class Prefix {
+        private final int length;
+        private final long[] words;
+        private final long[] lowerCaseBits;
+        private final long[] masks;
+
+        Prefix(String lowerCasePrefix) {
+            this.length = lowerCasePrefix.length();
+            this.words = prefixWords(lowerCasePrefix);
+            this.lowerCaseBits = new long[words.length];
+            this.masks = new long[words.length];
+            for (int i = 0; i < length; i++) {
+                char c = lowerCasePrefix.charAt(i);
+                if (c >= 'a' && c <= 'z') {
+                    lowerCaseBits[i / 8] |= 0x20L << (8 * (i % 8));
+                }
+                masks[i / 8] |= 0xFFL << (8 * (i % 8));
+            }
+        }
+
+        boolean isPrefixOf(ByteBuffer bytes, int start, int end) {
+            if (end - start < length) {
+                return false;
+            }
+            for (int i = 0; i < words.length; i++) {
+                long word = word(bytes, start + 8 * i, end);
+                if (((word | lowerCaseBits[i]) & masks[i]) != words[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+}
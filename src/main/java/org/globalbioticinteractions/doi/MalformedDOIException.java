@@ -1,10 +1,51 @@
 package org.globalbioticinteractions.doi;
 
 public class MalformedDOIException extends Throwable {
+
+    // stack traces of malformed DOIs are rarely useful, and filling them in dominates the cost of rejecting junk input
+    private static final boolean WRITABLE_STACK_TRACE = !"false".equalsIgnoreCase(System.getProperty("doi4j.malformed.stacktrace"));
+
+    private static final String MORE_INFO = ". See https://doi.org/10.1000/33 for more info.";
+
+    private final MalformedDOIReason reason;
+    private final String doi;
+
     public MalformedDOIException(String doi) {
         this(doi, null);
     }
+
     public MalformedDOIException(String doi, Throwable cause) {
-        super(doi + ". See https://doi.org/10.1000/33 for more info.", cause);
+        super(doi + MORE_INFO, cause);
+        this.reason = null;
+        this.doi = null;
+    }
+
+    /**
+     * Creates an exception with a message that is only built when requested. Stack traces are not filled in if
+     * system property <code>doi4j.malformed.stacktrace</code> is set to <code>false</code>.
+     *
+     * @param reason reason the doi was rejected for
+     * @param doi    rejected doi
+     */
+
+    public MalformedDOIException(MalformedDOIReason reason, CharSequence doi) {
+        super(null, null, false, WRITABLE_STACK_TRACE);
+        this.reason = reason;
+        this.doi = doi == null ? null : doi.toString();
+    }
+
+    /**
+     * @return reason the doi was rejected for, or null if unknown
+     */
+
+    public MalformedDOIReason getReason() {
+        return reason;
+    }
+
+    @Override
+    public String getMessage() {
+        return reason == null
+                ? super.getMessage()
+                : reason.getDescription() + " in [" + doi + "]" + MORE_INFO;
     }
 }
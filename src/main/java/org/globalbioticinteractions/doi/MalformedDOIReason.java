@@ -0,0 +1,48 @@
+package org.globalbioticinteractions.doi;
+
+/**
+ * Reasons for rejecting a DOI candidate, see {@link DOI#parse(CharSequence)} and {@link MalformedDOIException#getReason()}.
+ */
+
+public enum MalformedDOIReason {
+
+    /**
+     * DOI does not start with the directory indicator "10." (e.g., 9.123/456).
+     */
+    MISSING_DIRECTORY_INDICATOR("expected directory indicator [10.]"),
+
+    /**
+     * No registrant code found between the directory indicator and the first "/" (e.g., 10./456 or 10.123).
+     */
+    MISSING_REGISTRANT("missing registrant code"),
+
+    /**
+     * No suffix found after the first "/" (e.g., 10.123/).
+     */
+    MISSING_SUFFIX("missing suffix"),
+
+    /**
+     * DOI URL contains characters that should have been escaped, or a malformed percent escape (e.g., http://dx.doi.org/10.123/4&lt;5&gt;).
+     */
+    BAD_ESCAPE("found unescaped doi in uri"),
+
+    /**
+     * Path of a DOI URI does not start with "/".
+     */
+    MALFORMED_URI_PATH("expected path starting with [/]");
+
+    private final String description;
+
+    MalformedDOIReason(String description) {
+        this.description = description;
+    }
+
+    /**
+     * @return human readable description of the reason
+     */
+
+    public String getDescription() {
+        return description;
+    }
+
+}
@@ -0,0 +1,111 @@
+package org.globalbioticinteractions.doi;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.Checksum;
+
+/**
+ * Memory-mapped region of a file that may exceed the 2 GiB limit of a single {@link MappedByteBuffer}, mapped as a
+ * sequence of chunks and addressed by long positions. Reads are thread-safe, as they do not change buffer positions.
+ */
+
+final class MappedBytes {
+
+    private static final int CHUNK_BITS = 30;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final MappedByteBuffer[] chunks;
+    private final long length;
+
+    MappedBytes(FileChannel channel, FileChannel.MapMode mode, long offset, long length) throws IOException {
+        int chunkCount = (int) ((length + CHUNK_SIZE - 1) >>> CHUNK_BITS);
+        this.chunks = new MappedByteBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            long chunkOffset = (long) i << CHUNK_BITS;
+            chunks[i] = channel.map(mode, offset + chunkOffset, Math.min(CHUNK_SIZE, length - chunkOffset));
+        }
+        this.length = length;
+    }
+
+    long length() {
+        return length;
+    }
+
+    byte get(long position) {
+        return chunks[(int) (position >>> CHUNK_BITS)].get((int) position & CHUNK_MASK);
+    }
+
+    long getLong(long position) {
+        int offset = (int) position & CHUNK_MASK;
+        if (offset <= CHUNK_SIZE - 8) {
+            return chunks[(int) (position >>> CHUNK_BITS)].getLong(offset);
+        }
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = value << 8 | (get(position + i) & 0xFF);
+        }
+        return value;
+    }
+
+    void put(long position, byte value) {
+        chunks[(int) (position >>> CHUNK_BITS)].put((int) position & CHUNK_MASK, value);
+    }
+
+    void putLong(long position, long value) {
+        int offset = (int) position & CHUNK_MASK;
+        if (offset <= CHUNK_SIZE - 8) {
+            chunks[(int) (position >>> CHUNK_BITS)].putLong(offset, value);
+        } else {
+            for (int i = 7; i >= 0; i--) {
+                put(position + i, (byte) value);
+                value >>>= 8;
+            }
+        }
+    }
+
+    void put(long position, byte[] bytes, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            put(position + i, bytes[offset + i]);
+        }
+    }
+
+    /**
+     * @return true if the bytes at the position equal the given bytes
+     */
+
+    boolean matches(long position, byte[] bytes, int length) {
+        for (int i = 0; i < length; i++) {
+            if (get(position + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Updates the checksum with all bytes, in order.
+     */
+
+    void update(Checksum checksum) {
+        byte[] buffer = new byte[64 * 1024];
+        for (MappedByteBuffer chunk : chunks) {
+            ByteBuffer view = chunk.duplicate();
+            view.clear();
+            while (view.hasRemaining()) {
+                int n = Math.min(buffer.length, view.remaining());
+                view.get(buffer, 0, n);
+                checksum.update(buffer, 0, n);
+            }
+        }
+    }
+
+    void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+package org.globalbioticinteractions.doi;
+
+import java.io.IOException;
+
+/**
+ * Percent-encodes DOIs for use in URI paths in a single pass, escaping the same characters as
+ * {@link java.net.URI#URI(String, String, String, String)} does for paths.
+ */
+
+final class PercentEncoder {
+
+    // ASCII characters allowed in the path of a java.net.URI
+    private static final long LEGAL_PATH_CHARS_LOW = DOIParser.lowMask("!$&'()*+,-./0123456789:;=");
+    private static final long LEGAL_PATH_CHARS_HIGH = DOIParser.highMask("@ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz~");
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private PercentEncoder() {
+    }
+
+    static void appendEncodedPath(CharSequence value, Appendable appendable) throws IOException {
+        int unescapedStart = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (needsEncoding(c)) {
+                appendable.append(value, unescapedStart, i);
+                appendEncoded(c, appendable);
+                unescapedStart = i + 1;
+            }
+        }
+        appendable.append(value, unescapedStart, value.length());
+    }
+
+    static boolean needsEncoding(char c) {
+        if (c < 64) {
+            return ((1L << c) & LEGAL_PATH_CHARS_LOW) == 0;
+        } else if (c < 128) {
+            return ((1L << (c - 64)) & LEGAL_PATH_CHARS_HIGH) == 0;
+        } else {
+            // other unicode characters are allowed, except for whitespace and control characters
+            return Character.isSpaceChar(c) || Character.isISOControl(c);
+        }
+    }
+
+    private static void appendEncoded(char c, Appendable appendable) throws IOException {
+        // escaped characters are never surrogates, so each is encoded as UTF-8 on its own
+        if (c < 0x80) {
+            appendEscaped(c, appendable);
+        } else if (c < 0x800) {
+            appendEscaped(0xC0 | (c >> 6), appendable);
+            appendEscaped(0x80 | (c & 0x3F), appendable);
+        } else {
+            appendEscaped(0xE0 | (c >> 12), appendable);
+            appendEscaped(0x80 | ((c >> 6) & 0x3F), appendable);
+            appendEscaped(0x80 | (c & 0x3F), appendable);
+        }
+    }
+
+    private static void appendEscaped(int b, Appendable appendable) throws IOException {
+        appendable.append('%')
+                .append(HEX_DIGITS[(b >> 4) & 0xF])
+                .append(HEX_DIGITS[b & 0xF]);
+    }
+
+}
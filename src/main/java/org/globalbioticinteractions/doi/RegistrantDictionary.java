@@ -0,0 +1,126 @@
+package org.globalbioticinteractions.doi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe dictionary of registrant codes, assigning dense int ids (0, 1, 2, ...) in order of first appearance.
+ * <p>
+ * Like {@link DOI#equals(Object)}, the dictionary ignores case: registrant codes that differ in case only share an id,
+ * and {@link #getRegistrantCode(int)} returns the registrant code as first added.
+ * <p>
+ * The registrant codes of a dictionary can be used to create a {@link DOICodec}, so that DOIs of known registrants
+ * are encoded by id.
+ */
+
+public final class RegistrantDictionary {
+
+    private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+    private volatile String[] registrantCodes = new String[16];
+    private int size;
+
+    /**
+     * @param registrantCode registrant code
+     * @return id of the registrant code, assigning the next id if the registrant code was not in the dictionary
+     */
+
+    public int add(String registrantCode) {
+        String folded = fold(registrantCode);
+        Integer id = ids.get(folded);
+        if (id == null) {
+            synchronized (this) {
+                id = ids.get(folded);
+                if (id == null) {
+                    if (registrantCode.trim().length() < 1) {
+                        throw new IllegalArgumentException("registrant code must contain at least one character");
+                    }
+                    String[] codes = registrantCodes;
+                    if (size == codes.length) {
+                        codes = Arrays.copyOf(codes, 2 * size);
+                    }
+                    codes[size] = registrantCode;
+                    registrantCodes = codes;
+                    id = size++;
+                    ids.put(folded, id);
+                }
+            }
+        }
+        return id;
+    }
+
+    /**
+     * @param registrantCode registrant code
+     * @return id of the registrant code, or -1 if the registrant code is not in the dictionary
+     */
+
+    public int getId(String registrantCode) {
+        Integer id = ids.get(fold(registrantCode));
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @param id id of a registrant code
+     * @return registrant code
+     * @throws IndexOutOfBoundsException if no registrant code has the id
+     */
+
+    public String getRegistrantCode(int id) {
+        String[] codes = registrantCodes;
+        if (id < 0 || id >= codes.length || codes[id] == null) {
+            throw new IndexOutOfBoundsException("unknown registrant code id [" + id + "]");
+        }
+        return codes[id];
+    }
+
+    /**
+     * @return number of registrant codes in the dictionary
+     */
+
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * @return registrant codes, ordered by id
+     */
+
+    public List<String> getRegistrantCodes() {
+        String[] codes;
+        int count;
+        synchronized (this) {
+            codes = registrantCodes;
+            count = size;
+        }
+        return Collections.unmodifiableList(new ArrayList<String>(Arrays.asList(codes).subList(0, count)));
+    }
+
+    /**
+     * Case-folds a string like {@link DOI#equals(Object)} compares strings, without allocating for strings that are
+     * already folded, such as the numeric registrant codes in common use.
+     */
+
+    static String fold(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80 || (c >= 'A' && c <= 'Z')) {
+                return foldFrom(value, i);
+            }
+        }
+        return value;
+    }
+
+    private static String foldFrom(String value, int start) {
+        StringBuilder folded = new StringBuilder(value.length()).append(value, 0, start);
+        for (int i = start; i < value.length(); ) {
+            int codePoint = value.codePointAt(i);
+            folded.appendCodePoint(DOI.foldCase(codePoint));
+            i += Character.charCount(codePoint);
+        }
+        return folded.toString();
+    }
+
+}
@@ -0,0 +1,43 @@
+package org.globalbioticinteractions.doi;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter that threads increment without contending on a single memory location, like Java 8's LongAdder: counts
+ * are spread over cells on separate cache lines, selected by thread, and summed when read.
+ */
+
+final class StripedCounter {
+
+    // longs per 64 byte cache line, so that cells of different threads do not share a cache line
+    private static final int PADDING = 8;
+    private static final int MAX_STRIPES = 64;
+
+    private final AtomicLongArray cells;
+    private final int mask;
+
+    StripedCounter() {
+        int stripes = Math.min(MAX_STRIPES, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+        this.cells = new AtomicLongArray(stripes * PADDING);
+        this.mask = stripes - 1;
+    }
+
+    void increment() {
+        add(1);
+    }
+
+    void add(long value) {
+        long id = Thread.currentThread().getId();
+        int stripe = (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        cells.getAndAdd(stripe * PADDING, value);
+    }
+
+    long sum() {
+        long sum = 0;
+        for (int i = 0; i < cells.length(); i += PADDING) {
+            sum += cells.get(i);
+        }
+        return sum;
+    }
+
+}
@@ -0,0 +1,157 @@
+package org.globalbioticinteractions.doi;
+
+import java.nio.ByteBuffer;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Parses lines of DOI presentations, separated by '\n' or "\r\n" like {@link DOIBatchNormalizer} reads them, in place.
+ * <p>
+ * Splits in halves at the first line break after the middle, so that large inputs are split into as many parts as
+ * there are threads in a few steps, without counting lines first.
+ */
+
+abstract class DOILineSpliterator implements Spliterator<DOIParseResult> {
+
+    // parts smaller than this are not split, as parsing them takes less than handing them to another thread
+    static final int MIN_SPLIT_LENGTH = 1 << 12;
+
+    // for estimating the number of lines from the number of characters
+    private static final int AVERAGE_LINE_LENGTH = 32;
+
+    private int position;
+    private final int end;
+
+    DOILineSpliterator(int position, int end) {
+        this.position = position;
+        this.end = end;
+    }
+
+    /**
+     * @return index of the first '\n' in range, or -1 if not found
+     */
+
+    abstract int indexOfNewline(int start, int end);
+
+    abstract boolean isCarriageReturn(int index);
+
+    abstract DOIParseResult parse(int start, int end);
+
+    abstract DOILineSpliterator split(int start, int end);
+
+    @Override
+    public boolean tryAdvance(Consumer<? super DOIParseResult> action) {
+        if (position >= end) {
+            return false;
+        }
+        int newline = indexOfNewline(position, end);
+        int lineEnd = newline < 0 ? end : newline;
+        int lineStart = position;
+        position = newline < 0 ? end : newline + 1;
+        if (lineEnd > lineStart && isCarriageReturn(lineEnd - 1)) {
+            lineEnd--;
+        }
+        action.accept(parse(lineStart, lineEnd));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super DOIParseResult> action) {
+        while (tryAdvance(action)) {
+            // parse next line
+        }
+    }
+
+    @Override
+    public Spliterator<DOIParseResult> trySplit() {
+        if (end - position < MIN_SPLIT_LENGTH) {
+            return null;
+        }
+        int newline = indexOfNewline(position + (end - position) / 2, end);
+        if (newline < 0 || newline + 1 >= end) {
+            return null;
+        }
+        DOILineSpliterator prefix = split(position, newline + 1);
+        position = newline + 1;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return (end - position + AVERAGE_LINE_LENGTH - 1) / AVERAGE_LINE_LENGTH;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+
+    /**
+     * Lines of characters, parsed without copying.
+     */
+
+    static final class Chars extends DOILineSpliterator {
+        private final CharSequence text;
+
+        Chars(CharSequence text, int start, int end) {
+            super(start, end);
+            this.text = text;
+        }
+
+        @Override
+        int indexOfNewline(int start, int end) {
+            return DOIParser.indexOf(text, '\n', start, end);
+        }
+
+        @Override
+        boolean isCarriageReturn(int index) {
+            return text.charAt(index) == '\r';
+        }
+
+        @Override
+        DOIParseResult parse(int start, int end) {
+            return DOIParser.parse(text, start, end);
+        }
+
+        @Override
+        DOILineSpliterator split(int start, int end) {
+            return new Chars(text, start, end);
+        }
+    }
+
+    /**
+     * Lines of UTF-8 encoded bytes, searched for line breaks eight bytes at a time like {@link DOIValidator}.
+     */
+
+    static final class UTF8 extends DOILineSpliterator {
+        private final ByteBuffer bytes;
+
+        UTF8(ByteBuffer bytes, int start, int end) {
+            super(start, end);
+            this.bytes = bytes;
+        }
+
+        @Override
+        int indexOfNewline(int start, int end) {
+            return DOIValidator.indexOf(bytes, '\n', start, end);
+        }
+
+        @Override
+        boolean isCarriageReturn(int index) {
+            return bytes.get(index) == '\r';
+        }
+
+        @Override
+        DOIParseResult parse(int start, int end) {
+            ByteBuffer line = bytes.duplicate();
+            line.limit(end).position(start);
+            return DOIParser.parseUTF8(line);
+        }
+
+        @Override
+        DOILineSpliterator split(int start, int end) {
+            return new UTF8(bytes, start, end);
+        }
+    }
+
+}
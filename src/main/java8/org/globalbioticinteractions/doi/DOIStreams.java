@@ -0,0 +1,162 @@
+package org.globalbioticinteractions.doi;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Java 8 stream support: streams of parse results over lines of DOI presentations, and collectors of DOIs and parse
+ * results. Parse results ({@link DOIParseResult}) carry either a DOI or the reason for rejecting a line, so that
+ * pipelines need no exception handling:
+ * <pre>
+ * Set&lt;DOI&gt; dois = DOIStreams.parseLines(text, true)
+ *         .filter(DOIParseResult::isValid)
+ *         .map(DOIParseResult::getDOI)
+ *         .collect(DOIStreams.toDistinctDOIs());
+ * </pre>
+ * Streams split large inputs at line breaks near the middle, and collectors accumulate into concurrent or per thread
+ * containers, so that parallel pipelines scale with the number of cores.
+ */
+
+public final class DOIStreams {
+
+    private DOIStreams() {
+    }
+
+    /**
+     * @param text     lines of DOI presentations, separated by '\n' or "\r\n"
+     * @param parallel true for a parallel stream
+     * @return stream of the parse results of the lines, in order
+     */
+
+    public static Stream<DOIParseResult> parseLines(CharSequence text, boolean parallel) {
+        return StreamSupport.stream(lineSpliterator(text), parallel);
+    }
+
+    /**
+     * @param utf8     UTF-8 encoded lines of DOI presentations, separated by '\n' or "\r\n", of which the remaining
+     *                 bytes are parsed, without changing the position of the buffer
+     * @param parallel true for a parallel stream
+     * @return stream of the parse results of the lines, in order
+     */
+
+    public static Stream<DOIParseResult> parseLines(ByteBuffer utf8, boolean parallel) {
+        return StreamSupport.stream(lineSpliterator(utf8), parallel);
+    }
+
+    /**
+     * @param records  DOI presentations, e.g., the values of a column
+     * @param parallel true for a parallel stream
+     * @return stream of the parse results of the records, in order
+     */
+
+    public static Stream<DOIParseResult> parse(List<? extends CharSequence> records, boolean parallel) {
+        // lists split by index, unlike iterators
+        Stream<? extends CharSequence> stream = parallel ? records.parallelStream() : records.stream();
+        return stream.map(DOI::parse);
+    }
+
+    /**
+     * @param text lines of DOI presentations, separated by '\n' or "\r\n"
+     * @return spliterator over the parse results of the lines
+     */
+
+    public static Spliterator<DOIParseResult> lineSpliterator(CharSequence text) {
+        return new DOILineSpliterator.Chars(text, 0, text.length());
+    }
+
+    /**
+     * @param utf8 UTF-8 encoded lines of DOI presentations, separated by '\n' or "\r\n", of which the remaining bytes
+     *             are parsed, without changing the position of the buffer
+     * @return spliterator over the parse results of the lines
+     */
+
+    public static Spliterator<DOIParseResult> lineSpliterator(ByteBuffer utf8) {
+        // little endian, as expected for finding line breaks eight bytes at a time
+        ByteBuffer bytes = utf8.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        return new DOILineSpliterator.UTF8(bytes, utf8.position(), utf8.limit());
+    }
+
+    /**
+     * Collects distinct DOIs, ignoring case like {@link DOI#equals(Object)}, into a concurrent set that all threads of
+     * a parallel stream add to. Which of several DOIs differing in case is kept is unspecified.
+     *
+     * @return collector of distinct DOIs
+     */
+
+    public static Collector<DOI, ?, Set<DOI>> toDistinctDOIs() {
+        return Collector.of(
+                () -> ConcurrentHashMap.<DOI>newKeySet(),
+                Set::add,
+                (left, right) -> {
+                    left.addAll(right);
+                    return left;
+                },
+                Collector.Characteristics.CONCURRENT,
+                Collector.Characteristics.UNORDERED,
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /**
+     * @return collector grouping DOIs by registrant code (e.g., 1577 for 10.1577/123), into a concurrent map
+     */
+
+    public static Collector<DOI, ?, ConcurrentMap<String, List<DOI>>> groupingByRegistrantCode() {
+        return Collectors.groupingByConcurrent(DOI::getRegistrantCode);
+    }
+
+    /**
+     * @param downstream collector of the DOIs of a registrant code (e.g., {@link #toDistinctDOIs()} or
+     *                   {@link Collectors#counting()})
+     * @return collector grouping DOIs by registrant code, into a concurrent map
+     */
+
+    public static <A, D> Collector<DOI, ?, ConcurrentMap<String, D>> groupingByRegistrantCode(Collector<? super DOI, A, D> downstream) {
+        return Collectors.groupingByConcurrent(DOI::getRegistrantCode, downstream);
+    }
+
+    /**
+     * Counts rejected parse results by reason. Each thread of a parallel stream counts into its own array, which are
+     * added up when done.
+     *
+     * @return collector of the number of rejects by reason, with only reasons that occurred
+     */
+
+    public static Collector<DOIParseResult, ?, Map<MalformedDOIReason, Long>> countingRejects() {
+        final MalformedDOIReason[] reasons = MalformedDOIReason.values();
+        return Collector.of(
+                () -> new long[reasons.length],
+                (counts, result) -> {
+                    if (!result.isValid()) {
+                        counts[result.getReason().ordinal()]++;
+                    }
+                },
+                (left, right) -> {
+                    for (int i = 0; i < left.length; i++) {
+                        left[i] += right[i];
+                    }
+                    return left;
+                },
+                counts -> {
+                    Map<MalformedDOIReason, Long> rejects = new EnumMap<>(MalformedDOIReason.class);
+                    for (MalformedDOIReason reason : reasons) {
+                        if (counts[reason.ordinal()] > 0) {
+                            rejects.put(reason, counts[reason.ordinal()]);
+                        }
+                    }
+                    return rejects;
+                },
+                Collector.Characteristics.UNORDERED);
+    }
+
+}
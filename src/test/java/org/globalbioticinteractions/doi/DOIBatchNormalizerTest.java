@@ -0,0 +1,146 @@
+package org.globalbioticinteractions.doi;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class DOIBatchNormalizerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ExecutorService executor;
+
+    @Before
+    public void start() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void normalize() throws IOException {
+        File input = write("doi:10.123/456\r\nfoo\nhttps://doi.org/10.1000/123%23456\n\n10.123/\nhttp://dx.doi.org/10.1/a<b>");
+
+        DOIBatchNormalizer.Summary summary = normalize(input, DOIBatchNormalizer.Format.DOI, DOIBatchNormalizer.DEFAULT_BATCH_SIZE);
+
+        assertThat(read("output"), is("10.123/456\n10.1000/123#456\n"));
+        assertThat(read("rejects"), is("foo\n\n10.123/\nhttp://dx.doi.org/10.1/a<b>\n"));
+        assertThat(summary.getLines(), is(6L));
+        assertThat(summary.getAccepted(), is(2L));
+        assertThat(summary.getRejected(), is(4L));
+        assertThat(summary.getRejected(MalformedDOIReason.MISSING_DIRECTORY_INDICATOR), is(2L));
+        assertThat(summary.getRejected(MalformedDOIReason.MISSING_SUFFIX), is(1L));
+        assertThat(summary.getRejected(MalformedDOIReason.BAD_ESCAPE), is(1L));
+    }
+
+    @Test
+    public void rejectsInvalidUTF8AsIs() throws IOException {
+        File input = folder.newFile("input");
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.write("10.123/é\n".getBytes(StandardCharsets.UTF_8));
+        content.write(new byte[]{'f', (byte) 0xFF, 'o', (byte) 0xC3});
+        content.write("\r\n10.123/456\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(input.toPath(), content.toByteArray());
+
+        normalize(input, DOIBatchNormalizer.Format.DOI, DOIBatchNormalizer.DEFAULT_BATCH_SIZE);
+
+        assertThat(read("output"), is("10.123/é\n10.123/456\n"));
+        byte[] expected = {'f', (byte) 0xFF, 'o', (byte) 0xC3, '\n'};
+        assertThat(Files.readAllBytes(new File(folder.getRoot(), "rejects").toPath()), is(expected));
+    }
+
+    @Test
+    public void normalizeToURI() throws IOException {
+        File input = write("10.1000/123#456\n");
+
+        normalize(input, DOIBatchNormalizer.Format.URI, DOIBatchNormalizer.DEFAULT_BATCH_SIZE);
+
+        assertThat(read("output"), is("https://doi.org/10.1000/123%23456\n"));
+    }
+
+    @Test
+    public void sameAsSequentialWithSmallBatches() throws IOException {
+        StringBuilder lines = new StringBuilder();
+        StringBuilder expectedOutput = new StringBuilder();
+        StringBuilder expectedRejects = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            String line = i % 7 == 0 ? "junk " + i : "https://doi.org/10." + i + "/" + "suffix" + i + "%23" + i;
+            lines.append(line).append('\n');
+            DOI doi = DOI.tryCreate(line);
+            if (doi == null) {
+                expectedRejects.append(line).append('\n');
+            } else {
+                expectedOutput.append(doi.toPrintableDOI()).append('\n');
+            }
+        }
+        // ensure that lines longer than a batch are handled too
+        lines.append("10.1/").append(new String(new char[100]).replace('\0', 'x'));
+        expectedOutput.append("doi:10.1/").append(new String(new char[100]).replace('\0', 'x')).append('\n');
+
+        DOIBatchNormalizer.Summary summary = normalize(write(lines.toString()), DOIBatchNormalizer.Format.PRINTABLE, 64);
+
+        assertThat(read("output"), is(expectedOutput.toString()));
+        assertThat(read("rejects"), is(expectedRejects.toString()));
+        assertThat(summary.getLines(), is(10001L));
+    }
+
+    @Test
+    public void commandLine() throws IOException {
+        File input = write("10.123/456\nfoo\n");
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        String[] args = {"--format", "uri", "--threads", "2",
+                input.getAbsolutePath(), new File(folder.getRoot(), "output").getAbsolutePath(), new File(folder.getRoot(), "rejects").getAbsolutePath()};
+
+        int status = DOIBatchNormalizer.run(args, new PrintStream(err, true, "UTF-8"));
+
+        assertThat(status, is(0));
+        assertThat(read("output"), is("https://doi.org/10.123/456\n"));
+        assertThat(read("rejects"), is("foo\n"));
+        assertThat(err.toString("UTF-8"), containsString("accepted [1], rejected [1]"));
+    }
+
+    @Test
+    public void commandLineUsage() throws IOException {
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+        int status = DOIBatchNormalizer.run(new String[]{"--format", "xml", "a", "b", "c"}, new PrintStream(err, true, "UTF-8"));
+
+        assertThat(status, is(1));
+        assertThat(err.toString("UTF-8"), containsString("usage:"));
+    }
+
+    private DOIBatchNormalizer.Summary normalize(File input, DOIBatchNormalizer.Format format, int batchSize) throws IOException {
+        return new DOIBatchNormalizer(executor, format, batchSize, 3)
+                .normalize(input, new File(folder.getRoot(), "output"), new File(folder.getRoot(), "rejects"));
+    }
+
+    private File write(String content) throws IOException {
+        File input = folder.newFile("input");
+        Files.write(input.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return input;
+    }
+
+    private String read(String name) throws IOException {
+        return new String(Files.readAllBytes(new File(folder.getRoot(), name).toPath()), StandardCharsets.UTF_8);
+    }
+
+}
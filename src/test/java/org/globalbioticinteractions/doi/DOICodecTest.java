@@ -0,0 +1,229 @@
+package org.globalbioticinteractions.doi;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class DOICodecTest {
+
+    @Test
+    public void writeAndRead() throws IOException {
+        DOI doi = new DOI("1206", "0003-0090(2000)264<0083:>2.0.co;2");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        doi.writeTo(new DataOutputStream(bytes));
+        assertThat(bytes.size(), is(1 + 4 + 1 + doi.getSuffix().length()));
+
+        DOI read = DOI.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertThat(read.getRegistrantCode(), is("1206"));
+        assertThat(read.getSuffix(), is(doi.getSuffix()));
+    }
+
+    @Test
+    public void roundTripAnyCharacters() {
+        Random random = new Random(1234);
+        DOICodec codec = new DOICodec();
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        for (int i = 0; i < 10000; i++) {
+            DOI doi = new DOI("12" + randomString(random, 2), "x" + randomString(random, 1 + random.nextInt(20)));
+            buffer.clear();
+            int length = codec.encode(doi, buffer);
+            assertThat(length, is(codec.encodedLength(doi)));
+            assertThat(buffer.position(), is(length));
+            buffer.flip();
+            DOI decoded = codec.decode(buffer);
+            assertThat(decoded.getRegistrantCode(), is(doi.getRegistrantCode()));
+            assertThat(decoded.getSuffix(), is(doi.getSuffix()));
+            assertThat(buffer.hasRemaining(), is(false));
+        }
+    }
+
+    @Test
+    public void standardUTF8() {
+        DOI doi = new DOI("123", "café😀");
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        new DOICodec().encode(doi, buffer);
+        byte[] expected = "café😀".getBytes(StandardCharsets.UTF_8);
+        assertThat(Arrays.copyOfRange(buffer.array(), 5, buffer.position()), is(expected));
+    }
+
+    @Test
+    public void registrantCodeDictionary() {
+        DOICodec codec = new DOICodec(Arrays.asList("1016", "1371"));
+        DOI doi = new DOI("1371", "journal.pone.0000001");
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        assertThat(codec.encode(doi, buffer), is(1 + 1 + doi.getSuffix().length()));
+        buffer.flip();
+        DOI decoded = codec.decode(buffer);
+        assertThat(decoded.getRegistrantCode(), is("1371"));
+        assertThat(decoded.getSuffix(), is("journal.pone.0000001"));
+
+        buffer.clear();
+        assertThat(codec.encode(new DOI("9999", "1"), buffer), is(1 + 4 + 1 + 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownRegistrantCodeId() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        new DOICodec(Arrays.asList("1016", "1371")).encode(new DOI("1371", "x"), buffer);
+        buffer.flip();
+        new DOICodec(Arrays.asList("1016")).decode(buffer);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void duplicateRegistrantCode() {
+        new DOICodec(Arrays.asList("1016", "1016"));
+    }
+
+    @Test
+    public void encodeAllInChunks() {
+        List<DOI> dois = new ArrayList<DOI>();
+        for (int i = 0; i < 1000; i++) {
+            dois.add(new DOI(Integer.toString(1000 + i % 7), "suffix." + i));
+        }
+        DOICodec codec = new DOICodec(Arrays.asList("1000", "1001"));
+        ByteBuffer buffer = ByteBuffer.allocate(100);
+        ByteBuffer read = ByteBuffer.allocate(128);
+        List<DOI> decoded = new ArrayList<DOI>();
+        int next = 0;
+        while (next < dois.size()) {
+            next = codec.encodeAll(dois, next, buffer);
+            buffer.flip();
+            // transfer in odd sized pieces, so that DOIs are split across reads
+            while (buffer.hasRemaining()) {
+                int n = Math.min(buffer.remaining(), Math.min(read.remaining(), 13));
+                ByteBuffer piece = buffer.duplicate();
+                piece.limit(piece.position() + n);
+                read.put(piece);
+                buffer.position(buffer.position() + n);
+                read.flip();
+                codec.decodeAll(read, decoded);
+                read.compact();
+            }
+            buffer.clear();
+        }
+        assertThat(decoded, is(dois));
+        assertThat(read.position(), is(0));
+    }
+
+    @Test
+    public void overflowWritesNothing() {
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+        try {
+            new DOICodec().encode(new DOI("123", "456"), buffer);
+            fail("expected overflow");
+        } catch (BufferOverflowException e) {
+            assertThat(buffer.position(), is(0));
+        }
+    }
+
+    @Test
+    public void underflowReadsNothing() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        new DOICodec().encode(new DOI("123", "456"), buffer);
+        buffer.flip();
+        buffer.limit(buffer.limit() - 1);
+        try {
+            new DOICodec().decode(buffer);
+            fail("expected underflow");
+        } catch (BufferUnderflowException e) {
+            assertThat(buffer.position(), is(0));
+        }
+    }
+
+    @Test(expected = EOFException.class)
+    public void truncatedInput() throws IOException {
+        DOI.readFrom(new DataInputStream(new ByteArrayInputStream(new byte[]{6, '1', '2', '3', 3, '4'})));
+    }
+
+    @Test(expected = StreamCorruptedException.class)
+    public void emptySuffix() throws IOException {
+        DOI.readFrom(new DataInputStream(new ByteArrayInputStream(new byte[]{6, '1', '2', '3', 0})));
+    }
+
+    @Test(expected = StreamCorruptedException.class)
+    public void invalidUTF8() throws IOException {
+        DOI.readFrom(new DataInputStream(new ByteArrayInputStream(new byte[]{6, '1', '2', '3', 1, (byte) 0x80})));
+    }
+
+    @Test
+    public void javaSerialization() throws IOException, ClassNotFoundException {
+        DOI doi = new DOI("123", "456");
+        byte[] serialized = serialize(doi);
+        assertThat(deserialize(serialized), is((Object) doi));
+        assertThat(serialized.length < 121, is(true));
+    }
+
+    @Test
+    public void javaSerializationOfManyDOIs() throws IOException, ClassNotFoundException {
+        List<DOI> dois = new ArrayList<DOI>();
+        for (int i = 0; i < 100; i++) {
+            dois.add(new DOI("123", "suffix." + i));
+        }
+        assertThat(deserialize(serialize(new ArrayList<DOI>(dois))), is((Object) dois));
+    }
+
+    @Test
+    public void deserializeEarlierRelease() throws IOException, ClassNotFoundException {
+        // new DOI("123", "456") serialized with default Java serialization of earlier releases
+        String hex = "aced0005737200246f72672e676c6f62616c62696f746963696e746572616374696f6e732e646f692e444f49df74231ff9a031e8"
+                + "0200024c000e72656769737472616e74436f64657400124c6a6176612f6c616e672f537472696e673b4c000673756666697871"
+                + "007e00017870740003313233740003343536";
+        byte[] serialized = new byte[hex.length() / 2];
+        for (int i = 0; i < serialized.length; i++) {
+            serialized[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        DOI doi = (DOI) deserialize(serialized);
+        assertThat(doi.toString(), is("10.123/456"));
+        assertThat(doi.hashCode(), is(new DOI("123", "456").hashCode()));
+    }
+
+    private static String randomString(Random random, int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            switch (random.nextInt(3)) {
+                case 0:
+                    builder.append((char) random.nextInt(128));
+                    break;
+                case 1:
+                    builder.append((char) random.nextInt(Character.MAX_VALUE + 1));
+                    break;
+                default:
+                    builder.appendCodePoint(Character.MIN_SUPPLEMENTARY_CODE_POINT + random.nextInt(0x1000));
+            }
+        }
+        return builder.toString();
+    }
+
+    private static byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(object);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        return new ObjectInputStream(new ByteArrayInputStream(bytes)).readObject();
+    }
+
+}
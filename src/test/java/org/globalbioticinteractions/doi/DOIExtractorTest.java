@@ -0,0 +1,133 @@
+package org.globalbioticinteractions.doi;
+
+import org.junit.Test;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class DOIExtractorTest {
+
+    @Test
+    public void citation() {
+        List<DOI> dois = DOIExtractor.extractAll("Poelen, J. H., Simons, J. D., & Mungall, C. J. (2014). Global Biotic Interactions: " +
+                "An open infrastructure to share and analyze species-interaction datasets. Ecological Informatics, 24, 148–159. " +
+                "doi:10.1016/j.ecoinf.2014.08.005.");
+        assertThat(toStrings(dois), is(Collections.singletonList("10.1016/j.ecoinf.2014.08.005")));
+    }
+
+    @Test
+    public void multipleForms() {
+        List<DOI> dois = DOIExtractor.extractAll("see 10.123/456, DOI:10.123/789; https://doi.org/10.1000/456%23789 " +
+                "and (http://dx.doi.org/10.1206/0003-0090(2000)264%3C0083:%3E2.0.co;2).");
+        assertThat(toStrings(dois), is(list("10.123/456", "10.123/789", "10.1000/456#789", "10.1206/0003-0090(2000)264<0083:>2.0.co;2")));
+    }
+
+    @Test
+    public void html() {
+        List<DOI> dois = DOIExtractor.extractAll("<li><a href=\"https://doi.org/10.1371/journal.pone.0000001\">10.1371/journal.pone.0000001</a></li>" +
+                "<li>doi:10.1577/1548-8659(1993)122<0378:fotgsi>2.3.co;2<br/></li>");
+        assertThat(toStrings(dois), is(list("10.1371/journal.pone.0000001", "10.1371/journal.pone.0000001", "10.1577/1548-8659(1993)122<0378:fotgsi>2.3.co;2")));
+    }
+
+    @Test
+    public void unescapedDOIURL() {
+        List<DOI> dois = DOIExtractor.extractAll("http://dx.doi.org/10.1898/1051-1733(2004)085<0062:dcabso>2.0.co;2");
+        assertThat(toStrings(dois), is(list("10.1898/1051-1733(2004)085<0062:dcabso>2.0.co;2")));
+    }
+
+    @Test
+    public void urlWithFragment() {
+        List<DOI> dois = DOIExtractor.extractAll("https://doi.org/10.123/456#page=2");
+        assertThat(toStrings(dois), is(list("10.123/456")));
+    }
+
+    @Test
+    public void notDOIs() {
+        List<DOI> dois = DOIExtractor.extractAll("version 110.1/2, v10.2/3, 10.abc/4, 10./5, 10.5/ and 10.5");
+        assertThat(dois.size(), is(0));
+    }
+
+    @Test
+    public void balancedBrackets() {
+        List<DOI> dois = DOIExtractor.extractAll("[10.1002/(SICI)1097-4571(199806)49:8<693::AID-ASI4>3.0.CO;2-0]");
+        assertThat(toStrings(dois), is(list("10.1002/(SICI)1097-4571(199806)49:8<693::AID-ASI4>3.0.CO;2-0")));
+    }
+
+    @Test
+    public void readerAcrossBufferBoundaries() throws IOException {
+        StringBuilder text = new StringBuilder();
+        List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 500; i++) {
+            String doi = "10." + (1000 + i) + "/suffix." + i;
+            expected.add(doi);
+            text.append(i % 2 == 0 ? " https://doi.org/" : ", doi:").append(doi).append(i % 3 == 0 ? "." : "");
+        }
+        DOIExtractor extractor = new DOIExtractor(new TrickleReader(new StringReader(text.toString())), 16);
+        List<DOI> dois = new ArrayList<DOI>();
+        for (DOI doi = extractor.next(); doi != null; doi = extractor.next()) {
+            dois.add(doi);
+        }
+        assertThat(toStrings(dois), is(expected));
+        assertThat(extractor.next(), is(nullValue()));
+    }
+
+    @Test
+    public void longSuffixInSmallBuffer() throws IOException {
+        StringBuilder suffix = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            suffix.append("abcdefghij");
+        }
+        DOIExtractor extractor = new DOIExtractor(new TrickleReader(new StringReader("text 10.123/" + suffix + " text")), 16);
+        assertThat(extractor.next().getSuffix(), is(suffix.toString()));
+        assertThat(extractor.next(), is(nullValue()));
+    }
+
+    @Test
+    public void skipSuffixLongerThanMaxLength() throws IOException {
+        StringBuilder suffix = new StringBuilder();
+        while (suffix.length() <= DOIExtractor.MAX_DOI_LENGTH) {
+            suffix.append("abcdefghij");
+        }
+        String text = "text 10.123/" + suffix + " text 10.123/456";
+        assertThat(toStrings(DOIExtractor.extractAll(text)), is(list("10.123/456")));
+        DOIExtractor extractor = new DOIExtractor(new TrickleReader(new StringReader(text)), 16);
+        assertThat(extractor.next().toString(), is("10.123/456"));
+        assertThat(extractor.next(), is(nullValue()));
+    }
+
+    private static List<String> list(String... values) {
+        List<String> list = new ArrayList<String>();
+        Collections.addAll(list, values);
+        return list;
+    }
+
+    private static List<String> toStrings(List<DOI> dois) {
+        List<String> strings = new ArrayList<String>();
+        for (DOI doi : dois) {
+            strings.add(doi.toString());
+        }
+        return strings;
+    }
+
+    private static class TrickleReader extends FilterReader {
+
+        TrickleReader(Reader in) {
+            super(in);
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            return super.read(cbuf, off, Math.min(len, 3));
+        }
+    }
+
+}
@@ -0,0 +1,136 @@
+package org.globalbioticinteractions.doi;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class DOIFilterTest {
+
+    @Test
+    public void mightContainIgnoringCase() {
+        DOIFilter filter = new DOIFilter(100, 0.01);
+        filter.add(new DOI("1577", "1548-8659(1993)122<0378:FOTGSI>2.3.CO;2"));
+        assertThat(filter.mightContain(new DOI("1577", "1548-8659(1993)122<0378:fotgsi>2.3.co;2")), is(true));
+        assertThat(filter.mightContain("doi:10.1577/1548-8659(1993)122<0378:Fotgsi>2.3.co;2"), is(true));
+        assertThat(filter.mightContain("https://doi.org/10.1577/1548-8659(1993)122%3C0378:FOTGSI%3E2.3.CO;2"), is(true));
+        assertThat(filter.mightContain("not a doi"), is(false));
+    }
+
+    @Test
+    public void addRawStrings() {
+        DOIFilter filter = new DOIFilter(100, 0.01);
+        assertThat(filter.add("https://doi.org/10.123/ABC"), is(true));
+        assertThat(filter.add("10.123"), is(false));
+        assertThat(filter.mightContain(new DOI("123", "abc")), is(true));
+    }
+
+    @Test
+    public void noFalseNegativesAndFalsePositivesNearRate() {
+        int size = 100000;
+        DOIFilter filter = new DOIFilter(size, 0.01);
+        for (int i = 0; i < size; i++) {
+            filter.add(new DOI("1000", "added." + i));
+        }
+        for (int i = 0; i < size; i++) {
+            assertThat(filter.mightContain(new DOI("1000", "ADDED." + i)), is(true));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < size; i++) {
+            if (filter.mightContain(new DOI("1000", "other." + i))) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives < size / 100 * 3 / 2, is(true));
+        assertThat(filter.expectedFalsePositiveRate() < 0.015, is(true));
+        assertThat(filter.memoryUsage() < 2L * size, is(true));
+    }
+
+    @Test
+    public void writeAndRead() throws IOException {
+        DOIFilter filter = new DOIFilter(1000, 0.001);
+        for (int i = 0; i < 1000; i++) {
+            filter.add(new DOI("1000", "added." + i));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        filter.writeTo(new DataOutputStream(bytes));
+
+        DOIFilter read = DOIFilter.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        for (int i = 0; i < 1000; i++) {
+            assertThat(read.mightContain(new DOI("1000", "added." + i)), is(true));
+            assertThat(read.mightContain(new DOI("1000", "other." + i)), is(filter.mightContain(new DOI("1000", "other." + i))));
+        }
+        assertThat(read.memoryUsage(), is(filter.memoryUsage()));
+    }
+
+    @Test(expected = StreamCorruptedException.class)
+    public void readOther() throws IOException {
+        DOIFilter.readFrom(new DataInputStream(new ByteArrayInputStream(new byte[16])));
+    }
+
+    @Test
+    public void merge() {
+        DOIFilter filter = new DOIFilter(100, 0.01);
+        DOIFilter other = new DOIFilter(100, 0.01);
+        filter.add(new DOI("1", "a"));
+        other.add(new DOI("2", "b"));
+        filter.addAll(other);
+        assertThat(filter.mightContain(new DOI("1", "a")), is(true));
+        assertThat(filter.mightContain(new DOI("2", "b")), is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mergeDifferentSize() {
+        new DOIFilter(100, 0.01).addAll(new DOIFilter(1000, 0.01));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectFalsePositiveRateOfOne() {
+        new DOIFilter(100, 1.0);
+    }
+
+    @Test
+    public void concurrentAdd() throws Exception {
+        final DOIFilter filter = new DOIFilter(400000, 0.01);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < 4; t++) {
+                final int thread = t;
+                futures.add(executor.submit(new Callable<Object>() {
+                    @Override
+                    public Object call() {
+                        for (int i = 0; i < 100000; i++) {
+                            filter.add("10.1000/" + thread + "." + i);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        for (int t = 0; t < 4; t++) {
+            for (int i = 0; i < 100000; i++) {
+                assertThat(filter.mightContain(new DOI("1000", t + "." + i)), is(true));
+            }
+        }
+    }
+
+}
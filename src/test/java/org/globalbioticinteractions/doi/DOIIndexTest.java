@@ -0,0 +1,166 @@
+package org.globalbioticinteractions.doi;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class DOIIndexTest {
+
+    @Test
+    public void containsIgnoringCase() {
+        DOIIndex index = new DOIIndex.Builder()
+                .add(new DOI("1371", "journal.pone.0000001"))
+                .add(new DOI("1371", "Journal.PONE.0000001"))
+                .add(new DOI("1016", "j.ecoinf.2014.08.005"))
+                .build();
+        assertThat(index.size(), is(2L));
+        assertThat(index.contains(new DOI("1371", "JOURNAL.pone.0000001")), is(true));
+        assertThat(index.contains(new DOI("1371", "journal.pone.0000002")), is(false));
+        assertThat(index.contains(new DOI("1016", "journal.pone.0000001")), is(false));
+        assertThat(index.contains(new DOI("9999", "journal.pone.0000001")), is(false));
+    }
+
+    @Test
+    public void scanRegistrant() {
+        DOIIndex index = plosIndex(100);
+        assertThat(index.count("1371"), is(100));
+        assertThat(index.count("1016"), is(1));
+        assertThat(index.count("9999"), is(0));
+        List<String> dois = toStrings(index.scan("1371"));
+        assertThat(dois.size(), is(100));
+        assertThat(dois.get(0), is("10.1371/journal.pbio.0000000"));
+        assertThat(dois.get(99), is("10.1371/journal.pone.0000049"));
+        assertThat(toStrings(index.scan("9999")).size(), is(0));
+    }
+
+    @Test
+    public void scanRange() {
+        DOIIndex index = plosIndex(100);
+        List<String> dois = toStrings(index.scan("1371", "journal.pone.0000010", "JOURNAL.PONE.0000013"));
+        assertThat(dois, is(list("10.1371/journal.pone.0000010", "10.1371/journal.pone.0000011", "10.1371/journal.pone.0000012")));
+        assertThat(toStrings(index.scan("1371", "journal.pone.0000048", null)).size(), is(2));
+        assertThat(toStrings(index.scan("1371", null, "journal.pbio.0000002")).size(), is(2));
+        assertThat(toStrings(index.scan("1371", "z", null)).size(), is(0));
+    }
+
+    @Test
+    public void scanPrefix() {
+        DOIIndex index = plosIndex(100);
+        assertThat(toStrings(index.scanPrefix("1371", "journal.pone.")).size(), is(50));
+        assertThat(toStrings(index.scanPrefix("1371", "Journal.PBIO.000001")), is(list(
+                "10.1371/journal.pbio.0000010", "10.1371/journal.pbio.0000011", "10.1371/journal.pbio.0000012",
+                "10.1371/journal.pbio.0000013", "10.1371/journal.pbio.0000014", "10.1371/journal.pbio.0000015",
+                "10.1371/journal.pbio.0000016", "10.1371/journal.pbio.0000017", "10.1371/journal.pbio.0000018",
+                "10.1371/journal.pbio.0000019")));
+        assertThat(toStrings(index.scanPrefix("1371", "journal.ppat.")).size(), is(0));
+    }
+
+    @Test
+    public void sameAsSortedSet() {
+        Random random = new Random(1234);
+        DOIIndex.Builder builder = new DOIIndex.Builder();
+        // suffixes as first added, by case-folded DOI
+        TreeMap<String, String> expected = new TreeMap<String, String>();
+        int[] alphabet = {'a', 'b', 'c', 'A', 'B', '.', 'é', 0x10400};
+        List<DOI> candidates = new ArrayList<DOI>();
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder suffix = new StringBuilder();
+            int length = 1 + random.nextInt(8);
+            for (int j = 0; j < length; j++) {
+                suffix.appendCodePoint(alphabet[random.nextInt(alphabet.length)]);
+            }
+            DOI doi = new DOI(random.nextBoolean() ? "1000" : "2000", suffix.toString());
+            candidates.add(doi);
+            if (random.nextBoolean()) {
+                builder.add(doi);
+                String folded = new DOI(doi.getRegistrantCode(), RegistrantDictionary.fold(doi.getSuffix())).toString();
+                if (!expected.containsKey(folded)) {
+                    expected.put(folded, doi.toString());
+                }
+            }
+        }
+        DOIIndex index = builder.build();
+        for (DOI candidate : candidates) {
+            String folded = new DOI(candidate.getRegistrantCode(), RegistrantDictionary.fold(candidate.getSuffix())).toString();
+            assertThat(candidate.toString(), index.contains(candidate), is(expected.containsKey(folded)));
+        }
+        List<String> scanned = toStrings(index.scan("1000"));
+        scanned.addAll(toStrings(index.scan("2000")));
+        // code point order equals utf-16 order for these code points
+        assertThat(scanned, is((List<String>) new ArrayList<String>(expected.values())));
+    }
+
+    @Test
+    public void scanReturnsSuffixesAsAdded() {
+        DOIIndex index = new DOIIndex.Builder()
+                .add(new DOI("1002", "(SICI)1097-4695(199708)33:2<123::AID-NEU6>3.0.CO;2-#"))
+                .add(new DOI("1002", "(sici)1097-4695(199708)33:2<123::aid-neu6>3.0.co;2-#"))
+                .add(new DOI("1002", "Straße.2020.A"))
+                .add(new DOI("1002", "abc.1"))
+                .add(new DOI("1002", "ABC.2"))
+                .build();
+        assertThat(toStrings(index.scan("1002")), is(list(
+                "10.1002/(SICI)1097-4695(199708)33:2<123::AID-NEU6>3.0.CO;2-#",
+                "10.1002/abc.1",
+                "10.1002/ABC.2",
+                "10.1002/Straße.2020.A")));
+        assertThat(toStrings(index.scanPrefix("1002", "STRA")), is(list("10.1002/Straße.2020.A")));
+        assertThat(toStrings(index.scanPrefix("1002", "straße")), is(list("10.1002/Straße.2020.A")));
+        assertThat(index.contains(new DOI("1002", "(sici)1097-4695(199708)33:2<123::aid-neu6>3.0.co;2-#")), is(true));
+    }
+
+    @Test
+    public void compact() {
+        DOIIndex index = plosIndex(100000);
+        long doiBytes = 0;
+        for (DOI doi : index.scan("1371")) {
+            doiBytes += doi.getSuffix().length();
+        }
+        assertTrue("index of [" + index.memoryUsage() + "] bytes", index.memoryUsage() * 3 < doiBytes);
+    }
+
+    @Test
+    public void sharedDictionary() {
+        RegistrantDictionary registrants = new RegistrantDictionary();
+        registrants.add("1016");
+        DOIIndex index = new DOIIndex.Builder(registrants).add(new DOI("1371", "x")).build();
+        assertThat(registrants.getId("1371"), is(1));
+        assertThat(index.count("1016"), is(0));
+        assertThat(index.count("1371"), is(1));
+        registrants.add("2000");
+        assertThat(index.count("2000"), is(0));
+        assertThat(index.contains(new DOI("2000", "x")), is(false));
+    }
+
+    private static DOIIndex plosIndex(int count) {
+        DOIIndex.Builder builder = new DOIIndex.Builder();
+        for (int i = count - 1; i >= 0; i--) {
+            builder.add(new DOI("1371", String.format("journal.%s.%07d", i % 2 == 0 ? "pone" : "pbio", i / 2)));
+        }
+        builder.add(new DOI("1016", "j.ecoinf.2014.08.005"));
+        return builder.build();
+    }
+
+    private static List<String> toStrings(Iterable<DOI> dois) {
+        List<String> strings = new ArrayList<String>();
+        for (DOI doi : dois) {
+            strings.add(doi.toString());
+        }
+        return strings;
+    }
+
+    private static List<String> list(String... values) {
+        List<String> list = new ArrayList<String>();
+        Collections.addAll(list, values);
+        return list;
+    }
+
+}
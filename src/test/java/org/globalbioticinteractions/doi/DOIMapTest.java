@@ -0,0 +1,46 @@
+package org.globalbioticinteractions.doi;
+
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class DOIMapTest {
+
+    @Test
+    public void putAndGetIgnoringCase() {
+        DOIMap<String> map = new DOIMap<String>();
+        assertThat(map.put(new DOI("1016", "J.ECOINF.2014.08.005"), "first"), is(nullValue()));
+        assertThat(map.put(new DOI("1016", "j.ecoinf.2014.08.005"), "second"), is("first"));
+        assertThat(map.get(new DOI("1016", "j.Ecoinf.2014.08.005")), is("second"));
+        assertThat(map.get(new DOI("1016", "j.ecoinf.2014.08.006")), is(nullValue()));
+        assertThat(map.containsKey(new DOI("1016", "j.ecoinf.2014.08.005")), is(true));
+        assertThat(map.size(), is(1L));
+    }
+
+    @Test
+    public void putIfAbsent() {
+        DOIMap<Integer> map = new DOIMap<Integer>();
+        assertThat(map.putIfAbsent(new DOI("123", "456"), 1), is(nullValue()));
+        assertThat(map.putIfAbsent(new DOI("123", "456"), 2), is(1));
+        assertThat(map.get(new DOI("123", "456")), is(1));
+    }
+
+    @Test
+    public void manyEntries() {
+        DOIMap<Integer> map = new DOIMap<Integer>(0, 2);
+        for (int i = 0; i < 100000; i++) {
+            map.put(new DOI("1000", "suffix." + i), i);
+        }
+        for (int i = 0; i < 100000; i++) {
+            assertThat(map.get(new DOI("1000", "SUFFIX." + i)), is(i));
+        }
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void rejectNullValue() {
+        new DOIMap<String>().put(new DOI("123", "456"), null);
+    }
+
+}
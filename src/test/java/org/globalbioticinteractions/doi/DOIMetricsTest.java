@@ -0,0 +1,110 @@
+package org.globalbioticinteractions.doi;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class DOIMetricsTest {
+
+    @After
+    public void disable() {
+        DOIMetrics.disable();
+    }
+
+    @Test
+    public void disabledByDefault() {
+        assertThat(DOIMetrics.getListener(), is(nullValue()));
+    }
+
+    @Test
+    public void countParsesByFormAndReason() throws MalformedDOIException {
+        DOIMetrics metrics = DOIMetrics.enable();
+        DOI.create("10.123/456");
+        DOI.tryCreate("doi:10.123/456");
+        DOI.parse("https://doi.org/10.123/456");
+        DOI.parse("HTTP://DX.DOI.ORG/10.123/456");
+        DOI.parse("https://doi.org/10.123/<456>");
+        DOI.parse("9.123/456");
+        DOI.create(URI.create("https://doi.org/10.123/456"));
+        DOI.tryCreate("10.123");
+
+        assertThat(metrics.getParseCount(), is(8L));
+        assertThat(metrics.getParseCount(DOIMetrics.InputForm.BARE), is(3L));
+        assertThat(metrics.getParseCount(DOIMetrics.InputForm.PRINTABLE), is(1L));
+        assertThat(metrics.getParseCount(DOIMetrics.InputForm.SECURE_URL), is(2L));
+        assertThat(metrics.getParseCount(DOIMetrics.InputForm.DX_URL), is(1L));
+        assertThat(metrics.getParseCount(DOIMetrics.InputForm.URI), is(1L));
+        assertThat(metrics.getMalformedCount(), is(3L));
+        assertThat(metrics.getMalformedCount(MalformedDOIReason.BAD_ESCAPE), is(1L));
+        assertThat(metrics.getMalformedCount(MalformedDOIReason.MISSING_DIRECTORY_INDICATOR), is(1L));
+        assertThat(metrics.getMalformedCount(MalformedDOIReason.MISSING_REGISTRANT), is(1L));
+    }
+
+    @Test(expected = MalformedDOIException.class)
+    public void countMalformedURIPath() throws MalformedDOIException {
+        DOIMetrics metrics = DOIMetrics.enable();
+        try {
+            DOI.create(URI.create("urn:10.123/456"));
+        } finally {
+            assertThat(metrics.getMalformedCount(MalformedDOIReason.MALFORMED_URI_PATH), is(1L));
+        }
+    }
+
+    @Test
+    public void sampleLatencies() throws MalformedDOIException {
+        DOIMetrics metrics = DOIMetrics.enable();
+        DOI doi = DOI.create("10.123/456");
+        for (int i = 0; i < 100 * DOIMetrics.LATENCY_SAMPLE_INTERVAL; i++) {
+            DOI.parse("10.123/456");
+            doi.toURI();
+        }
+        long samples = metrics.getSampleCount(DOIMetrics.Operation.PARSE);
+        assertThat(samples > 0 && samples < 1000, is(true));
+        assertThat(metrics.getSampleCount(DOIMetrics.Operation.TO_URI) > 0, is(true));
+        long median = metrics.getLatencyQuantile(DOIMetrics.Operation.PARSE, 0.5);
+        assertThat(median > 0 && median <= metrics.getLatencyQuantile(DOIMetrics.Operation.PARSE, 1), is(true));
+    }
+
+    @Test
+    public void latencyQuantiles() {
+        DOIMetrics metrics = new DOIMetrics();
+        assertThat(metrics.getLatencyQuantile(DOIMetrics.Operation.PARSE, 0.5), is(0L));
+        for (int i = 0; i < 99; i++) {
+            metrics.timed(DOIMetrics.Operation.PARSE, 100);
+        }
+        metrics.timed(DOIMetrics.Operation.PARSE, 5000);
+        assertThat(metrics.getLatencyQuantile(DOIMetrics.Operation.PARSE, 0), is(128L));
+        assertThat(metrics.getLatencyQuantile(DOIMetrics.Operation.PARSE, 0.99), is(128L));
+        assertThat(metrics.getLatencyQuantile(DOIMetrics.Operation.PARSE, 1), is(8192L));
+        assertThat(metrics.getLatencyHistogram(DOIMetrics.Operation.PARSE)[7], is(99L));
+    }
+
+    @Test
+    public void customListener() {
+        final List<String> events = new ArrayList<String>();
+        DOIMetrics.setListener(new DOIMetricsListener() {
+            @Override
+            public void parsed(DOIMetrics.InputForm form, MalformedDOIReason reason) {
+                events.add(form + " " + reason);
+            }
+
+            @Override
+            public void timed(DOIMetrics.Operation operation, long nanos) {
+            }
+        });
+        DOI.parse("doi:10.123/456");
+        DOI.parse("doi:10.123/");
+        DOIMetrics.disable();
+        DOI.parse("doi:10.123/456");
+        assertThat(events, is(Arrays.asList("PRINTABLE null", "PRINTABLE MISSING_SUFFIX")));
+    }
+
+}
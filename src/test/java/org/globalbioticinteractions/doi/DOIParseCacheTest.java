@@ -0,0 +1,132 @@
+package org.globalbioticinteractions.doi;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DOIParseCacheTest {
+
+    @Test
+    public void cacheWellFormed() throws MalformedDOIException {
+        DOIParseCache cache = new DOIParseCache(16);
+        DOI doi = cache.create("https://doi.org/10.1111/abc");
+        assertThat(doi, is(DOI.create("10.1111/abc")));
+        assertTrue(cache.create("https://doi.org/10.1111/abc") == doi);
+        assertThat(cache.getHitCount(), is(1L));
+        assertThat(cache.getMissCount(), is(1L));
+        assertThat(cache.getHitRate(), is(0.5));
+        assertThat(cache.size(), is(1));
+    }
+
+    @Test
+    public void cacheMalformed() {
+        DOIParseCache cache = new DOIParseCache(16);
+        assertThat(cache.tryCreate("9.123/456"), is(nullValue()));
+        assertThat(cache.parse("9.123/456").getReason(), is(MalformedDOIReason.MISSING_DIRECTORY_INDICATOR));
+        try {
+            cache.create("9.123/456");
+            fail("expected malformed DOI");
+        } catch (MalformedDOIException e) {
+            assertThat(e.getReason(), is(MalformedDOIReason.MISSING_DIRECTORY_INDICATOR));
+            assertThat(e.getMessage().contains("9.123/456"), is(true));
+        }
+        assertThat(cache.getHitCount(), is(2L));
+        assertThat(cache.getMissCount(), is(1L));
+    }
+
+    @Test
+    public void matchCase() {
+        DOIParseCache cache = new DOIParseCache(16);
+        assertThat(cache.tryCreate("10.1111/abc").getSuffix(), is("abc"));
+        assertThat(cache.tryCreate("10.1111/ABC").getSuffix(), is("ABC"));
+    }
+
+    @Test
+    public void evictWithinMaximumSize() {
+        DOIParseCache cache = new DOIParseCache(64);
+        for (int i = 0; i < 1000; i++) {
+            cache.tryCreate("10.1111/" + i);
+        }
+        assertThat(cache.size() <= 64, is(true));
+        assertThat(cache.getEvictionCount(), is(1000L - cache.size()));
+    }
+
+    @Test
+    public void keepFrequentlyUsed() {
+        DOIParseCache cache = new DOIParseCache(1024);
+        for (int i = 0; i < 100000; i++) {
+            cache.tryCreate("10.1111/frequent." + (i % 64));
+            cache.tryCreate("10.1111/rare." + i);
+        }
+        long hits = cache.getHitCount();
+        for (int i = 0; i < 64; i++) {
+            cache.tryCreate("10.1111/frequent." + i);
+        }
+        assertThat(cache.getHitCount() - hits > 56, is(true));
+    }
+
+    @Test
+    public void sameAsParse() {
+        DOIParseCache cache = new DOIParseCache(256);
+        Random random = new Random(1234);
+        String[] fragments = {"10.", "1111", "/", "doi:", "https://doi.org/", "%2F", "a", "B", " ", "#"};
+        for (int i = 0; i < 100000; i++) {
+            StringBuilder candidate = new StringBuilder();
+            int length = random.nextInt(6);
+            for (int j = 0; j < length; j++) {
+                candidate.append(fragments[random.nextInt(fragments.length)]);
+            }
+            String doiString = candidate.toString();
+            DOIParseResult expected = DOI.parse(doiString);
+            DOIParseResult actual = cache.parse(doiString);
+            assertThat(doiString, actual.getReason(), is(expected.getReason()));
+            assertThat(doiString, actual.getDOI(), is(expected.getDOI()));
+        }
+        assertThat(cache.getHitCount() > 0, is(true));
+    }
+
+    @Test
+    public void concurrentUse() throws Exception {
+        final DOIParseCache cache = new DOIParseCache(128);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(new Callable<Object>() {
+                    @Override
+                    public Object call() {
+                        for (int i = 0; i < 100000; i++) {
+                            String doiString = "10.1111/" + (i % 256);
+                            assertThat(cache.tryCreate(doiString).getSuffix(), is(Integer.toString(i % 256)));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(cache.getHitCount() + cache.getMissCount(), is(400000L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectZeroSize() {
+        new DOIParseCache(0);
+    }
+
+}
@@ -0,0 +1,169 @@
+package org.globalbioticinteractions.doi;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Random;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class DOIParserTest {
+
+    private static final String[] PREFIXES = {
+            "", "doi:", "DOI:", "Doi:", "https://doi.org/", "HTTPS://DOI.ORG/", "http://dx.doi.org/", "Http://DX.doi.org/",
+            "https://doi.org", "doi", "http://example.org/"
+    };
+
+    private static final String[] FRAGMENTS = {
+            "10.", "10", "9.", "1", "23", "/", "//", "#", "%", "%2F", "%2f", "%23", "%C3%A9", "%E2%82", "%zz", "%4", "%25",
+            "<", ">", "@", "\u0000", " ", "é", " ", " ", "[", "]", "|", "abc", "XYZ", "(2001)", ";", ":", ".", "-"
+    };
+
+    @Test
+    public void urlWithEscapedSlash() throws MalformedDOIException {
+        DOI doi = DOIParser.create("https://doi.org/10.123%2F456", 0, 28);
+        assertThat(doi.getRegistrantCode(), is("123"));
+        assertThat(doi.getSuffix(), is("456"));
+    }
+
+    @Test
+    public void urlWithMultiByteEscape() throws MalformedDOIException {
+        DOI doi = DOI.create("https://doi.org/10.123/caf%C3%A9");
+        assertThat(doi.getSuffix(), is("café"));
+    }
+
+    @Test
+    public void urlWithFragment() throws MalformedDOIException {
+        DOI doi = DOI.create("https://doi.org/10.123/456#789");
+        assertThat(doi.getSuffix(), is("456"));
+    }
+
+    @Test(expected = MalformedDOIException.class)
+    public void urlWithMalformedEscape() throws MalformedDOIException {
+        DOI.create("https://doi.org/10.123/456%2");
+    }
+
+    @Test(expected = MalformedDOIException.class)
+    public void missingRegistrantCode() throws MalformedDOIException {
+        DOI.create("10./456");
+    }
+
+    @Test
+    public void reasons() {
+        assertThat(DOI.parse("9.123/456").getReason(), is(MalformedDOIReason.MISSING_DIRECTORY_INDICATOR));
+        assertThat(DOI.parse("10.123").getReason(), is(MalformedDOIReason.MISSING_REGISTRANT));
+        assertThat(DOI.parse("10./456").getReason(), is(MalformedDOIReason.MISSING_REGISTRANT));
+        assertThat(DOI.parse("10. /456").getReason(), is(MalformedDOIReason.MISSING_REGISTRANT));
+        assertThat(DOI.parse("10.123/").getReason(), is(MalformedDOIReason.MISSING_SUFFIX));
+        assertThat(DOI.parse("10.123/ ").getReason(), is(MalformedDOIReason.MISSING_SUFFIX));
+        assertThat(DOI.parse("https://doi.org/10.123/4%5").getReason(), is(MalformedDOIReason.BAD_ESCAPE));
+        assertThat(DOI.parse("http://dx.doi.org/10.123/<4>").getReason(), is(MalformedDOIReason.BAD_ESCAPE));
+    }
+
+    @Test
+    public void malformedResultsAreShared() {
+        assertThat(DOI.parse("9.123/456") == DOI.parse("foo"), is(true));
+    }
+
+    @Test
+    public void validResult() {
+        DOIParseResult result = DOI.parse("doi:10.123/456");
+        assertThat(result.isValid(), is(true));
+        assertThat(result.getReason(), is(nullValue()));
+        assertThat(result.getDOI().toString(), is("10.123/456"));
+    }
+
+    @Test
+    public void parseRange() throws MalformedDOIException {
+        DOI doi = DOIParser.create("see doi:10.123/456 for details", 4, 18);
+        assertThat(doi.toString(), is("10.123/456"));
+    }
+
+    @Test
+    public void prefixCaseInsensitiveAsciiOnly() throws MalformedDOIException {
+        assertThat(DOI.create("DOI:10.123/456").toString(), is("10.123/456"));
+        assertThat(DOI.create("HtTpS://DoI.oRg/10.123/456").toString(), is("10.123/456"));
+    }
+
+    @Test
+    public void sameAsURIBasedParsing() {
+        Random random = new Random(1234);
+        for (int i = 0; i < 100000; i++) {
+            StringBuilder candidate = new StringBuilder(PREFIXES[random.nextInt(PREFIXES.length)]);
+            int fragments = random.nextInt(8);
+            for (int j = 0; j < fragments; j++) {
+                candidate.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+            String doiString = candidate.toString();
+            assertThat(doiString, outcome(doiString), is(uriBasedOutcome(doiString)));
+        }
+    }
+
+    @Test
+    public void parseKeySameAsParse() {
+        Random random = new Random(4321);
+        DOIKey key = new DOIKey();
+        DOIKey expected = new DOIKey();
+        for (int i = 0; i < 100000; i++) {
+            StringBuilder candidate = new StringBuilder(PREFIXES[random.nextInt(PREFIXES.length)]);
+            int fragments = random.nextInt(8);
+            for (int j = 0; j < fragments; j++) {
+                candidate.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+            String doiString = candidate.toString();
+            DOIParseResult result = DOI.parse(doiString);
+            assertThat(doiString, DOIParser.parseKey(doiString, 0, doiString.length(), key), is(result.getReason()));
+            if (result.isValid()) {
+                expected.set(result.getDOI());
+                assertThat(doiString, key.hash(), is(expected.hash()));
+                assertThat(doiString, key.matches(expected.bytes(), 0, expected.length()), is(true));
+            }
+        }
+    }
+
+    private static String outcome(String doiString) {
+        try {
+            return DOI.create(doiString).toString();
+        } catch (MalformedDOIException e) {
+            return "malformed";
+        }
+    }
+
+    private static String uriBasedOutcome(String doiString) {
+        try {
+            String doiCandidate = stripDOIPrefixUsingURI(doiString);
+            if (!doiCandidate.startsWith("10.")) {
+                return "malformed";
+            }
+            int s = doiCandidate.indexOf('/');
+            if (s < 4) {
+                return "malformed";
+            }
+            return new DOI(doiCandidate.substring(3, s), doiCandidate.substring(s + 1)).toString();
+        } catch (MalformedDOIException e) {
+            return "malformed";
+        } catch (IllegalArgumentException e) {
+            // empty or blank registrant code or suffix
+            return "malformed";
+        }
+    }
+
+    private static String stripDOIPrefixUsingURI(String doi) throws MalformedDOIException {
+        if (doi.toLowerCase().startsWith("doi:")) {
+            return doi.length() > 4 ? doi.substring(4) : doi;
+        }
+        for (String prefix : new String[]{"https://doi.org/", "http://dx.doi.org/"}) {
+            if (doi.length() > prefix.length() && doi.toLowerCase().startsWith(prefix)) {
+                try {
+                    return URI.create("some://host/path?" + doi.substring(prefix.length())).getQuery();
+                } catch (IllegalArgumentException e) {
+                    throw new MalformedDOIException("found unescaped doi in uri [" + doi + "]", e);
+                }
+            }
+        }
+        return doi;
+    }
+
+}
@@ -0,0 +1,136 @@
+package org.globalbioticinteractions.doi;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class DOIPoolTest {
+
+    @Test
+    public void shareIdenticalDOIs() throws MalformedDOIException {
+        DOIPool pool = new DOIPool(100);
+        DOI doi1 = pool.create("https://doi.org/10.123/456");
+        DOI doi2 = pool.create("doi:10.123/456");
+
+        assertThat(doi1, is(sameInstance(doi2)));
+        assertThat(pool.getHitCount(), is(1L));
+        assertThat(pool.getMissCount(), is(1L));
+        assertThat(pool.size(), is(1));
+    }
+
+    @Test
+    public void defaultPool() throws MalformedDOIException {
+        assertThat(DOIPool.getDefault(), is(nullValue()));
+        assertThat(DOI.create("10.123/456"), is(not(sameInstance(DOI.create("10.123/456")))));
+        DOIPool pool = new DOIPool(100);
+        DOIPool.setDefault(pool);
+        try {
+            DOI doi = DOI.create("https://doi.org/10.123/456");
+            assertThat(DOI.parse("doi:10.123/456").getDOI(), is(sameInstance(doi)));
+            assertThat(DOI.create(URI.create("https://doi.org/10.123/456")), is(sameInstance(doi)));
+            assertThat(DOI.create("10.123/456".getBytes(StandardCharsets.UTF_8), 0, 10), is(sameInstance(doi)));
+            assertThat(pool.getHitCount(), is(3L));
+        } finally {
+            DOIPool.setDefault(null);
+        }
+        assertThat(DOI.create("10.123/456"), is(not(sameInstance(DOI.create("10.123/456")))));
+    }
+
+    @Test
+    public void keepCaseOfDOIs() throws MalformedDOIException {
+        DOIPool pool = new DOIPool(100);
+        DOI doi1 = pool.create("10.123/abc");
+        DOI doi2 = pool.create("10.123/ABC");
+
+        assertThat(doi1, is(doi2));
+        assertThat(doi2.getSuffix(), is("ABC"));
+        assertThat(doi1, is(not(sameInstance(doi2))));
+        assertThat(pool.intern(doi1), is(sameInstance(doi1)));
+    }
+
+    @Test
+    public void shareRegistrantCodes() throws MalformedDOIException {
+        DOIPool pool = new DOIPool(100);
+        DOI doi1 = pool.create("10.1371/journal.pone.0000001");
+        DOI doi2 = pool.create(new StringBuilder("10.1371/journal.pone.0000002"));
+
+        assertThat(doi1.getRegistrantCode(), is(sameInstance(doi2.getRegistrantCode())));
+        assertThat(pool.registrantCodeCount(), is(1));
+    }
+
+    @Test
+    public void limitRegistrantCodes() {
+        DOIPool pool = new DOIPool(100, 1, 1);
+        assertThat(pool.internRegistrantCode("1371"), is("1371"));
+        String other = new String("1000");
+        assertThat(pool.internRegistrantCode(other), is(sameInstance(other)));
+        assertThat(pool.registrantCodeCount(), is(1));
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() throws MalformedDOIException {
+        DOIPool pool = new DOIPool(2, 100, 1);
+        DOI doi1 = pool.create("10.1/1");
+        pool.create("10.1/2");
+        pool.create("10.1/1");
+        pool.create("10.1/3");
+
+        assertThat(pool.size(), is(2));
+        assertThat(pool.getEvictionCount(), is(1L));
+        assertThat(pool.create("10.1/1"), is(sameInstance(doi1)));
+    }
+
+    @Test
+    public void tryCreate() {
+        DOIPool pool = new DOIPool(100);
+        assertThat(pool.tryCreate("foo"), is(nullValue()));
+        assertThat(pool.tryCreate("10.1/2").toString(), is("10.1/2"));
+    }
+
+    @Test
+    public void concurrentCreate() throws InterruptedException, ExecutionException {
+        final DOIPool pool = new DOIPool(1000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<DOI[]>> futures = new ArrayList<Future<DOI[]>>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(new Callable<DOI[]>() {
+                    @Override
+                    public DOI[] call() {
+                        DOI[] dois = new DOI[100];
+                        for (int i = 0; i < dois.length; i++) {
+                            dois[i] = pool.tryCreate("10.1/" + i);
+                        }
+                        return dois;
+                    }
+                }));
+            }
+            DOI[] first = futures.get(0).get();
+            for (Future<DOI[]> future : futures) {
+                DOI[] dois = future.get();
+                for (int i = 0; i < dois.length; i++) {
+                    assertThat(dois[i], is(sameInstance(first[i])));
+                }
+            }
+            assertThat(pool.size(), is(100));
+            assertThat(pool.getHitCount() + pool.getMissCount(), is(800L));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
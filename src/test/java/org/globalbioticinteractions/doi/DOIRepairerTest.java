@@ -0,0 +1,187 @@
+package org.globalbioticinteractions.doi;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Random;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class DOIRepairerTest {
+
+    private static final String[] FRAGMENTS = {
+            "", "doi:", "DOI ", "doi: ", "https://doi.org/", "http://dx.doi.org/", "doi.org/", "http://doi.org/",
+            "10.", "10", "1", "/", "//", "#", "%", "%2F", "%252F", "%25", "%E2%80%93", "%zz", "<", ">", "(", ")", "[", "]",
+            " ", "\u00A0", "–", ".", ",", ";", "\"", "é", "abc", "XYZ"
+    };
+
+    @Test
+    public void noRepairsNeeded() {
+        assertRepaired("10.123/456", "10.123/456");
+        assertRepaired("doi:10.123/456", "10.123/456");
+        assertRepaired("HTTP://DX.DOI.ORG/10.123/456", "10.123/456");
+        assertRepaired("https://doi.org/10.123/456%23789#fragment", "10.123/456#789");
+    }
+
+    @Test
+    public void trimWhitespace() {
+        assertRepaired(" 10.123/456 ", "10.123/456", DOIRepair.TRIMMED_WHITESPACE);
+        assertRepaired("\uFEFF\t10.123/456\u3000\r\n", "10.123/456", DOIRepair.TRIMMED_WHITESPACE);
+    }
+
+    @Test
+    public void stripPunctuation() {
+        assertRepaired("10.123/456.", "10.123/456", DOIRepair.STRIPPED_PUNCTUATION);
+        assertRepaired("(doi:10.123/456).", "10.123/456", DOIRepair.STRIPPED_PUNCTUATION);
+        assertRepaired("“10.123/456”, ", "10.123/456", DOIRepair.STRIPPED_PUNCTUATION, DOIRepair.TRIMMED_WHITESPACE);
+        assertRepaired("[10.1002/(SICI)1097-4695(199708)33:2<175::AID-NEU6>3.0.CO;2-#]", "10.1002/(SICI)1097-4695(199708)33:2<175::AID-NEU6>3.0.CO;2-#", DOIRepair.STRIPPED_PUNCTUATION);
+        assertRepaired("10.123/(456)", "10.123/(456)");
+    }
+
+    @Test
+    public void spacedPrefix() {
+        assertRepaired("DOI 10.123/456", "10.123/456", DOIRepair.SPACED_PREFIX);
+        assertRepaired("doi: 10.123/456", "10.123/456", DOIRepair.SPACED_PREFIX);
+        assertRepaired("Doi: 10.123/456", "10.123/456", DOIRepair.SPACED_PREFIX);
+    }
+
+    @Test
+    public void doubledPrefix() {
+        assertRepaired("doi:doi:10.123/456", "10.123/456", DOIRepair.DOUBLED_PREFIX);
+        assertRepaired("DOI: doi:10.123/456", "10.123/456", DOIRepair.DOUBLED_PREFIX, DOIRepair.SPACED_PREFIX);
+        assertRepaired("doi:http://dx.doi.org/10.123/456", "10.123/456", DOIRepair.DOUBLED_PREFIX);
+        assertRepaired("doi: doi.org/10.123/456", "10.123/456",
+                DOIRepair.DOUBLED_PREFIX, DOIRepair.SPACED_PREFIX, DOIRepair.NONSTANDARD_RESOLVER);
+    }
+
+    @Test
+    public void nonstandardResolver() {
+        assertRepaired("doi.org/10.123/456", "10.123/456", DOIRepair.NONSTANDARD_RESOLVER);
+        assertRepaired("dx.doi.org/10.123/456", "10.123/456", DOIRepair.NONSTANDARD_RESOLVER);
+        assertRepaired("http://doi.org/10.123/456%3C789%3E", "10.123/456<789>", DOIRepair.NONSTANDARD_RESOLVER);
+        assertRepaired("https://dx.doi.org/10.123/456", "10.123/456", DOIRepair.NONSTANDARD_RESOLVER);
+        assertRepaired("https://www.doi.org/10.123/456", "10.123/456", DOIRepair.NONSTANDARD_RESOLVER);
+    }
+
+    @Test
+    public void doubleEncoded() {
+        assertRepaired("https://doi.org/10.123%252F456", "10.123/456", DOIRepair.DOUBLE_ENCODED);
+        assertRepaired("https://doi.org/10.123/%25C3%25A9%2525", "10.123/é%", DOIRepair.DOUBLE_ENCODED);
+        assertRepaired("https://doi.org/10.123/100%25", "10.123/100%");
+    }
+
+    @Test
+    public void unescapedURLCharacters() {
+        assertRepaired("http://dx.doi.org/10.1002/(SICI)1097-4695(199708)33:2<175::AID-NEU6>3.0.CO;2-#",
+                "10.1002/(SICI)1097-4695(199708)33:2<175::AID-NEU6>3.0.CO;2-#", DOIRepair.UNESCAPED_URL_CHARACTERS);
+        assertRepaired("https://doi.org/10.123/50%", "10.123/50%", DOIRepair.UNESCAPED_URL_CHARACTERS);
+        assertRepaired("https://doi.org/10.123/4 5", "10.123/4 5", DOIRepair.UNESCAPED_URL_CHARACTERS);
+        assertRepaired("http://dx.doi.org/10.1002/(SICI)1097-4695(199708)33:2::AID-NEU6;2-#",
+                "10.1002/(SICI)1097-4695(199708)33:2::AID-NEU6;2-#", DOIRepair.UNESCAPED_URL_CHARACTERS);
+        assertRepaired("https://doi.org/10.1/2%2F3#", "10.1/2/3#", DOIRepair.UNESCAPED_URL_CHARACTERS);
+    }
+
+    @Test
+    public void unescapedURLCharactersInFragment() {
+        assertRepaired("https://doi.org/10.1/2#frag<x>", "10.1/2", DOIRepair.UNESCAPED_URL_CHARACTERS);
+        assertRepaired("https://doi.org/10.1/2%2F3#50%", "10.1/2/3", DOIRepair.UNESCAPED_URL_CHARACTERS);
+        assertRepaired("https://doi.org/10.1/2%252F3#a#b", "10.1/2/3",
+                DOIRepair.DOUBLE_ENCODED, DOIRepair.UNESCAPED_URL_CHARACTERS);
+    }
+
+    @Test
+    public void normalizeDashes() {
+        assertRepaired("10.123/456–789", "10.123/456-789", DOIRepair.NORMALIZED_DASHES);
+        assertRepaired("https://doi.org/10.123/456‒789", "10.123/456-789", DOIRepair.NORMALIZED_DASHES);
+        assertRepaired("https://doi.org/10.123/456–789%2F1", "10.123/456-789/1", DOIRepair.NORMALIZED_DASHES);
+        // dashes decoded from escapes were encoded on purpose
+        assertRepaired("https://doi.org/10.1/%E2%80%93", "10.1/–");
+        assertRepaired("https://doi.org/10.123/456–789%E2%80%94", "10.123/456-789—", DOIRepair.NORMALIZED_DASHES);
+        assertRepaired("10.123/456−789", "10.123/456-789", DOIRepair.NORMALIZED_DASHES);
+    }
+
+    @Test
+    public void combinedRepairs() {
+        assertRepaired(" (DOI: doi.org/10.123%252F456‐789).", "10.123/456-789",
+                DOIRepair.TRIMMED_WHITESPACE,
+                DOIRepair.STRIPPED_PUNCTUATION,
+                DOIRepair.SPACED_PREFIX,
+                DOIRepair.DOUBLED_PREFIX,
+                DOIRepair.NONSTANDARD_RESOLVER,
+                DOIRepair.DOUBLE_ENCODED,
+                DOIRepair.NORMALIZED_DASHES);
+        assertRepaired("doi:https://doi.org/10.123/456", "10.123/456", DOIRepair.DOUBLED_PREFIX);
+    }
+
+    @Test
+    public void notRepairable() {
+        DOIRepairResult result = DOI.repair("  not a doi. ");
+        assertThat(result.isValid(), is(false));
+        assertThat(result.getDOI(), is(nullValue()));
+        assertThat(result.getReason(), is(MalformedDOIReason.MISSING_DIRECTORY_INDICATOR));
+        assertThat(result.getRepairs(), is((Object) EnumSet.of(DOIRepair.TRIMMED_WHITESPACE, DOIRepair.STRIPPED_PUNCTUATION)));
+        assertThat(DOI.repair("10.123/.").getReason(), is(MalformedDOIReason.MISSING_SUFFIX));
+        assertThat(DOI.repair("").getReason(), is(MalformedDOIReason.MISSING_DIRECTORY_INDICATOR));
+    }
+
+    @Test
+    public void sameAsParseIfNotRepaired() {
+        String[] candidates = {
+                "doi:https://doi.org/10.1/2", "doi:doi:10.1/2", "https://doi.org/10.1/2#frag<x>",
+                "https://doi.org/10.1/2#50%", "https://doi.org/10.1/2#a#b"
+        };
+        for (String candidate : candidates) {
+            assertSameAsParseIfNotRepaired(candidate);
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            StringBuilder candidate = new StringBuilder();
+            int fragments = random.nextInt(8);
+            for (int j = 0; j < fragments; j++) {
+                candidate.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+            assertSameAsParseIfNotRepaired(candidate);
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void linearTime() {
+        StringBuilder candidate = new StringBuilder("((((((doi:10.123/");
+        for (int i = 0; i < 1000000; i++) {
+            candidate.append(")");
+        }
+        assertThat(DOI.repair(candidate.append('.')).getReason(), is(MalformedDOIReason.MISSING_SUFFIX));
+        candidate.setLength(0);
+        candidate.append("https://doi.org/10.123/");
+        for (int i = 0; i < 1000000; i++) {
+            candidate.append("%25");
+        }
+        assertThat(DOI.repair(candidate).getDOI().getSuffix().length(), is(1000000));
+    }
+
+    private static void assertSameAsParseIfNotRepaired(CharSequence candidate) {
+        DOIRepairResult repaired = DOI.repair(candidate);
+        if (!repaired.isRepaired()) {
+            DOIParseResult parsed = DOI.parse(candidate);
+            assertThat(candidate.toString(), repaired.isValid(), is(parsed.isValid()));
+            if (parsed.isValid()) {
+                assertThat(candidate.toString(), repaired.getDOI().getRegistrantCode(), is(parsed.getDOI().getRegistrantCode()));
+                assertThat(candidate.toString(), repaired.getDOI().getSuffix(), is(parsed.getDOI().getSuffix()));
+            }
+        }
+    }
+
+    private static void assertRepaired(String candidate, String expected, DOIRepair... repairs) {
+        DOIRepairResult result = DOI.repair(candidate);
+        assertThat(candidate, result.isValid(), is(true));
+        assertThat(candidate, result.getDOI().toString(), is(expected));
+        EnumSet<DOIRepair> expectedRepairs = EnumSet.noneOf(DOIRepair.class);
+        Collections.addAll(expectedRepairs, repairs);
+        assertThat(candidate, result.getRepairs(), is((Object) expectedRepairs));
+        assertThat(candidate, result.isRepaired(), is(repairs.length > 0));
+    }
+
+}
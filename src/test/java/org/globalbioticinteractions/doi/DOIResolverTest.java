@@ -0,0 +1,262 @@
+package org.globalbioticinteractions.doi;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DOIResolverTest {
+
+    private HttpServer server;
+    private URI resolver;
+    private ExecutorService executor;
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger concurrentRequests = new AtomicInteger();
+    private final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+    private final List<String> requestedPaths = new ArrayList<String>();
+    private volatile CountDownLatch release = new CountDownLatch(0);
+    private volatile int status = 302;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                int concurrent = concurrentRequests.incrementAndGet();
+                try {
+                    requests.incrementAndGet();
+                    synchronized (requestedPaths) {
+                        requestedPaths.add(exchange.getRequestMethod() + " " + exchange.getRequestURI().getRawPath());
+                    }
+                    int max = maxConcurrentRequests.get();
+                    while (concurrent > max && !maxConcurrentRequests.compareAndSet(max, concurrent)) {
+                        max = maxConcurrentRequests.get();
+                    }
+                    release.await(10, TimeUnit.SECONDS);
+                    respond(exchange);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    concurrentRequests.decrementAndGet();
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+        resolver = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getRawPath();
+        if (path.startsWith("/10.404/")) {
+            exchange.sendResponseHeaders(404, -1);
+        } else if (path.startsWith("/metadata/")) {
+            byte[] body = ("{\"accept\":\"" + exchange.getRequestHeaders().getFirst("Accept") + "\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        } else if (status == 302) {
+            // content negotiation like https://doi.org/
+            String accept = exchange.getRequestHeaders().getFirst("Accept");
+            String landingPage = accept != null && accept.contains("citationstyles")
+                    ? "/metadata" + path
+                    : "https://example.org/landing" + path;
+            exchange.getResponseHeaders().add("Location", landingPage);
+            exchange.sendResponseHeaders(302, -1);
+        } else {
+            exchange.sendResponseHeaders(status, -1);
+        }
+    }
+
+    @Test
+    public void resolveLandingPage() throws Exception, MalformedDOIException {
+        DOIResolver doiResolver = new DOIResolver.Builder(executor).resolver(resolver).build();
+        DOIResolution resolution = doiResolver.resolve(DOI.create("10.1000/123#456")).get();
+        assertThat(resolution.isFound(), is(true));
+        assertThat(resolution.getStatusCode(), is(302));
+        assertThat(resolution.getURI(), is(URI.create(resolver + "10.1000/123%23456")));
+        assertThat(resolution.getLocation(), is(URI.create("https://example.org/landing/10.1000/123%23456")));
+        assertThat(resolution.getBody(), is(nullValue()));
+        assertThat(requestedPaths, is(Arrays.asList("HEAD /10.1000/123%23456")));
+    }
+
+    @Test
+    public void resolveMetadata() throws Exception, MalformedDOIException {
+        DOIResolver doiResolver = new DOIResolver.Builder(executor)
+                .resolver(resolver)
+                .accept("application/vnd.citationstyles.csl+json")
+                .build();
+        DOIResolution resolution = doiResolver.resolve(DOI.create("10.1000/123")).get();
+        assertThat(resolution.getStatusCode(), is(200));
+        assertThat(resolution.getURI(), is(URI.create(resolver + "metadata/10.1000/123")));
+        assertThat(resolution.getContentType(), is("application/json; charset=UTF-8"));
+        assertThat(resolution.getBody(), is("{\"accept\":\"application/vnd.citationstyles.csl+json\"}"));
+        assertThat(requestedPaths, is(Arrays.asList("GET /10.1000/123", "GET /metadata/10.1000/123")));
+    }
+
+    @Test
+    public void notFoundIsCached() throws Exception, MalformedDOIException {
+        DOIResolver doiResolver = new DOIResolver.Builder(executor).resolver(resolver).build();
+        DOIResolution resolution = doiResolver.resolve(DOI.create("10.404/123")).get();
+        assertThat(resolution.isFound(), is(false));
+        assertThat(resolution.getStatusCode(), is(404));
+        assertThat(doiResolver.resolve(DOI.create("10.404/123")).get().getStatusCode(), is(404));
+        assertThat(requests.get(), is(1));
+    }
+
+    @Test
+    public void cachedIgnoringCaseUntilExpired() throws Exception, MalformedDOIException {
+        DOIResolver doiResolver = new DOIResolver.Builder(executor)
+                .resolver(resolver)
+                .cache(200, TimeUnit.MILLISECONDS, 10)
+                .build();
+        doiResolver.resolve(DOI.create("10.1000/abc")).get();
+        Future<DOIResolution> cached = doiResolver.resolve(DOI.create("10.1000/ABC"));
+        assertThat(cached.isDone(), is(true));
+        assertThat(cached.get().getDOI(), is(DOI.create("10.1000/abc")));
+        assertThat(requests.get(), is(1));
+
+        Thread.sleep(300);
+        doiResolver.resolve(DOI.create("10.1000/abc")).get();
+        assertThat(requests.get(), is(2));
+    }
+
+    @Test
+    public void serverErrorsAreNotCached() throws Exception, MalformedDOIException {
+        status = 503;
+        DOIResolver doiResolver = new DOIResolver.Builder(executor).resolver(resolver).build();
+        assertThat(doiResolver.resolve(DOI.create("10.1000/abc")).get().getStatusCode(), is(503));
+        status = 302;
+        assertThat(doiResolver.resolve(DOI.create("10.1000/abc")).get().getStatusCode(), is(302));
+        assertThat(requests.get(), is(2));
+    }
+
+    @Test
+    public void inFlightRequestsAreShared() throws Exception, MalformedDOIException {
+        release = new CountDownLatch(1);
+        DOIResolver doiResolver = new DOIResolver.Builder(executor).resolver(resolver).build();
+        Future<DOIResolution> first = doiResolver.resolve(DOI.create("10.1000/abc"));
+        Future<DOIResolution> second = doiResolver.resolve(DOI.create("10.1000/ABC"));
+        assertTrue(first == second);
+        release.countDown();
+        assertThat(first.get().getStatusCode(), is(302));
+        assertThat(requests.get(), is(1));
+    }
+
+    @Test
+    public void resolveAllLimitsConcurrentRequestsPerHost() throws Exception, MalformedDOIException {
+        DOIResolver doiResolver = new DOIResolver.Builder(executor)
+                .resolver(resolver)
+                .maxConcurrentRequestsPerHost(2)
+                .maxRequestsPerSecondPerHost(1000)
+                .build();
+        release = new CountDownLatch(1);
+        List<DOI> dois = new ArrayList<DOI>();
+        for (int i = 0; i < 8; i++) {
+            dois.add(DOI.create("10.1000/" + i));
+            dois.add(DOI.create("10.1000/" + i));
+        }
+        Map<DOI, Future<DOIResolution>> futures = doiResolver.resolveAll(dois);
+        assertThat(futures.size(), is(8));
+        Thread.sleep(200);
+        release.countDown();
+        for (Map.Entry<DOI, Future<DOIResolution>> entry : futures.entrySet()) {
+            assertThat(entry.getValue().get().getDOI(), is(entry.getKey()));
+        }
+        assertThat(requests.get(), is(8));
+        assertThat(maxConcurrentRequests.get(), is(2));
+    }
+
+    @Test
+    public void rateLimitPerHost() throws Exception, MalformedDOIException {
+        DOIResolver doiResolver = new DOIResolver.Builder(executor)
+                .resolver(resolver)
+                .maxRequestsPerSecondPerHost(20)
+                .build();
+        List<DOI> dois = new ArrayList<DOI>();
+        for (int i = 0; i < 6; i++) {
+            dois.add(DOI.create("10.1000/" + i));
+        }
+        long start = System.nanoTime();
+        for (Future<DOIResolution> future : doiResolver.resolveAll(dois).values()) {
+            future.get();
+        }
+        // six requests at most 50ms apart
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(250));
+    }
+
+    @Test
+    public void pluggableTransport() throws Exception, MalformedDOIException {
+        final List<String> requested = new ArrayList<String>();
+        DOIResolver doiResolver = new DOIResolver.Builder(executor)
+                .transport(new DOIResolver.Transport() {
+                    @Override
+                    public DOIResolver.Response execute(String method, URI uri, String accept) {
+                        requested.add(method + " " + uri);
+                        return new DOIResolver.Response(302, "https://example.org/landing", null, null);
+                    }
+                })
+                .build();
+        DOIResolution resolution = doiResolver.resolve(DOI.create("10.1000/123")).get();
+        assertThat(resolution.getLocation(), is(URI.create("https://example.org/landing")));
+        assertThat(requested, is(Arrays.asList("HEAD https://doi.org/10.1000/123")));
+    }
+
+    @Test
+    public void failuresAreReportedAndNotCached() throws Exception, MalformedDOIException {
+        final AtomicInteger attempts = new AtomicInteger();
+        DOIResolver doiResolver = new DOIResolver.Builder(executor)
+                .transport(new DOIResolver.Transport() {
+                    @Override
+                    public DOIResolver.Response execute(String method, URI uri, String accept) throws IOException {
+                        attempts.incrementAndGet();
+                        throw new IOException("connection refused");
+                    }
+                })
+                .build();
+        for (int i = 0; i < 2; i++) {
+            try {
+                doiResolver.resolve(DOI.create("10.1000/123")).get();
+                fail("expected failure");
+            } catch (ExecutionException e) {
+                assertThat(e.getCause().getMessage(), is("connection refused"));
+            }
+        }
+        assertThat(attempts.get(), is(2));
+    }
+
+}
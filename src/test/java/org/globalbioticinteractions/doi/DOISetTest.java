@@ -0,0 +1,120 @@
+package org.globalbioticinteractions.doi;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class DOISetTest {
+
+    @Test
+    public void addIgnoringCase() {
+        DOISet set = new DOISet();
+        assertThat(set.add(new DOI("1577", "1548-8659(1993)122<0378:FOTGSI>2.3.CO;2")), is(true));
+        assertThat(set.add(new DOI("1577", "1548-8659(1993)122<0378:fotgsi>2.3.co;2")), is(false));
+        assertThat(set.contains(new DOI("1577", "1548-8659(1993)122<0378:Fotgsi>2.3.co;2")), is(true));
+        assertThat(set.contains(new DOI("1577", "1548-8659(1993)122<0378:fotgsi>2.3.co;3")), is(false));
+        assertThat(set.size(), is(1L));
+    }
+
+    @Test
+    public void registrantCodeAndSuffixAreSeparate() {
+        DOISet set = new DOISet();
+        set.add(new DOI("12", "3/4"));
+        assertThat(set.contains(new DOI("12/3", "4")), is(false));
+        assertThat(set.contains(new DOI("1", "23/4")), is(false));
+    }
+
+    @Test
+    public void sameAsHashSet() {
+        Random random = new Random(1234);
+        DOISet set = new DOISet();
+        Set<DOI> expected = new HashSet<DOI>();
+        String alphabet = "aAbBßSsİiıIΣσςéÉ𐐀𐐨\uD801";
+        for (int i = 0; i < 200000; i++) {
+            StringBuilder suffix = new StringBuilder();
+            int length = 1 + random.nextInt(4);
+            for (int j = 0; j < length; j++) {
+                suffix.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            DOI doi = new DOI(Integer.toString(random.nextInt(3)), suffix.toString());
+            assertThat(doi.toString(), set.contains(doi), is(expected.contains(doi)));
+            assertThat(doi.toString(), set.add(doi), is(expected.add(doi)));
+        }
+        assertThat(set.size(), is((long) expected.size()));
+    }
+
+    @Test
+    public void growBeyondPagesAndSlots() {
+        DOISet set = new DOISet(0, 1);
+        StringBuilder longSuffix = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            longSuffix.append("0123456789");
+        }
+        assertThat(set.add(new DOI("123", longSuffix.toString())), is(true));
+        for (int i = 0; i < 100000; i++) {
+            assertThat(set.add(new DOI("1000", "suffix." + i)), is(true));
+        }
+        for (int i = 0; i < 100000; i++) {
+            assertThat(set.contains(new DOI("1000", "SUFFIX." + i)), is(true));
+        }
+        assertThat(set.contains(new DOI("123", longSuffix.toString())), is(true));
+        assertThat(set.size(), is(100001L));
+    }
+
+    @Test
+    public void memoryCloseToDOILength() {
+        DOISet set = new DOISet(0, 1);
+        long doiBytes = 0;
+        for (int i = 0; i < 100000; i++) {
+            DOI doi = new DOI("1371", "journal.pone." + (1000000 + i));
+            doiBytes += doi.getRegistrantCode().length() + doi.getSuffix().length();
+            set.add(doi);
+        }
+        long overheadPerDOI = (set.memoryUsage() - doiBytes) / set.size();
+        assertTrue("overhead of [" + overheadPerDOI + "] bytes per doi", overheadPerDOI < 32);
+    }
+
+    @Test
+    public void concurrentAdds() throws Exception {
+        final DOISet set = new DOISet(0, 8);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> added = new ArrayList<Future<Integer>>();
+            for (int t = 0; t < 8; t++) {
+                added.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        int count = 0;
+                        for (int i = 0; i < 50000; i++) {
+                            if (set.add(new DOI("123", "suffix." + i))) {
+                                count++;
+                            }
+                        }
+                        return count;
+                    }
+                }));
+            }
+            int total = 0;
+            for (Future<Integer> count : added) {
+                total += count.get();
+            }
+            assertThat(total, is(50000));
+            assertThat(set.size(), is(50000L));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,181 @@
+package org.globalbioticinteractions.doi;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class DOITableTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void containsIgnoringCase() throws IOException {
+        File file = folder.newFile();
+        new DOITable.Builder()
+                .add(new DOI("1577", "1548-8659(1993)122<0378:FOTGSI>2.3.CO;2"))
+                .add(new DOI("1577", "1548-8659(1993)122<0378:fotgsi>2.3.co;2"))
+                .add(new DOI("12", "3/4"))
+                .build(file);
+
+        DOITable table = DOITable.open(file);
+        assertThat(table.size(), is(2L));
+        assertThat(table.contains(new DOI("1577", "1548-8659(1993)122<0378:Fotgsi>2.3.co;2")), is(true));
+        assertThat(table.contains(new DOI("1577", "1548-8659(1993)122<0378:fotgsi>2.3.co;3")), is(false));
+        assertThat(table.contains(new DOI("12/3", "4")), is(false));
+        assertThat(table.contains("https://doi.org/10.12/3%2F4"), is(true));
+        assertThat(table.contains("doi:10.1577/1548-8659(1993)122<0378:FOTGSI>2.3.co;2"), is(true));
+        assertThat(table.contains("not a doi"), is(false));
+        table.verify();
+    }
+
+    @Test
+    public void buildFromLines() throws IOException {
+        File file = folder.newFile();
+        DOITable.Builder builder = new DOITable.Builder()
+                .addLines(new StringReader("10.1/a\ndoi:10.1/A\nnot a doi\nhttps://doi.org/10.2/b\n"));
+        assertThat(builder.getRejected(), is(1L));
+        builder.build(file);
+
+        DOITable table = DOITable.open(file);
+        assertThat(table.size(), is(2L));
+        assertThat(table.contains("10.1/a"), is(true));
+        assertThat(table.contains("10.2/B"), is(true));
+        assertThat(table.contains("10.3/c"), is(false));
+    }
+
+    @Test
+    public void emptyTable() throws IOException {
+        File file = folder.newFile();
+        new DOITable.Builder().build(file);
+        DOITable table = DOITable.open(file);
+        assertThat(table.size(), is(0L));
+        assertThat(table.contains("10.1/a"), is(false));
+        table.verify();
+    }
+
+    @Test
+    public void sameAsHashSet() throws IOException {
+        Random random = new Random(1234);
+        DOITable.Builder builder = new DOITable.Builder();
+        Set<DOI> expected = new HashSet<DOI>();
+        String alphabet = "aAbBßSsİiıIΣσςéÉ𐐀𐐨\uD801";
+        for (int i = 0; i < 100000; i++) {
+            DOI doi = randomDOI(random, alphabet);
+            builder.add(doi);
+            expected.add(doi);
+        }
+        File file = folder.newFile();
+        builder.build(file);
+
+        DOITable table = DOITable.open(file);
+        assertThat(table.size(), is((long) expected.size()));
+        for (DOI doi : expected) {
+            assertThat(doi.toString(), table.contains(doi), is(true));
+        }
+        for (int i = 0; i < 100000; i++) {
+            DOI doi = randomDOI(random, alphabet);
+            assertThat(doi.toString(), table.contains(doi), is(expected.contains(doi)));
+        }
+    }
+
+    @Test
+    public void rejectCorruptHeader() throws IOException {
+        File file = folder.newFile();
+        new DOITable.Builder().add(new DOI("1", "a")).build(file);
+        overwrite(file, 16, (byte) 7);
+        try {
+            DOITable.open(file);
+            fail("expected corrupt header to be detected");
+        } catch (IOException ex) {
+            assertThat(ex.getMessage().startsWith("corrupt DOI table header"), is(true));
+        }
+    }
+
+    @Test
+    public void rejectOtherFiles() throws IOException {
+        File file = folder.newFile();
+        try {
+            DOITable.open(file);
+            fail("expected empty file to be rejected");
+        } catch (IOException ex) {
+            assertThat(ex.getMessage().startsWith("not a DOI table file"), is(true));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void verifyDetectsCorruptContent() throws IOException {
+        File file = folder.newFile();
+        new DOITable.Builder().add(new DOI("1", "a")).build(file);
+        overwrite(file, file.length() - 1, (byte) 'b');
+        DOITable table = DOITable.open(file);
+        table.verify();
+    }
+
+    @Test
+    public void checksumIsCRC32OfSlotsAndKeys() throws IOException {
+        File file = folder.newFile();
+        new DOITable.Builder().add(new DOI("1", "a")).add(new DOI("2", "b")).build(file);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        CRC32 crc = new CRC32();
+        crc.update(bytes, DOITable.HEADER_LENGTH, bytes.length - DOITable.HEADER_LENGTH);
+        assertThat(ByteBuffer.wrap(bytes).getLong(40), is(crc.getValue()));
+    }
+
+    @Test
+    public void stayOpenAcrossRebuild() throws IOException {
+        File file = folder.newFile();
+        DOITable.Builder builder = new DOITable.Builder();
+        for (int i = 0; i < 10000; i++) {
+            builder.add(new DOI("1371", "journal.pone." + i));
+        }
+        builder.build(file);
+        DOITable table = DOITable.open(file);
+
+        new DOITable.Builder().add(new DOI("1016", "j.ecoinf.2014.08.005")).build(file);
+
+        assertThat(table.size(), is(10000L));
+        assertThat(table.contains("10.1371/journal.pone.9999"), is(true));
+        table.verify();
+        DOITable rebuilt = DOITable.open(file);
+        assertThat(rebuilt.size(), is(1L));
+        assertThat(rebuilt.contains("10.1371/journal.pone.9999"), is(false));
+        assertThat(rebuilt.contains("10.1016/j.ecoinf.2014.08.005"), is(true));
+        assertThat(folder.getRoot().list().length, is(1));
+    }
+
+    private static void overwrite(File file, long position, byte value) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(position);
+            raf.write(value);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static DOI randomDOI(Random random, String alphabet) {
+        StringBuilder suffix = new StringBuilder();
+        int length = 1 + random.nextInt(5);
+        for (int j = 0; j < length; j++) {
+            suffix.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return new DOI(Integer.toString(random.nextInt(3)), suffix.toString());
+    }
+
+}
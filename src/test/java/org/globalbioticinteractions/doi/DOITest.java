@@ -3,14 +3,20 @@ package org.globalbioticinteractions.doi;
 import org.junit.Test;
 
 import java.net.MalformedURLException;
+import java.io.IOException;
+import java.io.StringWriter;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class DOITest {
 
@@ -91,11 +97,84 @@ public class DOITest {
         assertThat(doi.getSuffix(), is("1545-1410(2001)683<0001:sa>2.0.co;2"));
     }
 
+    @Test
+    public void createFromCharSequence() throws MalformedDOIException {
+        DOI doi = DOI.create(new StringBuilder("https://doi.org/10.1000/123%23456"));
+        assertThat(doi.toString(), is("10.1000/123#456"));
+    }
+
+    @Test
+    public void createFromCharArraySlice() throws MalformedDOIException {
+        char[] buffer = "foo,doi:10.123/456,bar".toCharArray();
+        DOI doi = DOI.create(buffer, 4, 14);
+        assertThat(doi.toString(), is("10.123/456"));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void createFromCharArrayOutOfBounds() throws MalformedDOIException {
+        DOI.create("10.123/456".toCharArray(), 4, 14);
+    }
+
+    @Test
+    public void createFromBytesSlice() throws MalformedDOIException {
+        byte[] bytes = "foo,10.123/456,bar".getBytes(StandardCharsets.UTF_8);
+        DOI doi = DOI.create(bytes, 4, 10);
+        assertThat(doi.toString(), is("10.123/456"));
+    }
+
+    @Test
+    public void createFromNonAsciiBytes() throws MalformedDOIException {
+        byte[] bytes = "10.123/caf\u00e9".getBytes(StandardCharsets.UTF_8);
+        DOI doi = DOI.create(bytes, 0, bytes.length);
+        assertThat(doi.getSuffix(), is("caf\u00e9"));
+    }
+
+    @Test
+    public void createFromDirectByteBuffer() throws MalformedDOIException {
+        byte[] bytes = "http://dx.doi.org/10.123/456%3C789%3E".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 2);
+        buffer.put((byte) ' ').put(bytes).put((byte) ' ');
+        buffer.position(1);
+        buffer.limit(bytes.length + 1);
+        DOI doi = DOI.create(buffer);
+        assertThat(doi.toString(), is("10.123/456<789>"));
+        assertThat(buffer.position(), is(1));
+    }
+
+    @Test(expected = MalformedDOIException.class)
+    public void throwOnMalformedBytes() throws MalformedDOIException {
+        byte[] bytes = "9.123/456".getBytes(StandardCharsets.UTF_8);
+        DOI.create(bytes, 0, bytes.length);
+    }
+
     @Test(expected = MalformedDOIException.class)
     public void throwOnMalformedURI() throws MalformedDOIException, URISyntaxException {
         DOI.create("http://dx.doi.org/10.1577/1548-8659(1993)122<0378:fotgsi>2.3.co;2");
     }
 
+    @Test
+    public void tryCreate() {
+        assertThat(DOI.tryCreate("doi:10.123/456").toString(), is("10.123/456"));
+        assertThat(DOI.tryCreate("9.123/456"), is(nullValue()));
+        assertThat(DOI.tryCreate(null), is(nullValue()));
+    }
+
+    @Test
+    public void malformedWithReason() {
+        try {
+            DOI.create("10.123/");
+            fail("expected exception");
+        } catch (MalformedDOIException e) {
+            assertThat(e.getReason(), is(MalformedDOIReason.MISSING_SUFFIX));
+            assertThat(e.getMessage(), is("missing suffix in [10.123/]. See https://doi.org/10.1000/33 for more info."));
+        }
+    }
+
+    @Test(expected = MalformedDOIException.class)
+    public void throwOnMalformedURIPath() throws MalformedDOIException {
+        DOI.create(URI.create("https://doi.org"));
+    }
+
     @Test
     public void doiToString() throws URISyntaxException, MalformedDOIException {
         DOI doi = new DOI("123", "456");
@@ -141,12 +220,48 @@ public class DOITest {
         assertThat(doi.toURI(resolver).toString(), is("https://example.org/10.1000/123456"));
     }
 
+    @Test
+    public void toURIWithResolverPort() throws MalformedDOIException {
+        DOI doi = DOI.create("10.1000/123456");
+        URI resolver = URI.create("http://localhost:8080");
+        assertThat(doi.toURI(resolver).toString(), is("http://localhost:8080/10.1000/123456"));
+        assertThat(doi.toURIString(resolver), is("http://localhost:8080/10.1000/123456"));
+    }
+
     @Test
     public void toURIWithNullResolver() throws URISyntaxException, MalformedDOIException, MalformedURLException {
         DOI doi = DOI.create("10.1000/123456");
         assertThat(doi.toURI(null).toString(), is("https://doi.org/10.1000/123456"));
     }
 
+    @Test
+    public void toURIString() throws MalformedDOIException {
+        DOI doi = DOI.create("10.1206/0003-0090(2000)264<0083:>2.0.co;2");
+        assertThat(doi.toURIString(), is("https://doi.org/10.1206/0003-0090(2000)264%3C0083:%3E2.0.co;2"));
+        assertThat(doi.toURIString(), is(doi.toURI().toString()));
+        assertThat(doi.toURIString(URI.create("http://dx.doi.org/")), is("http://dx.doi.org/10.1206/0003-0090(2000)264%3C0083:%3E2.0.co;2"));
+    }
+
+    @Test
+    public void toURIStringWithAlternatingResolvers() throws MalformedDOIException {
+        DOI doi = DOI.create("10.1000/123#456");
+        URI example = URI.create("https://example.org");
+        URI other = URI.create("http://other.example.org/some/path");
+        assertThat(doi.toURIString(example), is("https://example.org/10.1000/123%23456"));
+        assertThat(doi.toURIString(other), is("http://other.example.org/10.1000/123%23456"));
+        assertThat(doi.toURIString(URI.create("https://example.org")), is("https://example.org/10.1000/123%23456"));
+        assertThat(doi.toURIString(null), is("https://doi.org/10.1000/123%23456"));
+    }
+
+    @Test
+    public void appendURITo() throws IOException, MalformedDOIException {
+        DOI doi = DOI.create("10.1000/123#456");
+        StringWriter writer = new StringWriter();
+        doi.appendURITo(writer.append('<')).append('>');
+        assertThat(writer.toString(), is("<https://doi.org/10.1000/123%23456>"));
+        assertThat(doi.appendURITo(new StringBuilder("see "), URI.create("http://dx.doi.org")).toString(), is("see http://dx.doi.org/10.1000/123%23456"));
+    }
+
 
     @Test
     public void toPrintable() throws URISyntaxException, MalformedDOIException {
@@ -155,6 +270,19 @@ public class DOITest {
         assertThat(DOI.create("10.1206/0003-0090(2000)264<0083:>2.0.co;2").toPrintableDOI(), is("doi:10.1206/0003-0090(2000)264<0083:>2.0.co;2"));
     }
 
+    @Test
+    public void appendTo() throws IOException, MalformedDOIException {
+        DOI doi = DOI.create("https://doi.org/10.1000/123%23456");
+        StringWriter writer = new StringWriter();
+        doi.appendTo(writer).append(' ');
+        doi.appendPrintableTo(writer).append(' ');
+        doi.appendURITo(writer);
+        assertThat(writer.toString(), is("10.1000/123#456 doi:10.1000/123#456 https://doi.org/10.1000/123%23456"));
+        assertThat(doi.toString(), is("10.1000/123#456"));
+        assertThat(doi.appendTo(new StringBuilder("[")).append(']').toString(), is("[10.1000/123#456]"));
+        assertThat(doi.appendPrintableTo(new StringBuilder()).toString(), is(doi.toPrintableDOI()));
+    }
+
     @Test
     public void toPrintableWithHash() throws URISyntaxException, MalformedDOIException {
         assertThat(DOI.create("10.1000/123#456").toPrintableDOI(), is("doi:10.1000/123#456"));
@@ -243,6 +371,30 @@ public class DOITest {
         assertThat(doi1.hashCode(), is(not(doi3.hashCode())));
     }
 
+    @Test
+    public void notEqualOnHashCollision() {
+        DOI doi1 = new DOI("1", "az");
+        DOI doi2 = new DOI("1", "b[");
+
+        assertThat(doi1.hashCode(), is(doi2.hashCode()));
+        assertThat(doi1, is(not(doi2)));
+    }
+
+    @Test
+    public void equalsIgnoresCaseOfRegistrantCode() {
+        assertThat(new DOI("abc", "1"), is(new DOI("ABC", "1")));
+        assertThat(new DOI("abc", "1").hashCode(), is(new DOI("ABC", "1").hashCode()));
+    }
+
+    @Test
+    public void hashCaseInsensitiveNonAscii() {
+        DOI doi1 = new DOI("123", "\u00c9t\u00e9");
+        DOI doi2 = new DOI("123", "\u00e9T\u00c9");
+
+        assertThat(doi1, is(doi2));
+        assertThat(doi1.hashCode(), is(doi2.hashCode()));
+    }
+
     @Test
     public void commonlyUsedPrefixDOI() {
         assertTrue(DOI.isCommonlyUsedDoiPrefix("doi:"));
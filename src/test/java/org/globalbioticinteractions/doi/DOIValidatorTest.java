@@ -0,0 +1,154 @@
+package org.globalbioticinteractions.doi;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class DOIValidatorTest {
+
+    private static final String[] FRAGMENTS = {
+            "doi:", "DOI:", "dOi:", "https://doi.org/", "HTTPS://DOI.ORG/", "http://dx.doi.org/", "https://dx.doi.org/",
+            "10.", "10", "1", "0", ".", "/", "//", " ", "\t", "\u0000", "\u001F", "\u007F", "%", "%2F", "%2f", "%20",
+            "%31%30.", "%C3%A9", "%E2%80%A8", "%C3", "%FF", "%G0", "#", "<", ">", "\"", "{", "}", "|", "\\", "^", "`",
+            "é", " ", " ", "\u0085", "😀", "abc", "ABC", "1234", "1577", ";", ":", "?", "~", "@"
+    };
+
+    @Test
+    public void validCandidates() {
+        assertValid("10.123/456");
+        assertValid("doi:10.123/456");
+        assertValid("DOI:10.123/456");
+        assertValid("https://doi.org/10.123/456");
+        assertValid("HTTP://DX.DOI.ORG/10.123/456");
+        assertValid("https://doi.org/10.1577/1548-8659(1993)122%3C0378:FOTGSI%3E2.3.CO;2");
+        assertValid("https://doi.org/10.123/%C3%A9#fragment");
+        assertValid("https://doi.org/%31%30.123%2F456");
+        assertValid("10.123/é");
+        assertValid("10.é/é");
+        assertValid("https://doi.org/10.123/é");
+    }
+
+    @Test
+    public void invalidCandidates() {
+        assertInvalid("");
+        assertInvalid("10.");
+        assertInvalid("10.123");
+        assertInvalid("10.123/");
+        assertInvalid("10. /456");
+        assertInvalid("10.123/   ");
+        assertInvalid("11.123/456");
+        assertInvalid("doi:");
+        assertInvalid("doi: 10.123/456");
+        assertInvalid("https://doi.org/");
+        assertInvalid("https://doi.org/10.123/45%6");
+        assertInvalid("https://doi.org/10.123/<456>");
+        assertInvalid("https://doi.org/10.123%2F");
+        assertInvalid("https://doi.org/10.123/#456");
+        assertInvalid("https://doi.org/10.123/ ");
+        assertInvalid("https://doi.org/10.123%2F%20");
+    }
+
+    @Test
+    public void sameAsCreateForRandomCandidates() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            StringBuilder candidate = new StringBuilder();
+            int fragments = random.nextInt(8);
+            for (int j = 0; j < fragments; j++) {
+                candidate.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+            assertSameAsCreate(candidate.toString());
+        }
+    }
+
+    @Test
+    public void sameAsCreateForRandomBytes() {
+        Random random = new Random(42);
+        byte[] bytes = new byte[64];
+        for (int i = 0; i < 100000; i++) {
+            String prefix = FRAGMENTS[random.nextInt(FRAGMENTS.length)] + "10.";
+            byte[] prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+            System.arraycopy(prefixBytes, 0, bytes, 0, prefixBytes.length);
+            int length = prefixBytes.length + random.nextInt(bytes.length - prefixBytes.length);
+            for (int j = prefixBytes.length; j < length; j++) {
+                // mostly '/', blanks and letters, sometimes any byte, including malformed UTF-8
+                int kind = random.nextInt(8);
+                bytes[j] = (byte) (kind == 0 ? '/' : kind == 1 ? ' ' : kind == 2 ? random.nextInt(256) : 'a' + random.nextInt(26));
+            }
+            boolean expected = DOIParser.parseUTF8(ByteBuffer.wrap(bytes, 0, length)).isValid();
+            assertThat(new String(bytes, 0, length, StandardCharsets.ISO_8859_1), DOIValidator.isValid(bytes, 0, length), is(expected));
+        }
+    }
+
+    @Test
+    public void validateBatch() {
+        String[] candidates = {"10.123/456", "not a doi", "https://doi.org/10.123/456", "", "doi:10.1/2"};
+        StringBuilder column = new StringBuilder("header");
+        int[] offsets = new int[candidates.length];
+        int[] lengths = new int[candidates.length];
+        for (int i = 0; i < candidates.length; i++) {
+            offsets[i] = column.length();
+            lengths[i] = candidates[i].length();
+            column.append(candidates[i]);
+        }
+        BitSet valid = new BitSet();
+        valid.set(1);
+        int count = DOIValidator.validate(column.toString().getBytes(StandardCharsets.UTF_8), offsets, lengths, candidates.length, valid);
+        assertThat(count, is(3));
+        assertThat(valid.toString(), is("{0, 2, 4}"));
+    }
+
+    @Test
+    public void validateLines() {
+        ByteBuffer lines = ByteBuffer.allocateDirect(64);
+        lines.put("ignored\n10.123/456\r\nnot a doi\n\ndoi:10.1/2".getBytes(StandardCharsets.UTF_8));
+        lines.flip();
+        lines.position("ignored\n".length());
+        BitSet valid = new BitSet();
+        assertThat(DOIValidator.validateLines(lines, valid), is(4));
+        assertThat(valid.toString(), is("{0, 3}"));
+        assertThat(lines.position(), is("ignored\n".length()));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void outOfBounds() {
+        DOIValidator.isValid(new byte[4], 2, 3);
+    }
+
+    private static void assertValid(String candidate) {
+        assertThat(candidate, isValid(candidate), is(true));
+        assertSameAsCreate(candidate);
+    }
+
+    private static void assertInvalid(String candidate) {
+        assertThat(candidate, isValid(candidate), is(false));
+        assertSameAsCreate(candidate);
+    }
+
+    private static void assertSameAsCreate(String candidate) {
+        byte[] utf8 = candidate.getBytes(StandardCharsets.UTF_8);
+        boolean expected = DOI.tryCreate(candidate) != null;
+        assertThat(candidate, isValid(candidate), is(expected));
+        // also at an offset into a larger array, and in a direct buffer
+        byte[] padded = new byte[utf8.length + 13];
+        System.arraycopy(utf8, 0, padded, 5, utf8.length);
+        assertThat(candidate, DOIValidator.isValid(padded, 5, utf8.length), is(expected));
+        ByteBuffer direct = ByteBuffer.allocateDirect(utf8.length + 3);
+        direct.position(3);
+        direct.put(utf8);
+        direct.position(3);
+        assertThat(candidate, DOIValidator.isValid(direct), is(expected));
+    }
+
+    private static boolean isValid(String candidate) {
+        byte[] utf8 = candidate.getBytes(StandardCharsets.UTF_8);
+        return DOIValidator.isValid(utf8, 0, utf8.length);
+    }
+
+}
@@ -0,0 +1,62 @@
+package org.globalbioticinteractions.doi;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Random;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class PercentEncoderTest {
+
+    @Test
+    public void escapeReservedCharacters() throws IOException {
+        assertThat(encode("123#456"), is("123%23456"));
+        assertThat(encode("0003-0090(2000)264<0083:>2.0.co;2"), is("0003-0090(2000)264%3C0083:%3E2.0.co;2"));
+        assertThat(encode("a b%c?d"), is("a%20b%25c%3Fd"));
+    }
+
+    @Test
+    public void escapeUnicodeWhitespaceAndControlCharacters() throws IOException {
+        assertThat(encode("a b\u0085c"), is("a%E2%80%A8b%C2%85c"));
+        assertThat(encode("café"), is("café"));
+    }
+
+    @Test
+    public void sameAsURIEncoding() throws IOException, URISyntaxException {
+        Random random = new Random(1234);
+        for (int i = 0; i < 100000; i++) {
+            StringBuilder candidate = new StringBuilder();
+            int length = random.nextInt(12);
+            for (int j = 0; j < length; j++) {
+                candidate.append(randomChar(random));
+            }
+            String value = candidate.toString();
+            String expected = new URI("https", "doi.org", "/" + value, null).toString();
+            assertThat(value, "https://doi.org/" + encode(value), is(expected));
+        }
+    }
+
+    private static char randomChar(Random random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return (char) random.nextInt(128);
+            case 1:
+                return (char) (128 + random.nextInt(0x2100 - 128));
+            case 2:
+                return (char) random.nextInt(Character.MAX_VALUE + 1);
+            default:
+                return "#%<>[]{}|\\^` \"?".charAt(random.nextInt(15));
+        }
+    }
+
+    private static String encode(String value) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        PercentEncoder.appendEncodedPath(value, builder);
+        return builder.toString();
+    }
+
+}
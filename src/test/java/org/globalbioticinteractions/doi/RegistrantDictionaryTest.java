@@ -0,0 +1,49 @@
+package org.globalbioticinteractions.doi;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class RegistrantDictionaryTest {
+
+    @Test
+    public void denseIds() {
+        RegistrantDictionary dictionary = new RegistrantDictionary();
+        for (int i = 0; i < 100; i++) {
+            assertThat(dictionary.add(Integer.toString(1000 + i)), is(i));
+        }
+        assertThat(dictionary.add("1000"), is(0));
+        assertThat(dictionary.getId("1099"), is(99));
+        assertThat(dictionary.getId("2000"), is(-1));
+        assertThat(dictionary.getRegistrantCode(42), is("1042"));
+        assertThat(dictionary.size(), is(100));
+        assertThat(dictionary.getRegistrantCodes().get(99), is("1099"));
+    }
+
+    @Test
+    public void ignoreCase() {
+        RegistrantDictionary dictionary = new RegistrantDictionary();
+        assertThat(dictionary.add("abc.D"), is(0));
+        assertThat(dictionary.add("ABC.d"), is(0));
+        assertThat(dictionary.getId("Abc.d"), is(0));
+        assertThat(dictionary.getRegistrantCode(0), is("abc.D"));
+    }
+
+    @Test
+    public void codecWithDictionary() {
+        RegistrantDictionary dictionary = new RegistrantDictionary();
+        dictionary.add("1371");
+        DOICodec codec = new DOICodec(dictionary.getRegistrantCodes());
+        assertThat(codec.encodedLength(new DOI("1371", "abc")), is(1 + 1 + 3));
+        assertThat(Arrays.asList("1371"), is(dictionary.getRegistrantCodes()));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void unknownId() {
+        new RegistrantDictionary().getRegistrantCode(0);
+    }
+
+}
@@ -0,0 +1,129 @@
+package org.globalbioticinteractions.doi;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class DOIStreamsTest {
+
+    @Test
+    public void parseLines() {
+        List<String> lines = DOIStreams.parseLines("10.123/456\r\ndoi:10.123/ABC\n\nnot a doi\nhttps://doi.org/10.1/2", false)
+                .map(DOIParseResult::toString)
+                .collect(Collectors.toList());
+        assertThat(lines.size(), is(5));
+        assertThat(lines.get(0), is(DOI.parse("10.123/456").toString()));
+        assertThat(lines.get(4), is(DOI.parse("10.1/2").toString()));
+    }
+
+    @Test
+    public void parseLinesOfBytes() throws MalformedDOIException {
+        ByteBuffer utf8 = ByteBuffer.wrap("skipped\n10.123/é\r\n10.123/456\n".getBytes(StandardCharsets.UTF_8));
+        utf8.position("skipped\n".length());
+        List<DOI> dois = DOIStreams.parseLines(utf8, false)
+                .map(DOIParseResult::getDOI)
+                .collect(Collectors.toList());
+        assertThat(dois, is(Arrays.asList(DOI.create("10.123/é"), DOI.create("10.123/456"))));
+        assertThat(utf8.position(), is("skipped\n".length()));
+    }
+
+    @Test
+    public void parallelSameAsSequential() {
+        String text = lines(100000);
+        List<DOIParseResult> sequential = DOIStreams.parseLines(text, false).collect(Collectors.toList());
+        List<DOIParseResult> parallel = DOIStreams.parseLines(text, true).collect(Collectors.toList());
+        assertThat(parallel.size(), is(100000));
+        assertThat(toStrings(parallel), is(toStrings(sequential)));
+
+        ByteBuffer utf8 = ByteBuffer.allocateDirect(text.length() * 2);
+        utf8.put(text.getBytes(StandardCharsets.UTF_8)).flip();
+        assertThat(toStrings(DOIStreams.parseLines(utf8, true).collect(Collectors.toList())), is(toStrings(sequential)));
+    }
+
+    @Test
+    public void splitAtLineBreaks() {
+        String text = lines(10000);
+        Spliterator<DOIParseResult> second = DOIStreams.lineSpliterator(text);
+        Spliterator<DOIParseResult> first = second.trySplit();
+        List<String> lines = new ArrayList<>();
+        first.forEachRemaining(result -> lines.add(result.toString()));
+        second.forEachRemaining(result -> lines.add(result.toString()));
+        assertThat(lines, is(toStrings(DOIStreams.parseLines(text, false).collect(Collectors.toList()))));
+        assertThat(DOIStreams.lineSpliterator("10.1/2\n10.1/3").trySplit(), is(nullValue()));
+    }
+
+    @Test
+    public void distinctIgnoringCase() {
+        Set<DOI> dois = DOIStreams.parseLines(lines(10000), true)
+                .filter(DOIParseResult::isValid)
+                .map(DOIParseResult::getDOI)
+                .collect(DOIStreams.toDistinctDOIs());
+        // 80 valid suffixes, each with 3 registrant codes
+        assertThat(dois.size(), is(240));
+        assertThat(dois.contains(new DOI("1", "ABC2")), is(true));
+    }
+
+    @Test
+    public void groupByRegistrantCode() {
+        ConcurrentMap<String, List<DOI>> byRegistrant = DOIStreams.parseLines(lines(1000), true)
+                .filter(DOIParseResult::isValid)
+                .map(DOIParseResult::getDOI)
+                .collect(DOIStreams.groupingByRegistrantCode());
+        assertThat(byRegistrant.keySet(), is((Set<String>) new HashSet<>(Arrays.asList("0", "1", "2"))));
+        ConcurrentMap<String, Long> counts = DOIStreams.parseLines(lines(1000), true)
+                .filter(DOIParseResult::isValid)
+                .map(DOIParseResult::getDOI)
+                .collect(DOIStreams.groupingByRegistrantCode(Collectors.counting()));
+        assertThat(counts.get("0") + counts.get("1") + counts.get("2"), is(800L));
+        assertThat(counts.get("1"), is((long) byRegistrant.get("1").size()));
+    }
+
+    @Test
+    public void countRejects() {
+        Map<MalformedDOIReason, Long> rejects = DOIStreams.parseLines(lines(1000), true)
+                .collect(DOIStreams.countingRejects());
+        assertThat(rejects.toString(), is("{MISSING_DIRECTORY_INDICATOR=100, MISSING_SUFFIX=100}"));
+        assertThat(DOIStreams.parse(Arrays.asList("10.1/2", "10.1"), true).collect(DOIStreams.countingRejects()).toString(),
+                is("{MISSING_REGISTRANT=1}"));
+    }
+
+    private static String lines(int count) {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            int kind = i % 10;
+            if (kind == 0) {
+                lines.append("not a doi");
+            } else if (kind == 1) {
+                lines.append("doi:10.1/");
+            } else {
+                String suffix = (i % 2 == 0 ? "abc" : "ABC") + (i % 100);
+                lines.append(kind < 5 ? "https://doi.org/" : "").append("10.").append(i % 3).append('/').append(suffix);
+            }
+            lines.append(i % 7 == 0 ? "\r\n" : "\n");
+        }
+        return lines.toString();
+    }
+
+    private static List<String> toStrings(List<DOIParseResult> results) {
+        List<String> strings = new ArrayList<>();
+        for (DOIParseResult result : results) {
+            strings.add(result.toString());
+        }
+        return strings;
+    }
+
+}